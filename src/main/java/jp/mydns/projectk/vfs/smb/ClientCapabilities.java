@@ -25,9 +25,7 @@
  */
 package jp.mydns.projectk.vfs.smb;
 
-import jakarta.json.Json;
 import jakarta.json.JsonValue;
-import java.util.Objects;
 import java.util.ServiceLoader;
 import jcifs.config.BaseConfiguration;
 import jp.mydns.projectk.vfs.FileOption;
@@ -75,41 +73,6 @@ public class ClientCapabilities extends JcifsngIntOption {
         super(value);
     }
 
-    /**
-     * Returns a hash code value.
-     *
-     * @return a hash code value
-     * @since 1.0.0
-     */
-    @Override
-    public int hashCode() {
-        return Objects.hash(getName(), getValue());
-    }
-
-    /**
-     * Indicates that other object is equal to this one.
-     *
-     * @param other an any object
-     * @return {@code true} if equals otherwise {@code false}
-     * @since 1.0.0
-     */
-    @Override
-    public boolean equals(Object other) {
-        return other instanceof ClientCapabilities o && Objects.equals(getName(), o.getName())
-                && Objects.equals(getValue(), o.getValue());
-    }
-
-    /**
-     * Returns a string representation of this.
-     *
-     * @return string representation
-     * @since 1.0.0
-     */
-    @Override
-    public String toString() {
-        return Json.createObjectBuilder().add(getName(), getValue()).build().toString();
-    }
-
     /**
      * Resolver for {@link ClientCapabilities} instance from JSON.
      * <p>
@@ -125,6 +88,6 @@ public class ClientCapabilities extends JcifsngIntOption {
      * @version 1.0.0
      * @since 1.0.0
      */
-    public static class Resolver implements FileOption.Resolver {
+    public static class Resolver implements JcifsngOptionResolver {
     }
 }
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.net.URLStreamHandler;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import jcifs.BufferCache;
+import jcifs.CIFSContext;
+import jcifs.CIFSException;
+import jcifs.Configuration;
+import jcifs.Credentials;
+import jcifs.DfsResolver;
+import jcifs.NameServiceClient;
+import jcifs.SidResolver;
+import jcifs.SmbPipeResource;
+import jcifs.SmbResource;
+import jcifs.SmbTransportPool;
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * JCIFS-NG context that is materialized on first use.
+ * <p>
+ * This holds only the JCIFS-NG properties until any method is called, and then acquires the context from the
+ * {@link JcifsngContextCache}. So the {@link org.apache.commons.vfs2.FileSystemOptions} that never resolve a file do
+ * not pay for building the context. Closing this releases the acquired context. Otherwise it is released when neither
+ * this nor any context derived from it is reachable.
+ * <p>
+ * The context is acquired without the credentials, and the credentials are derived on it by the
+ * {@link JcifsngCredentialContext}. So the properties that differ only in the credentials share the context.
+ * <p>
+ * The properties of this module are not passed to the JCIFS-NG. See {@link JcifsngModuleProperties}.
+ * <p>
+ * The instances are equal if they hold the equal properties. So the {@code FileSystemOptions} that holds this is
+ * comparable with the another one by the properties.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class DeferredJcifsngContext implements CIFSContext, Comparable<DeferredJcifsngContext> {
+
+    private final SortedMap<String, String> props;
+
+    private JcifsngContextCache.Lease lease;
+
+    private volatile CIFSContext materialized;
+
+    /**
+     * Constructor.
+     *
+     * @param props JCIFS-NG properties
+     * @throws NullPointerException if {@code props} is {@code null}
+     * @since 1.0.0
+     */
+    DeferredJcifsngContext(Map<String, String> props) {
+        this.props = Collections.unmodifiableSortedMap(new TreeMap<>(props));
+    }
+
+    /**
+     * Get the JCIFS-NG properties.
+     *
+     * @return unmodifiable JCIFS-NG properties sorted by name
+     * @since 1.0.0
+     */
+    SortedMap<String, String> getProperties() {
+        return props;
+    }
+
+    /**
+     * Indicates that the context has been materialized.
+     *
+     * @return {@code true} if materialized, otherwise {@code false}
+     * @since 1.0.0
+     */
+    boolean isMaterialized() {
+        return materialized != null;
+    }
+
+    /**
+     * Get the materialized context.
+     *
+     * @return the materialized context
+     * @throws CIFSException if cannot materialize the context
+     * @since 1.0.0
+     */
+    CIFSContext materialize() throws CIFSException {
+
+        CIFSContext current = materialized;
+
+        if (current == null) {
+
+            synchronized (this) {
+
+                current = materialized;
+
+                if (current == null) {
+
+                    Map<String, String> transport = new HashMap<>(props);
+                    Map<String, String> credentials = new HashMap<>();
+
+                    transport.keySet().removeIf(JcifsngModuleProperties::isModuleProperty);
+
+                    for (String name : JcifsngCredentialContext.NAMES) {
+
+                        String value = transport.remove(name);
+
+                        if (value != null) {
+                            credentials.put(name, value);
+                        }
+
+                    }
+
+                    try {
+                        lease = JcifsngContextCache.getInstance().acquire(transport);
+                    } catch (FileSystemException ex) {
+                        throw new CIFSException("Cannot materialize the JCIFS-NG context.", ex);
+                    }
+
+                    current = credentials.isEmpty() ? lease.getContext()
+                            : new JcifsngCredentialContext(lease.getContext(), credentials);
+
+                    materialized = current;
+
+                }
+
+            }
+
+        }
+
+        return current;
+
+    }
+
+    private CIFSContext delegate() {
+
+        try {
+            return materialize();
+        } catch (CIFSException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public SmbResource get(String url) throws CIFSException {
+        return materialize().get(url);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public SmbPipeResource getPipe(String url, int pipeType) throws CIFSException {
+        return materialize().getPipe(url, pipeType);
+    }
+
+    /**
+     * Release the materialized context. The context itself is closed by the {@link JcifsngContextCache} when no longer
+     * referenced.
+     *
+     * @return always {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean close() {
+
+        JcifsngContextCache.Lease current;
+
+        synchronized (this) {
+            current = lease;
+            lease = null;
+            materialized = null;
+        }
+
+        if (current != null) {
+            current.close();
+        }
+
+        return false;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public Configuration getConfig() {
+        return delegate().getConfig();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public NameServiceClient getNameServiceClient() {
+        return delegate().getNameServiceClient();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public BufferCache getBufferCache() {
+        return delegate().getBufferCache();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public SmbTransportPool getTransportPool() {
+        return delegate().getTransportPool();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public DfsResolver getDfs() {
+        return delegate().getDfs();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public SidResolver getSIDResolver() {
+        return delegate().getSIDResolver();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public Credentials getCredentials() {
+        return delegate().getCredentials();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public URLStreamHandler getUrlHandler() {
+        return delegate().getUrlHandler();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public boolean hasDefaultCredentials() {
+        return delegate().hasDefaultCredentials();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public CIFSContext withDefaultCredentials() {
+        return delegate().withDefaultCredentials();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public CIFSContext withAnonymousCredentials() {
+        return delegate().withAnonymousCredentials();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public CIFSContext withGuestCrendentials() {
+        return delegate().withGuestCrendentials();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public CIFSContext withCredentials(Credentials creds) {
+        return delegate().withCredentials(creds);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if cannot materialize the context
+     * @since 1.0.0
+     */
+    @Override
+    public boolean renewCredentials(String locationHint, Throwable error) {
+        return delegate().renewCredentials(locationHint, error);
+    }
+
+    /**
+     * Compares the JCIFS-NG properties.
+     *
+     * @param other the another context
+     * @return a negative integer, zero, or a positive integer as this is less than, equal to, or greater than the
+     * {@code other}
+     * @since 1.0.0
+     */
+    @Override
+    public int compareTo(DeferredJcifsngContext other) {
+
+        Iterator<Map.Entry<String, String>> mine = props.entrySet().iterator();
+        Iterator<Map.Entry<String, String>> others = other.props.entrySet().iterator();
+
+        while (mine.hasNext() && others.hasNext()) {
+
+            Map.Entry<String, String> m = mine.next();
+            Map.Entry<String, String> o = others.next();
+
+            int result = m.getKey().compareTo(o.getKey());
+
+            if (result == 0) {
+                result = m.getValue().compareTo(o.getValue());
+            }
+
+            if (result != 0) {
+                return result;
+            }
+
+        }
+
+        return Boolean.compare(mine.hasNext(), others.hasNext());
+
+    }
+
+    /**
+     * Returns a hash code value.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return props.hashCode();
+    }
+
+    /**
+     * Indicates that other object is equal to this one.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DeferredJcifsngContext o && props.equals(o.props);
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return string representation
+     * @since 1.0.0
+     */
+    @Override
+    public String toString() {
+        return "Deferred JCIFS-NG context of " + props.keySet();
+    }
+}
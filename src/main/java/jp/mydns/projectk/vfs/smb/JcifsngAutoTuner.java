@@ -0,0 +1,568 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import jcifs.CIFSContext;
+import jcifs.smb.SmbFile;
+
+/**
+ * Auto-tuner that probes a target share and derives the buffer sizes and the multiplexing.
+ * <p>
+ * The tuner measures the round trip time and the achievable read and write bandwidth with a few rounds, and derives
+ * {@link ClientReceiveBufferSize}, {@link ClientSendBufferSize}, {@link ClientTransactionBufferSize},
+ * {@link ClientMaxMpxCount} and {@link ClientListSize} from the bandwidth-delay products. The result is a regular set
+ * of the {@link JcifsngOption}s, and can be persisted as JSON and compiled by
+ * {@link JcifsngOptionPlan#compile(JsonObject)}.
+ * <p>
+ * A single stream has only one request outstanding, so its throughput is about the request size per round trip and
+ * reproduces the current buffer size rather than the capacity of the path. So the bandwidth is measured with the
+ * ranged requests that are kept outstanding in parallel, and the round trip that each request thread pays per request
+ * is subtracted from the elapsed time.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngAutoTuner {
+
+    /**
+     * The minimum buffer size. It is the default receive buffer size of JCIFS-NG.
+     *
+     * @since 1.0.0
+     */
+    static final int MIN_BUFFER_SIZE = 65_535;
+
+    /**
+     * The maximum buffer size. It is the maximum read and write size that the common SMB servers accept.
+     *
+     * @since 1.0.0
+     */
+    static final int MAX_BUFFER_SIZE = 8_388_608;
+
+    /**
+     * The minimum multiplex count. It is the default of JCIFS-NG.
+     *
+     * @since 1.0.0
+     */
+    static final int MIN_MPX_COUNT = 10;
+
+    /**
+     * The maximum multiplex count.
+     *
+     * @since 1.0.0
+     */
+    static final int MAX_MPX_COUNT = 256;
+
+    private static final int MAX_LIST_SIZE = 1_048_576;
+
+    private static final int LIST_HEADER_SIZE = 100;
+
+    private static final int DEFAULT_CHUNK_SIZE = 1_048_576;
+
+    private static final int DEFAULT_PARALLELISM = 8;
+
+    private final int rounds;
+
+    private final int probeSize;
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    private final LongSupplier ticker;
+
+    /**
+     * Constructor. Probes 5 rounds of 8 MiB with 8 parallel requests of 1 MiB.
+     *
+     * @since 1.0.0
+     */
+    public JcifsngAutoTuner() {
+        this(5, 8 * DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor. Probes with 8 parallel requests of 1 MiB.
+     *
+     * @param rounds number of the rounds of each measurement
+     * @param probeSize size of the data that is read and written in each round
+     * @throws IllegalArgumentException if {@code rounds} or {@code probeSize} is not positive
+     * @since 1.0.0
+     */
+    public JcifsngAutoTuner(int rounds, int probeSize) {
+        this(rounds, probeSize, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rounds number of the rounds of each measurement
+     * @param probeSize size of the data that is read and written in each round
+     * @param chunkSize size of each ranged request
+     * @param parallelism maximum number of the outstanding requests
+     * @throws IllegalArgumentException if any argument is not positive
+     * @since 1.0.0
+     */
+    public JcifsngAutoTuner(int rounds, int probeSize, int chunkSize, int parallelism) {
+        this(rounds, probeSize, chunkSize, parallelism, System::nanoTime);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rounds number of the rounds of each measurement
+     * @param probeSize size of the data that is read and written in each round
+     * @param chunkSize size of each ranged request
+     * @param parallelism maximum number of the outstanding requests
+     * @param ticker nanosecond time source
+     * @throws NullPointerException if {@code ticker} is {@code null}
+     * @throws IllegalArgumentException if {@code rounds}, {@code probeSize}, {@code chunkSize} or
+     * {@code parallelism} is not positive
+     * @since 1.0.0
+     */
+    JcifsngAutoTuner(int rounds, int probeSize, int chunkSize, int parallelism, LongSupplier ticker) {
+
+        if (rounds < 1 || probeSize < 1 || chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Rounds, probe size, chunk size and parallelism must be positive.");
+        }
+
+        this.rounds = rounds;
+        this.probeSize = probeSize;
+        this.chunkSize = Math.min(chunkSize, probeSize);
+        this.parallelism = parallelism;
+        this.ticker = Objects.requireNonNull(ticker);
+
+    }
+
+    /**
+     * Probe the target and derive the options.
+     *
+     * @param probe the {@code Probe} to the target
+     * @return the result of tuning
+     * @throws NullPointerException if {@code probe} is {@code null}
+     * @throws IOException if occurs I/O error while probing
+     * @since 1.0.0
+     */
+    public Result tune(Probe probe) throws IOException {
+
+        Objects.requireNonNull(probe);
+
+        byte[] data = new byte[probeSize];
+        ThreadLocalRandom.current().nextBytes(data);
+
+        long[] pings = new long[rounds];
+        long[] writes = new long[rounds];
+        long[] reads = new long[rounds];
+
+        for (int i = 0; i < rounds; i++) {
+
+            long start = ticker.getAsLong();
+            probe.ping();
+            long pinged = ticker.getAsLong();
+            probe.write(data, chunkSize, parallelism);
+            long written = ticker.getAsLong();
+            probe.read(probeSize, chunkSize, parallelism);
+            long read = ticker.getAsLong();
+
+            pings[i] = pinged - start;
+            writes[i] = written - pinged;
+            reads[i] = read - written;
+
+        }
+
+        long rtt = Math.max(1L, median(pings));
+
+        // Each request thread issues its share of the requests one after another, and each of them costs a round trip.
+        long latency = rtt * ceilDiv(ceilDiv(probeSize, chunkSize), parallelism);
+
+        return derive(rtt, bandwidth(probeSize, median(reads), latency),
+                bandwidth(probeSize, median(writes), latency));
+
+    }
+
+    /**
+     * Derive the options from the measurements.
+     *
+     * @param rttNanos round trip time in nanoseconds
+     * @param readBandwidth read bandwidth in bytes per second
+     * @param writeBandwidth write bandwidth in bytes per second
+     * @return the result of tuning
+     * @since 1.0.0
+     */
+    static Result derive(long rttNanos, long readBandwidth, long writeBandwidth) {
+
+        long readBdp = bdp(readBandwidth, rttNanos);
+        long writeBdp = bdp(writeBandwidth, rttNanos);
+
+        int receive = bufferSize(readBdp);
+        int send = bufferSize(writeBdp);
+        int mpx = (int) Math.min(MAX_MPX_COUNT, Math.max(MIN_MPX_COUNT, Math.max(ceilDiv(2 * readBdp, receive),
+                ceilDiv(2 * writeBdp, send))));
+        int list = Math.min(receive, MAX_LIST_SIZE) - LIST_HEADER_SIZE;
+
+        List<JcifsngOption> options = List.of(new ClientReceiveBufferSize(receive), new ClientSendBufferSize(send),
+                new ClientTransactionBufferSize(receive), new ClientMaxMpxCount(mpx), new ClientListSize(list));
+
+        return new Result(Duration.ofNanos(rttNanos), readBandwidth, writeBandwidth, options);
+
+    }
+
+    private static long bandwidth(int size, long elapsedNanos, long latencyNanos) {
+
+        long transfer = Math.max(1L, elapsedNanos - latencyNanos);
+
+        return Math.max(1L, (long) (size * 1_000_000_000.0 / transfer));
+
+    }
+
+    private static long bdp(long bandwidth, long rttNanos) {
+        return (long) Math.min(Long.MAX_VALUE / 4, bandwidth * (rttNanos / 1_000_000_000.0));
+    }
+
+    private static int bufferSize(long bdp) {
+
+        if (bdp <= MIN_BUFFER_SIZE) {
+            return MIN_BUFFER_SIZE;
+        }
+
+        if (bdp >= MAX_BUFFER_SIZE) {
+            return MAX_BUFFER_SIZE;
+        }
+
+        return Integer.highestOneBit((int) bdp - 1) << 1;
+
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return (x + y - 1) / y;
+    }
+
+    private static long median(long[] values) {
+
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        return sorted[sorted.length / 2];
+
+    }
+
+    /**
+     * Probe to the target share.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public interface Probe extends Closeable {
+
+        /**
+         * Make a minimal round trip.
+         *
+         * @throws IOException if occurs I/O error
+         * @since 1.0.0
+         */
+        void ping() throws IOException;
+
+        /**
+         * Write the {@code data} to the probe file with the ranged requests of {@code chunkSize}, keeping up to
+         * {@code parallelism} of them outstanding.
+         *
+         * @param data the data
+         * @param chunkSize size of each request
+         * @param parallelism maximum number of the outstanding requests
+         * @throws IOException if occurs I/O error
+         * @since 1.0.0
+         */
+        void write(byte[] data, int chunkSize, int parallelism) throws IOException;
+
+        /**
+         * Read the {@code length} bytes from the probe file with the ranged requests of {@code chunkSize}, keeping up
+         * to {@code parallelism} of them outstanding.
+         *
+         * @param length the length to read
+         * @param chunkSize size of each request
+         * @param parallelism maximum number of the outstanding requests
+         * @throws IOException if occurs I/O error
+         * @since 1.0.0
+         */
+        void read(int length, int chunkSize, int parallelism) throws IOException;
+
+        /**
+         * Get the {@code Probe} to the SMB directory. It uses a temporary probe file in the directory, and the file is
+         * deleted when closing the probe.
+         *
+         * @param directoryUrl SMB URL of the writable directory. e.g. {@code smb://filer/share/dir/}
+         * @param context the JCIFS-NG context
+         * @return the {@code Probe}
+         * @throws NullPointerException if any argument is {@code null}
+         * @throws IOException if {@code directoryUrl} is malformed
+         * @since 1.0.0
+         */
+        static Probe of(String directoryUrl, CIFSContext context) throws IOException {
+            return new SmbProbe(Objects.requireNonNull(directoryUrl), Objects.requireNonNull(context));
+        }
+    }
+
+    private static final class SmbProbe implements Probe {
+
+        private final String directoryUrl;
+
+        private final CIFSContext context;
+
+        private final SmbFile file;
+
+        private final JcifsngRangeWriter writer;
+
+        private final JcifsngRangeReader reader;
+
+        SmbProbe(String directoryUrl, CIFSContext context) throws IOException {
+
+            this.directoryUrl = directoryUrl.endsWith("/") ? directoryUrl : directoryUrl + "/";
+            this.context = context;
+            this.file = new SmbFile(this.directoryUrl + ".k-vfs-probe-" + Long.toHexString(
+                    ThreadLocalRandom.current().nextLong()), context);
+            this.writer = JcifsngRangeWriter.of(file);
+            this.reader = JcifsngRangeReader.of(file);
+
+        }
+
+        @Override
+        public void ping() throws IOException {
+
+            try (SmbFile dir = new SmbFile(directoryUrl, context)) {
+                dir.exists();
+            }
+
+        }
+
+        @Override
+        public void write(byte[] data, int chunkSize, int parallelism) throws IOException {
+            pipeline(data.length, chunkSize, parallelism, (position, length) -> writer.write(position, data,
+                    (int) position, length));
+        }
+
+        @Override
+        public void read(int length, int chunkSize, int parallelism) throws IOException {
+
+            pipeline(length, chunkSize, parallelism, (position, len) -> {
+
+                if (reader.readFully(position, new byte[len], 0, len) < len) {
+                    throw new EOFException("Probe file is shorter than [%d].".formatted(length));
+                }
+
+            });
+
+        }
+
+        // Each worker issues the next request as soon as its previous one completes.
+        private static void pipeline(int length, int chunkSize, int parallelism, Request request) throws IOException {
+
+            int requests = (int) ceilDiv(length, chunkSize);
+            AtomicInteger next = new AtomicInteger();
+            List<CompletableFuture<Void>> workers = new ArrayList<>();
+
+            for (int w = 0; w < Math.min(parallelism, requests); w++) {
+                workers.add(CompletableFuture.runAsync(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        try {
+                            long position = (long) i * chunkSize;
+                            request.issue(position, (int) Math.min(chunkSize, length - position));
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    }
+                }, JcifsngIoExecutor.shared()));
+            }
+
+            try {
+                CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while probing.");
+            } catch (ExecutionException ex) {
+
+                Throwable cause = ex.getCause();
+
+                if (cause instanceof UncheckedIOException u) {
+                    throw u.getCause();
+                }
+
+                throw new IOException(cause);
+
+            }
+
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            // The handles are closed before the deletion, otherwise the server refuses it.
+            try (file) {
+
+                try {
+                    writer.close();
+                } finally {
+                    reader.close();
+                }
+
+                if (file.exists()) {
+                    file.delete();
+                }
+
+            }
+
+        }
+
+        @FunctionalInterface
+        private interface Request {
+
+            void issue(long position, int length) throws IOException;
+        }
+    }
+
+    /**
+     * Result of tuning.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is immutable and thread-safe.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static final class Result {
+
+        private final Duration roundTripTime;
+
+        private final long readBandwidth;
+
+        private final long writeBandwidth;
+
+        private final List<JcifsngOption> options;
+
+        private Result(Duration roundTripTime, long readBandwidth, long writeBandwidth, List<JcifsngOption> options) {
+            this.roundTripTime = roundTripTime;
+            this.readBandwidth = readBandwidth;
+            this.writeBandwidth = writeBandwidth;
+            this.options = options;
+        }
+
+        /**
+         * Get the measured round trip time.
+         *
+         * @return the round trip time
+         * @since 1.0.0
+         */
+        public Duration getRoundTripTime() {
+            return roundTripTime;
+        }
+
+        /**
+         * Get the measured read bandwidth.
+         *
+         * @return the read bandwidth in bytes per second
+         * @since 1.0.0
+         */
+        public long getReadBandwidth() {
+            return readBandwidth;
+        }
+
+        /**
+         * Get the measured write bandwidth.
+         *
+         * @return the write bandwidth in bytes per second
+         * @since 1.0.0
+         */
+        public long getWriteBandwidth() {
+            return writeBandwidth;
+        }
+
+        /**
+         * Get the derived options.
+         *
+         * @return unmodifiable derived options
+         * @since 1.0.0
+         */
+        public List<JcifsngOption> getOptions() {
+            return options;
+        }
+
+        /**
+         * Get the JSON object of the derived option name and value pairs.
+         *
+         * @return JSON object of the derived option name and value pairs
+         * @see JcifsngOptionPlan#compile(JsonObject)
+         * @since 1.0.0
+         */
+        public JsonObject toJson() {
+
+            JsonObjectBuilder builder = Json.createObjectBuilder();
+
+            for (JcifsngOption option : options) {
+                builder.add(option.getName(), option.getValue());
+            }
+
+            return builder.build();
+
+        }
+
+        /**
+         * Returns a string representation of this.
+         *
+         * @return string representation
+         * @since 1.0.0
+         */
+        @Override
+        public String toString() {
+            return "JcifsngAutoTuner.Result{rtt=%s, read=%d, write=%d, options=%s}"
+                    .formatted(roundTripTime, readBandwidth, writeBandwidth, toJson());
+        }
+    }
+}
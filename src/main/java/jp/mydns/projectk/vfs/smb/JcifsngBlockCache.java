@@ -0,0 +1,680 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Block cache of the random-access reads.
+ * <p>
+ * Readers of columnar and archive formats read the footer, the index and then the scattered pages, and each read is a
+ * round trip. This cache holds the fixed-size blocks of the files off-heap, keyed by the fingerprint of the options,
+ * the principal, the path, the file id and the block index, and evicts the least recently used block when the memory
+ * cap is reached. A block is invalidated if the modified time or the size of the file is changed, and is valid at most
+ * for {@link ClientAttributeCacheTimeout}, so the data is never older than the attributes that JCIFS-NG caches.
+ * <p>
+ * The files are partitioned to the stripes by the hash of the key, and each stripe has its own lock, its own LRU order
+ * and its own share of the memory cap, so the reads of the other files do not wait for each other. A block that is
+ * loaded by a reader wrapped before an invalidation of its file is not cached. {@link #clear()} releases the off-heap
+ * memory, and the caches shared by the options are bounded, the least recently used one is cleared and dropped.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see BlockCacheCapacity
+ * @see BlockCacheBlockSize
+ */
+public final class JcifsngBlockCache {
+
+    /**
+     * Default number of the stripes.
+     *
+     * @since 1.0.0
+     */
+    static final int DEFAULT_STRIPES = 16;
+
+    /**
+     * Maximum number of the caches shared by the options.
+     *
+     * @since 1.0.0
+     */
+    static final int MAX_SHARED = 8;
+
+    // Guarded by itself. The eldest cache is cleared so its memory is released once its readers are closed.
+    private static final Map<String, JcifsngBlockCache> SHARED = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JcifsngBlockCache> eldest) {
+
+            if (size() <= MAX_SHARED) {
+                return false;
+            }
+
+            eldest.getValue().clear();
+
+            return true;
+
+        }
+    };
+
+    private final int blockSize;
+
+    private final long ttlMillis;
+
+    private final Clock clock;
+
+    private final Stripe[] stripes;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity memory cap in bytes
+     * @param blockSize size of a block in bytes
+     * @param stripes number of the stripes. It must be a power of two, and is reduced so that each stripe holds at
+     * least one block.
+     * @param ttl maximum time that a block is valid
+     * @throws NullPointerException if {@code ttl} is {@code null}
+     * @throws IllegalArgumentException if {@code blockSize} is not positive, if {@code capacity} is smaller than
+     * {@code blockSize}, or if {@code stripes} is not a positive power of two
+     * @since 1.0.0
+     */
+    public JcifsngBlockCache(long capacity, int blockSize, int stripes, Duration ttl) {
+        this(capacity, blockSize, stripes, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity memory cap in bytes
+     * @param blockSize size of a block in bytes
+     * @param stripes number of the stripes. It must be a power of two, and is reduced so that each stripe holds at
+     * least one block.
+     * @param ttl maximum time that a block is valid
+     * @param clock the clock
+     * @throws NullPointerException if {@code ttl} or {@code clock} is {@code null}
+     * @throws IllegalArgumentException if {@code blockSize} is not positive, if {@code capacity} is smaller than
+     * {@code blockSize}, or if {@code stripes} is not a positive power of two
+     * @since 1.0.0
+     */
+    JcifsngBlockCache(long capacity, int blockSize, int stripes, Duration ttl, Clock clock) {
+
+        if (blockSize < 1 || capacity < blockSize) {
+            throw new IllegalArgumentException("Capacity must hold at least one block.");
+        }
+
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a power of two.");
+        }
+
+        int maxBlocks = (int) Math.min(Integer.MAX_VALUE, capacity / blockSize);
+        int count = Math.min(stripes, Integer.highestOneBit(maxBlocks));
+
+        this.blockSize = blockSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = Objects.requireNonNull(clock);
+        this.stripes = new Stripe[count];
+
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(maxBlocks / count);
+        }
+
+    }
+
+    /**
+     * Get the reader of the SMB file that reads through the block cache configured by the options of {@code opts}.
+     * The caches are shared by the options of the same capacity, block size and {@link ClientAttributeCacheTimeout},
+     * up to {@value #MAX_SHARED} caches. If {@link BlockCacheCapacity} is not set or zero, the reader does not cache.
+     *
+     * @param file the SMB file. It is closed when the reader is closed.
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the {@code JcifsngRangeReader}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@link BlockCacheBlockSize} is not positive, or if
+     * {@link BlockCacheCapacity} is smaller than {@link BlockCacheBlockSize}
+     * @throws IOException if cannot get the attributes of the file
+     * @since 1.0.0
+     */
+    public static JcifsngRangeReader reader(SmbFile file, FileSystemOptions opts) throws IOException {
+
+        Objects.requireNonNull(file);
+
+        Map<String, String> props = JcifsngModuleProperties.of(opts);
+        long capacity = JcifsngModuleProperties.getLong(props, BlockCacheCapacity.NAME, 0L);
+
+        if (capacity <= 0) {
+            return JcifsngRangeReader.of(file);
+        }
+
+        int blockSize = JcifsngModuleProperties.getPositiveInt(props, BlockCacheBlockSize.NAME,
+                BlockCacheBlockSize.DEFAULT);
+        Duration ttl = Duration.ofMillis(file.getContext().getConfig().getAttributeCacheTimeout());
+
+        JcifsngBlockCache cache = shared("%d/%d/%s".formatted(capacity, blockSize, ttl),
+                () -> new JcifsngBlockCache(capacity, blockSize, DEFAULT_STRIPES, ttl));
+
+        String fileKey = "%s %s %s %d".formatted(JcifsngOptionFingerprint.of(props),
+                JcifsngCredentialContext.principalKey(file.getContext()), file.getCanonicalPath(), file.fileIndex());
+
+        return cache.wrap(fileKey, file.lastModified(), file.length(), JcifsngRangeReader.of(file));
+
+    }
+
+    /**
+     * Get the shared cache of the key. If the number of the shared caches exceeds {@value #MAX_SHARED}, the least
+     * recently used one is cleared and dropped.
+     *
+     * @param key key of the configuration
+     * @param factory the factory of the cache if absent
+     * @return the shared cache
+     * @since 1.0.0
+     */
+    static JcifsngBlockCache shared(String key, Supplier<JcifsngBlockCache> factory) {
+
+        synchronized (SHARED) {
+            return SHARED.computeIfAbsent(key, k -> factory.get());
+        }
+
+    }
+
+    /**
+     * Wrap the reader of a file to read through this cache. If the modified time or the size is changed from the
+     * last wrapped, the cached blocks of the file are invalidated.
+     *
+     * @param fileKey key of the file
+     * @param lastModified modified time of the file
+     * @param size size of the file
+     * @param delegate the reader of the file. It is closed when the returned reader is closed.
+     * @return the {@code JcifsngRangeReader}
+     * @since 1.0.0
+     */
+    JcifsngRangeReader wrap(String fileKey, long lastModified, long size, JcifsngRangeReader delegate) {
+
+        Stripe stripe = stripe(fileKey);
+
+        stripe.lock.lock();
+
+        try {
+
+            FileEntry entry = stripe.files.get(fileKey);
+
+            if (entry != null && (entry.lastModified != lastModified || entry.size != size)) {
+                stripe.invalidate(fileKey, sequence.incrementAndGet());
+                entry = null;
+            }
+
+            if (entry == null) {
+                entry = new FileEntry(lastModified, size, sequence.get());
+                stripe.files.put(fileKey, entry);
+            }
+
+            return new CachedReader(fileKey, lastModified, size, entry.generation, delegate);
+
+        } finally {
+            stripe.lock.unlock();
+        }
+
+    }
+
+    /**
+     * Invalidate all cached blocks of the file. The blocks that are loaded by the readers wrapped before are not
+     * cached.
+     *
+     * @param fileKey key of the file
+     * @since 1.0.0
+     */
+    void invalidate(String fileKey) {
+
+        Stripe stripe = stripe(fileKey);
+
+        stripe.lock.lock();
+
+        try {
+            stripe.invalidate(fileKey, sequence.incrementAndGet());
+        } finally {
+            stripe.lock.unlock();
+        }
+
+    }
+
+    /**
+     * Invalidate all cached blocks, and release the off-heap memory.
+     *
+     * @since 1.0.0
+     */
+    public void clear() {
+
+        for (Stripe stripe : stripes) {
+
+            stripe.lock.lock();
+
+            try {
+
+                stripe.invalidatedAt = sequence.incrementAndGet();
+                stripe.blocks.clear();
+                stripe.files.clear();
+                stripe.free.clear();
+                stripe.allocated = 0;
+
+            } finally {
+                stripe.lock.unlock();
+            }
+
+        }
+
+    }
+
+    /**
+     * Get the number of the reads served from this cache.
+     *
+     * @return number of the hits
+     * @since 1.0.0
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of the reads that loaded a block from the server.
+     *
+     * @return number of the misses
+     * @since 1.0.0
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of the blocks evicted by the memory cap.
+     *
+     * @return number of the evictions
+     * @since 1.0.0
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of bytes of the off-heap memory held by this cache.
+     *
+     * @return number of bytes allocated
+     * @since 1.0.0
+     */
+    public long getAllocatedBytes() {
+
+        long allocated = 0;
+
+        for (Stripe stripe : stripes) {
+
+            stripe.lock.lock();
+
+            try {
+                allocated += stripe.allocated;
+            } finally {
+                stripe.lock.unlock();
+            }
+
+        }
+
+        return allocated * blockSize;
+
+    }
+
+    private int copyOut(BlockKey key, int offset, byte[] b, int off, int len) {
+
+        Stripe stripe = stripe(key.file);
+
+        stripe.lock.lock();
+
+        try {
+
+            Block block = stripe.blocks.get(key);
+
+            if (block == null) {
+                return -1;
+            }
+
+            if (clock.millis() - block.loadedAt >= ttlMillis) {
+                stripe.free.push(stripe.detach(key));
+                return -1;
+            }
+
+            int n = Math.min(len, block.length - offset);
+
+            block.buffer.get(offset, b, off, n);
+
+            return n;
+
+        } finally {
+            stripe.lock.unlock();
+        }
+
+    }
+
+    private void put(BlockKey key, long generation, byte[] data) {
+
+        Stripe stripe = stripe(key.file);
+
+        stripe.lock.lock();
+
+        try {
+
+            FileEntry entry = stripe.files.get(key.file);
+
+            // An entry of another generation, or no entry after an invalidation, means that the file was invalidated
+            // while the block was loaded.
+            if (entry == null) {
+
+                if (stripe.invalidatedAt > generation) {
+                    return;
+                }
+
+                entry = new FileEntry(key.lastModified, key.size, generation);
+                stripe.files.put(key.file, entry);
+
+            }
+
+            if (entry.generation != generation || entry.lastModified != key.lastModified || entry.size != key.size
+                    || stripe.blocks.containsKey(key)) {
+                return;
+            }
+
+            ByteBuffer buffer = stripe.allocate();
+
+            buffer.put(0, data, 0, data.length);
+            stripe.blocks.put(key, new Block(buffer, data.length, clock.millis()));
+            entry.blocks++;
+
+        } finally {
+            stripe.lock.unlock();
+        }
+
+    }
+
+    private Stripe stripe(String fileKey) {
+
+        int h = fileKey.hashCode();
+
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+
+    }
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final LinkedHashMap<BlockKey, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final Map<String, FileEntry> files = new HashMap<>();
+
+        private final Deque<ByteBuffer> free = new ArrayDeque<>();
+
+        private final int maxBlocks;
+
+        private int allocated;
+
+        // The sequence of the latest invalidation of a file of this stripe.
+        private long invalidatedAt;
+
+        private Stripe(int maxBlocks) {
+            this.maxBlocks = maxBlocks;
+        }
+
+        private void invalidate(String fileKey, long sequence) {
+
+            for (Iterator<Map.Entry<BlockKey, Block>> it = blocks.entrySet().iterator(); it.hasNext();) {
+
+                Map.Entry<BlockKey, Block> e = it.next();
+
+                if (e.getKey().file.equals(fileKey)) {
+                    it.remove();
+                    free.push(e.getValue().buffer);
+                }
+
+            }
+
+            files.remove(fileKey);
+            invalidatedAt = sequence;
+
+        }
+
+        private ByteBuffer allocate() {
+
+            ByteBuffer buffer = free.poll();
+
+            if (buffer != null) {
+                return buffer;
+            }
+
+            if (allocated < maxBlocks) {
+                allocated++;
+                return ByteBuffer.allocateDirect(blockSize);
+            }
+
+            BlockKey eldest = blocks.keySet().iterator().next();
+
+            evictions.increment();
+
+            return detach(eldest);
+
+        }
+
+        private ByteBuffer detach(BlockKey key) {
+
+            Block block = blocks.remove(key);
+            FileEntry entry = files.get(key.file);
+
+            if (entry != null && --entry.blocks == 0) {
+                files.remove(key.file);
+            }
+
+            return block.buffer;
+
+        }
+    }
+
+    private static final class BlockKey {
+
+        private final String file;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private final long index;
+
+        private BlockKey(String file, long lastModified, long size, long index) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.index = index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(file, lastModified, size, index);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || other instanceof BlockKey o && index == o.index && size == o.size
+                    && lastModified == o.lastModified && file.equals(o.file);
+        }
+    }
+
+    private static final class Block {
+
+        private final ByteBuffer buffer;
+
+        private final int length;
+
+        private final long loadedAt;
+
+        private Block(ByteBuffer buffer, int length, long loadedAt) {
+            this.buffer = buffer;
+            this.length = length;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class FileEntry {
+
+        private final long lastModified;
+
+        private final long size;
+
+        // The invalidation sequence when the entry was created. The readers of the entry cache only in it.
+        private final long generation;
+
+        private int blocks;
+
+        private FileEntry(long lastModified, long size, long generation) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.generation = generation;
+        }
+    }
+
+    private final class CachedReader implements JcifsngRangeReader {
+
+        private final String fileKey;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private final long generation;
+
+        private final JcifsngRangeReader delegate;
+
+        private CachedReader(String fileKey, long lastModified, long size, long generation,
+                JcifsngRangeReader delegate) {
+            this.fileKey = fileKey;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.generation = generation;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public int read(long position, byte[] b, int off, int len) throws IOException {
+
+            Objects.checkFromIndexSize(off, len, b.length);
+
+            if (position >= size) {
+                return -1;
+            }
+
+            int total = 0;
+
+            while (total < len && position + total < size) {
+
+                long p = position + total;
+                BlockKey key = new BlockKey(fileKey, lastModified, size, p / blockSize);
+                int offset = (int) (p % blockSize);
+                int n = copyOut(key, offset, b, off + total, len - total);
+
+                if (n >= 0) {
+                    hits.increment();
+                } else {
+
+                    misses.increment();
+
+                    byte[] data = load(key.index);
+
+                    if (data.length <= offset) {
+                        break;
+                    }
+
+                    n = Math.min(len - total, data.length - offset);
+                    System.arraycopy(data, offset, b, off + total, n);
+
+                }
+
+                total += n;
+
+            }
+
+            return total == 0 ? -1 : total;
+
+        }
+
+        private byte[] load(long index) throws IOException {
+
+            long start = index * blockSize;
+            byte[] data = new byte[(int) Math.min(blockSize, size - start)];
+            int n = delegate.readFully(start, data, 0, data.length);
+
+            if (n < data.length) {
+                invalidate(fileKey);
+                return Arrays.copyOf(data, Math.max(0, n));
+            }
+
+            put(new BlockKey(fileKey, lastModified, size, index), generation, data);
+
+            return data;
+
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
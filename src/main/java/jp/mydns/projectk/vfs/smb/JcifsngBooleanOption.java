@@ -46,6 +46,8 @@ public abstract class JcifsngBooleanOption extends JcifsngOption {
 
     protected final boolean value;
 
+    private final int hash;
+
     /**
      * Constructor.
      *
@@ -54,6 +56,7 @@ public abstract class JcifsngBooleanOption extends JcifsngOption {
      */
     protected JcifsngBooleanOption(boolean value) {
         this.value = value;
+        this.hash = hash(getClass(), Boolean.hashCode(value));
     }
 
     /**
@@ -75,4 +78,28 @@ public abstract class JcifsngBooleanOption extends JcifsngOption {
     public JsonValue getValue() {
         return value ? JsonValue.TRUE : JsonValue.FALSE;
     }
+
+    /**
+     * Returns a hash code value. It is computed at construction.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Indicates that other object is equal to this one. It is equal if it is the same class and has the same value.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof JcifsngBooleanOption o && getClass() == o.getClass()
+                && value == o.value;
+    }
 }
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import jcifs.FileNotifyInformation;
+import jcifs.SmbWatchHandle;
+import jcifs.smb.SmbFile;
+
+/**
+ * Watcher of the directories that invalidates the {@link JcifsngMetadataCache} on the change notifications.
+ * <p>
+ * Each watch keeps a change notify request outstanding on a thread of the executor. The server buffers the changes
+ * between the responses up to {@link ClientNotifyBufferSize} of the context, and each notified file is invalidated
+ * precisely together with its parent directory. So the entries under a watched directory can be valid for the long
+ * {@link MetadataCacheWatchedTtl}. The server starts buffering only when the first notify request is registered, which
+ * JCIFS-NG does not report, so the long TTL applies after the server answered the first notification. Until then, the
+ * entries keep the TTL of the share. If the buffer overflows, the server reports that the changes are lost, then all
+ * the entries under the directory are invalidated and revalidated by the lookups. If the watch is closed or broken,
+ * the entries under the directory fall back to the TTL of the share, unless another watch of the directory is active.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see MetadataCacheWatchedTtl
+ */
+public final class JcifsngChangeWatcher {
+
+    private static final int COMPLETION_FILTER = FileNotifyInformation.FILE_NOTIFY_CHANGE_NAME
+            | FileNotifyInformation.FILE_NOTIFY_CHANGE_ATTRIBUTES | FileNotifyInformation.FILE_NOTIFY_CHANGE_SIZE
+            | FileNotifyInformation.FILE_NOTIFY_CHANGE_LAST_WRITE | FileNotifyInformation.FILE_NOTIFY_CHANGE_CREATION;
+
+    private final JcifsngMetadataCache cache;
+
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param cache the cache to invalidate
+     * @param executor the executor that runs the watches. A watch occupies a thread until it is closed.
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    public JcifsngChangeWatcher(JcifsngMetadataCache cache, Executor executor) {
+        this.cache = Objects.requireNonNull(cache);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Get the watcher of the {@code cache} that runs the watches on the shared executor.
+     *
+     * @param cache the cache to invalidate
+     * @return the {@code JcifsngChangeWatcher}
+     * @throws NullPointerException if {@code cache} is {@code null}
+     * @since 1.0.0
+     */
+    public static JcifsngChangeWatcher of(JcifsngMetadataCache cache) {
+        return new JcifsngChangeWatcher(cache, JcifsngIoExecutor.shared());
+    }
+
+    /**
+     * Watch the directory.
+     *
+     * @param dir the directory
+     * @param recursive whether the subdirectories are watched too
+     * @return the watch. It must be closed.
+     * @throws NullPointerException if {@code dir} is {@code null}
+     * @throws IOException if cannot open the directory to watch
+     * @since 1.0.0
+     */
+    public Watch watch(SmbFile dir, boolean recursive) throws IOException {
+
+        SmbWatchHandle handle = dir.watch(COMPLETION_FILTER, recursive);
+
+        return watch(JcifsngMetadataCache.pathKey(dir), recursive, new Source() {
+            @Override
+            public List<FileNotifyInformation> next() throws IOException {
+                return handle.watch();
+            }
+
+            @Override
+            public void close() throws IOException {
+                handle.close();
+            }
+        });
+
+    }
+
+    /**
+     * Watch the directory with the {@code source} of the notifications.
+     *
+     * @param dir key of the directory
+     * @param recursive whether the subdirectories are watched too
+     * @param source the source of the notifications
+     * @return the watch
+     * @since 1.0.0
+     */
+    Watch watch(String dir, boolean recursive, Source source) {
+
+        Watch watch = new Watch(dir, recursive, Objects.requireNonNull(source));
+
+        try {
+            executor.execute(watch::run);
+        } catch (RuntimeException ex) {
+            watch.finish();
+            throw ex;
+        }
+
+        return watch;
+
+    }
+
+    /**
+     * Source of the change notifications.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    interface Source extends AutoCloseable {
+
+        /**
+         * Wait for the next changes.
+         *
+         * @return the changes. It is empty if the changes overflowed the buffer, and {@code null} if cancelled.
+         * @throws IOException if the watch is broken
+         * @since 1.0.0
+         */
+        List<FileNotifyInformation> next() throws IOException;
+
+        /**
+         * Cancel the watch.
+         *
+         * @throws IOException if cannot cancel
+         * @since 1.0.0
+         */
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Watch of a directory.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is thread-safe.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public final class Watch implements AutoCloseable {
+
+        private final String dir;
+
+        private final boolean recursive;
+
+        private final Source source;
+
+        private final LongAdder notifications = new LongAdder();
+
+        private final LongAdder overflows = new LongAdder();
+
+        private volatile boolean closed;
+
+        private volatile boolean active = true;
+
+        // Written only by the thread of the watch, after it is started.
+        private volatile boolean confirmed;
+
+        private volatile Exception failure;
+
+        private Watch(String dir, boolean recursive, Source source) {
+            this.dir = dir;
+            this.recursive = recursive;
+            this.source = source;
+        }
+
+        private void run() {
+
+            try {
+
+                while (!closed) {
+
+                    List<FileNotifyInformation> changes = source.next();
+
+                    if (closed || changes == null) {
+                        break;
+                    }
+
+                    // A response proves that a notify request was registered, and the server buffers the changes after.
+                    if (!confirmed) {
+                        cache.markWatched(dir, recursive);
+                        confirmed = true;
+                    }
+
+                    if (changes.isEmpty()) {
+                        cache.invalidateTree(dir);
+                        overflows.increment();
+                        continue;
+                    }
+
+                    changes.forEach(this::invalidate);
+
+                }
+
+            } catch (IOException | RuntimeException ex) {
+
+                if (!closed) {
+                    failure = ex;
+                }
+
+            } finally {
+                finish();
+            }
+
+        }
+
+        private void invalidate(FileNotifyInformation change) {
+
+            String path = dir + "/" + change.getFileName().replace('\\', '/').toLowerCase(Locale.ROOT);
+
+            int action = change.getAction();
+
+            if (action == FileNotifyInformation.FILE_ACTION_REMOVED
+                    || action == FileNotifyInformation.FILE_ACTION_RENAMED_OLD_NAME
+                    || action == FileNotifyInformation.FILE_ACTION_REMOVED_BY_DELETE) {
+                // A removed directory takes its files with it.
+                cache.invalidateTree(path);
+            } else {
+                cache.invalidate(path);
+            }
+
+            // The modified time of the parent directory changes too.
+            cache.invalidate(path.substring(0, path.lastIndexOf('/')));
+
+            notifications.increment();
+
+        }
+
+        private void finish() {
+
+            try {
+                source.close();
+            } catch (IOException | RuntimeException ignore) {
+                // The watch is over anyway.
+            }
+
+            if (confirmed) {
+                cache.unmarkWatched(dir, recursive);
+            }
+
+            active = false;
+
+        }
+
+        /**
+         * Whether the watch is active.
+         *
+         * @return {@code true} if the notifications are processed
+         * @since 1.0.0
+         */
+        public boolean isActive() {
+            return active;
+        }
+
+        /**
+         * Whether the server answered a notification of the watch. After it, the entries under the directory are
+         * valid for {@link MetadataCacheWatchedTtl} while the watch is active.
+         *
+         * @return {@code true} if confirmed
+         * @since 1.0.0
+         */
+        public boolean isConfirmed() {
+            return confirmed;
+        }
+
+        /**
+         * Get the failure that broke the watch.
+         *
+         * @return the failure. It is empty if the watch is active or closed.
+         * @since 1.0.0
+         */
+        public Optional<Exception> getFailure() {
+            return Optional.ofNullable(failure);
+        }
+
+        /**
+         * Get the number of the processed notifications.
+         *
+         * @return number of the notifications
+         * @since 1.0.0
+         */
+        public long getNotifications() {
+            return notifications.sum();
+        }
+
+        /**
+         * Get the number of the overflows of the notify buffer.
+         *
+         * @return number of the overflows
+         * @since 1.0.0
+         */
+        public long getOverflows() {
+            return overflows.sum();
+        }
+
+        /**
+         * Stop the watch. The entries under the directory fall back to the TTL of the share.
+         *
+         * @throws IOException if cannot cancel the outstanding notify request
+         * @since 1.0.0
+         */
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import jcifs.CIFSContext;
+import jp.mydns.projectk.vfs.provider.jcifsng.SmbFileSystem;
+import jp.mydns.projectk.vfs.provider.jcifsng.SmbFileSystemConfigBuilder;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Staging area of the JCIFS-NG configuration properties held in the {@link FileSystemOptions}.
+ * <p>
+ * Each {@link JcifsngOption} contributes its property to the staged properties, and the {@link CIFSContext} is built
+ * from all staged properties at once on first use. So the options applied before are not lost by the options applied
+ * after.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class JcifsngConfigBuilder extends FileSystemConfigBuilder {
+
+    private static final JcifsngConfigBuilder INSTANCE = new JcifsngConfigBuilder();
+
+    private static final String STAGED_PROPERTIES = JcifsngConfigBuilder.class.getName() + ".STAGED_PROPERTIES";
+
+    private JcifsngConfigBuilder() {
+    }
+
+    /**
+     * Get the singleton instance.
+     *
+     * @return the singleton instance
+     * @since 1.0.0
+     */
+    static JcifsngConfigBuilder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the staged JCIFS-NG properties.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @return unmodifiable staged properties sorted by name. It is empty if nothing staged.
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @since 1.0.0
+     */
+    SortedMap<String, String> getStagedProperties(FileSystemOptions opts) {
+
+        SortedMap<String, String> staged = getParam(Objects.requireNonNull(opts), STAGED_PROPERTIES);
+
+        return staged != null ? staged : Collections.emptySortedMap();
+
+    }
+
+    /**
+     * Stage the JCIFS-NG property. The property of the same name that already staged is overwritten.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @param name JCIFS-NG property name
+     * @param value JCIFS-NG property value
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    void stage(FileSystemOptions opts, String name, String value) {
+
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(value);
+
+        SortedMap<String, String> staged = new TreeMap<>(getStagedProperties(opts));
+        staged.put(name, value);
+
+        setParam(opts, STAGED_PROPERTIES, Collections.unmodifiableSortedMap(staged));
+
+    }
+
+    /**
+     * Stage all JCIFS-NG properties. The properties of the same name that already staged are overwritten.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @param props JCIFS-NG properties. It may be held as is, so it must not be modified after.
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    void stageAll(FileSystemOptions opts, SortedMap<String, String> props) {
+
+        SortedMap<String, String> staged = getStagedProperties(opts);
+
+        if (staged.isEmpty()) {
+            setParam(opts, STAGED_PROPERTIES, Collections.unmodifiableSortedMap(props));
+            return;
+        }
+
+        staged = new TreeMap<>(staged);
+        staged.putAll(props);
+
+        setParam(opts, STAGED_PROPERTIES, Collections.unmodifiableSortedMap(staged));
+
+    }
+
+    /**
+     * Set the {@link CIFSContext} of all staged properties to the {@code opts}. The context is materialized on first
+     * use, and is shared with the other {@code FileSystemOptions} that staged the equal properties.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @return the {@code CIFSContext} that not yet materialized
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @see DeferredJcifsngContext
+     * @see JcifsngContextCache
+     * @since 1.0.0
+     */
+    CIFSContext prepare(FileSystemOptions opts) {
+
+        CIFSContext jcifsContext = new DeferredJcifsngContext(getStagedProperties(opts));
+
+        SmbFileSystemConfigBuilder.getInstance().setCIFSContext(opts, jcifsContext);
+
+        return jcifsContext;
+
+    }
+
+    /**
+     * Get the JCIFS-NG context of {@code opts}. It is prepared if not yet.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @return the JCIFS-NG context
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @since 1.0.0
+     */
+    CIFSContext getOrPrepare(FileSystemOptions opts) {
+
+        CIFSContext jcifsContext = SmbFileSystemConfigBuilder.getInstance()
+                .getCIFSContext(Objects.requireNonNull(opts));
+
+        return jcifsContext != null ? jcifsContext : prepare(opts);
+
+    }
+
+    /**
+     * Convert to the {@link Properties}.
+     *
+     * @param values property values
+     * @return the {@code Properties}
+     * @since 1.0.0
+     */
+    static Properties toProperties(Map<String, String> values) {
+
+        Properties props = new Properties();
+        props.putAll(values);
+
+        return props;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    protected Class<? extends FileSystem> getConfigClass() {
+        return SmbFileSystem.class;
+    }
+}
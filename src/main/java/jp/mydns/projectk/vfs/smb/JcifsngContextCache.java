@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.lang.ref.Cleaner;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import jcifs.CIFSContext;
+import jcifs.CIFSException;
+import jcifs.config.PropertyConfiguration;
+import jcifs.context.BaseContext;
+import jcifs.context.CIFSContextWrapper;
+import org.apache.commons.vfs2.FileSystemException;
+
+/**
+ * Process-wide cache of the JCIFS-NG contexts. The contexts are shared among the equal sets of JCIFS-NG properties, so
+ * that they also share the transport pool and the sessions.
+ * <p>
+ * The cached context is keyed by the sorted JCIFS-NG properties, and is counted up the references for each
+ * {@link Lease}. The lease hands out a wrapper of the context, and the contexts derived from the wrapper, such as by
+ * {@code withCredentials}, are the wrappers too. The lease is released explicitly, or when none of the wrappers is
+ * reachable, including through the {@code SmbFile}s that hold them. The context that no longer referenced is closed and
+ * evicted after the idle timeout, which is checked on a schedule too, so it does not wait for the next lease.
+ * <p>
+ * A context is built outside the lock of this cache, so building a context does not block the leases of the other
+ * contexts. The concurrent leases of the same properties wait for the single build.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class JcifsngContextCache {
+
+    private static final JcifsngContextCache INSTANCE
+            = new JcifsngContextCache(Duration.ofMinutes(5), System::nanoTime);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    static {
+        JcifsngIoExecutor.scheduler().scheduleWithFixedDelay(INSTANCE::evictExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    private final Map<SortedMap<String, String>, Entry> entries = new HashMap<>();
+
+    private final long idleTimeoutNanos;
+
+    private final LongSupplier ticker;
+
+    private final Builder builder;
+
+    /**
+     * Constructor.
+     *
+     * @param idleTimeout time to keep the context that no longer referenced
+     * @param ticker source of the current time in nanoseconds
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    JcifsngContextCache(Duration idleTimeout, LongSupplier ticker) {
+        this(idleTimeout, ticker, JcifsngContextCache::build);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param idleTimeout time to keep the context that no longer referenced
+     * @param ticker source of the current time in nanoseconds
+     * @param builder the builder of the context
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    JcifsngContextCache(Duration idleTimeout, LongSupplier ticker, Builder builder) {
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.ticker = Objects.requireNonNull(ticker);
+        this.builder = Objects.requireNonNull(builder);
+    }
+
+    /**
+     * Get the process-wide instance.
+     *
+     * @return the process-wide instance
+     * @since 1.0.0
+     */
+    static JcifsngContextCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Acquire the context built from {@code props}. The cached context is returned if exists, otherwise it is built.
+     *
+     * @param props JCIFS-NG properties
+     * @return the lease of the context
+     * @throws NullPointerException if {@code props} is {@code null}
+     * @throws FileSystemException if cannot build the context
+     * @since 1.0.0
+     */
+    Lease acquire(Map<String, String> props) throws FileSystemException {
+
+        SortedMap<String, String> key = Collections.unmodifiableSortedMap(new TreeMap<>(props));
+
+        final Entry entry;
+        final boolean building;
+        final List<CIFSContext> evicted;
+
+        synchronized (this) {
+
+            evicted = evictIdle();
+
+            Entry cached = entries.get(key);
+            building = cached == null;
+
+            if (building) {
+                cached = new Entry();
+                entries.put(key, cached);
+            }
+
+            cached.references++;
+            entry = cached;
+
+        }
+
+        closeAll(evicted);
+
+        if (building) {
+            try {
+                entry.context.complete(builder.build(key));
+            } catch (FileSystemException | RuntimeException ex) {
+
+                // The failed entry is dropped, so the next lease builds again.
+                synchronized (this) {
+                    entries.remove(key, entry);
+                }
+
+                entry.context.completeExceptionally(ex);
+
+            }
+        }
+
+        final CIFSContext context;
+
+        try {
+            context = entry.context.join();
+        } catch (CompletionException ex) {
+
+            if (ex.getCause() instanceof FileSystemException fse) {
+                throw fse;
+            }
+
+            throw new FileSystemException(ex.getCause());
+
+        }
+
+        // The wrappers share the anchor, so the lease is released only when all of them are unreachable.
+        Object anchor = new Object();
+
+        return new Lease(new LeasedContext(context, anchor), CLEANER.register(anchor, new Release(this, key)));
+
+    }
+
+    /**
+     * Release the reference of the context.
+     *
+     * @param key key of the context
+     * @since 1.0.0
+     */
+    void release(SortedMap<String, String> key) {
+
+        final List<CIFSContext> evicted;
+
+        synchronized (this) {
+
+            Entry entry = entries.get(key);
+
+            if (entry != null && --entry.references == 0) {
+                entry.idleSince = ticker.getAsLong();
+            }
+
+            evicted = evictIdle();
+
+        }
+
+        closeAll(evicted);
+
+    }
+
+    /**
+     * Close and evict the contexts that no longer referenced for the idle timeout.
+     *
+     * @since 1.0.0
+     */
+    void evictExpired() {
+
+        final List<CIFSContext> evicted;
+
+        synchronized (this) {
+            evicted = evictIdle();
+        }
+
+        closeAll(evicted);
+
+    }
+
+    /**
+     * Get the number of cached contexts.
+     *
+     * @return the number of cached contexts
+     * @since 1.0.0
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private List<CIFSContext> evictIdle() {
+
+        List<CIFSContext> evicted = new ArrayList<>();
+        long now = ticker.getAsLong();
+
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+
+            Entry entry = it.next();
+
+            if (entry.references == 0 && now - entry.idleSince >= idleTimeoutNanos) {
+                // An unreferenced entry has finished building.
+                evicted.add(entry.context.join());
+                it.remove();
+            }
+
+        }
+
+        return evicted;
+
+    }
+
+    private static CIFSContext build(Map<String, String> props) throws FileSystemException {
+
+        try {
+            return new BaseContext(new PropertyConfiguration(JcifsngConfigBuilder.toProperties(props)));
+        } catch (CIFSException ex) {
+            throw new FileSystemException(ex);
+        }
+
+    }
+
+    private static void closeAll(List<CIFSContext> contexts) {
+
+        for (CIFSContext context : contexts) {
+
+            try {
+                context.close();
+            } catch (CIFSException ignore) {
+                // The context is discarded anyway.
+            }
+
+        }
+
+    }
+
+    /**
+     * Builder of the context.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    interface Builder {
+
+        /**
+         * Build the context.
+         *
+         * @param props JCIFS-NG properties
+         * @return the context
+         * @throws FileSystemException if cannot build the context
+         * @since 1.0.0
+         */
+        CIFSContext build(Map<String, String> props) throws FileSystemException;
+    }
+
+    private static final class Entry {
+
+        final CompletableFuture<CIFSContext> context = new CompletableFuture<>();
+
+        int references;
+
+        long idleSince;
+    }
+
+    private static final class Release implements Runnable {
+
+        private final JcifsngContextCache cache;
+
+        private final SortedMap<String, String> key;
+
+        Release(JcifsngContextCache cache, SortedMap<String, String> key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            cache.release(key);
+        }
+    }
+
+    /**
+     * Wrapper of the cached context that keeps the lease. It is not closed by the users, because the context is shared.
+     */
+    private static final class LeasedContext extends CIFSContextWrapper {
+
+        private final Object anchor;
+
+        private LeasedContext(CIFSContext context, Object anchor) {
+            super(context);
+            this.anchor = anchor;
+        }
+
+        @Override
+        protected CIFSContext wrap(CIFSContext newContext) {
+            return new LeasedContext(newContext, anchor);
+        }
+
+        @Override
+        public boolean close() {
+            return false;
+        }
+    }
+
+    /**
+     * Lease of the cached context.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is thread-safe.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    static final class Lease implements AutoCloseable {
+
+        private final CIFSContext context;
+
+        private final Cleaner.Cleanable cleanable;
+
+        private Lease(CIFSContext context, Cleaner.Cleanable cleanable) {
+            this.context = context;
+            this.cleanable = cleanable;
+        }
+
+        /**
+         * Get the leased context. The lease is kept while it or any context derived from it is reachable.
+         *
+         * @return the leased context
+         * @since 1.0.0
+         */
+        CIFSContext getContext() {
+            return context;
+        }
+
+        /**
+         * Release this lease. Nothing happens if already released.
+         *
+         * @since 1.0.0
+         */
+        @Override
+        public void close() {
+            cleanable.clean();
+        }
+    }
+}
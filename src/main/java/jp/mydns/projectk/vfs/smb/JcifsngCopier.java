@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import jcifs.CIFSContext;
+import jcifs.Configuration;
+import jcifs.SmbTreeHandle;
+import jcifs.config.DelegatingConfiguration;
+import jcifs.context.CIFSContextWrapper;
+import jcifs.smb.SmbAuthException;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Copier of a file that prefers the server-side copy.
+ * <p>
+ * If the source and the target are on the same share over SMB2 or later, the copy is left to JCIFS-NG, which asks the
+ * server to copy with the copy chunk requests. Otherwise, or if that copy fails, the data is copied by the pipelined
+ * parallel ranged reads and writes. The {@link Result} reports which route was taken.
+ * <p>
+ * The copy by JCIFS-NG runs on a context that reports the failures of the copy, even if
+ * {@link ClientIgnoreCopyToExceptions} lets JCIFS-NG swallow them, and it is checked by the size of the target. If the
+ * server rejects the copy chunk requests, JCIFS-NG streams the data through this JVM within the copy, and it does not
+ * report which one happened. So the route is reported as {@link Route#SERVER_SIDE_UNVERIFIED}, and its bytes are
+ * counted as transferred.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see JcifsngParallelInputStream
+ * @see JcifsngParallelUploader
+ */
+public final class JcifsngCopier {
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param chunkSize size of a chunk in bytes of the client-side copy
+     * @param parallelism maximum number of the concurrent reads and writes of the client-side copy
+     * @param executor executor of the reads and writes of the client-side copy
+     * @throws NullPointerException if {@code executor} is {@code null}
+     * @throws IllegalArgumentException if {@code chunkSize} or {@code parallelism} is not positive
+     * @since 1.0.0
+     */
+    public JcifsngCopier(int chunkSize, int parallelism, Executor executor) {
+
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive.");
+        }
+
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.executor = Objects.requireNonNull(executor);
+
+    }
+
+    /**
+     * Get the copier configured by the options of {@code opts}. The client-side copy is governed by the same options
+     * as the {@link JcifsngParallelUploader}.
+     *
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the {@code JcifsngCopier}
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @throws IllegalArgumentException if {@link WriteChunkSize} or {@link WriteParallelism} is not positive
+     * @since 1.0.0
+     */
+    public static JcifsngCopier of(FileSystemOptions opts) {
+
+        JcifsngParallelUploader uploader = JcifsngParallelUploader.of(opts);
+
+        return new JcifsngCopier(uploader.getChunkSize(), uploader.getParallelism(), JcifsngIoExecutor.shared());
+
+    }
+
+    /**
+     * Copy the SMB file with the JCIFS-NG context and the options of {@code opts}.
+     *
+     * @param sourceUrl SMB URL of the source file
+     * @param targetUrl SMB URL of the target file
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the result of the copy
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@link WriteChunkSize} or {@link WriteParallelism} is not positive
+     * @throws IOException if cannot copy
+     * @since 1.0.0
+     */
+    public static Result copy(String sourceUrl, String targetUrl, FileSystemOptions opts) throws IOException {
+
+        Objects.requireNonNull(sourceUrl);
+        Objects.requireNonNull(targetUrl);
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+
+        try (SmbFile source = new SmbFile(sourceUrl, context); SmbFile target = new SmbFile(targetUrl, context)) {
+            return of(opts).copy(source, target);
+        }
+
+    }
+
+    /**
+     * Copy the {@code source} file to the {@code target}.
+     *
+     * @param source the source file. It is closed after the copy, and can be used again.
+     * @param target the target file. It is replaced if exists. It is closed after the copy, and can be used again.
+     * @return the result of the copy
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if cannot copy
+     * @since 1.0.0
+     */
+    public Result copy(SmbFile source, SmbFile target) throws IOException {
+
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(target);
+
+        String blocker = locatorBlocker(source, target);
+
+        if (blocker == null) {
+            blocker = treeBlocker(source, target);
+        }
+
+        try (JcifsngRangeReader reader = JcifsngRangeReader.of(source);
+                JcifsngRangeWriter writer = JcifsngRangeWriter.of(target)) {
+
+            return copy(blocker, () -> {
+
+                // JCIFS-NG swallows the failures of copyTo if the context ignores them.
+                try (SmbFile strictSource = new SmbFile(source.getURL(), strictCopyContext(source.getContext()));
+                        SmbFile strictTarget = new SmbFile(target.getURL(), strictCopyContext(target.getContext()))) {
+                    strictSource.copyTo(strictTarget);
+                }
+
+                try (SmbFile copied = new SmbFile(target.getURL(), target.getContext())) {
+                    return copied.length();
+                }
+
+            }, reader, writer);
+
+        }
+
+    }
+
+    /**
+     * Copy on the server if {@code blocker} is {@code null}, otherwise or if the server-side copy fails, copy on the
+     * client. The server-side copy is taken only if the target has the size of the source after it.
+     *
+     * @param blocker the reason why the server-side copy is not available. {@code null} if available.
+     * @param serverSide the server-side copy. It returns the size of the target after the copy.
+     * @param reader the reader of the source. It is used by the client-side copy.
+     * @param writer the writer of the target. It is used by the client-side copy.
+     * @return the result of the copy
+     * @throws IOException if cannot copy
+     * @since 1.0.0
+     */
+    Result copy(String blocker, ServerSideCopy serverSide, JcifsngRangeReader reader, JcifsngRangeWriter writer)
+            throws IOException {
+
+        String reason = blocker;
+        long size = reader.size();
+
+        if (reason == null) {
+            try {
+
+                long copied = serverSide.copy();
+
+                if (copied == size) {
+                    return new Result(Route.SERVER_SIDE_UNVERIFIED, size, null);
+                }
+
+                reason = "Server-side copy was incomplete. The target has [%d] of [%d] bytes.".formatted(copied, size);
+
+            } catch (SmbAuthException ex) {
+                throw ex;
+            } catch (IOException ex) {
+                reason = "Server-side copy failed. " + ex.getMessage();
+            }
+        }
+
+        JcifsngParallelUploader uploader = new JcifsngParallelUploader(chunkSize, parallelism, executor);
+
+        try (JcifsngParallelInputStream in = new JcifsngParallelInputStream(reader, chunkSize, parallelism, executor)) {
+            uploader.upload(in, size, writer, JcifsngCopier::ignore);
+        }
+
+        return new Result(Route.CLIENT_SIDE, size, reason);
+
+    }
+
+    private static void ignore(long position, int length) {
+    }
+
+    /**
+     * Get the context that reports the failures of {@link SmbFile#copyTo(jcifs.SmbResource)}. It shares the
+     * connections and the credentials of {@code context}.
+     *
+     * @param context the JCIFS-NG context
+     * @return the context whose {@code isIgnoreCopyToException} is {@code false}
+     * @throws NullPointerException if {@code context} is {@code null}
+     * @since 1.0.0
+     */
+    static CIFSContext strictCopyContext(CIFSContext context) {
+        return context.getConfig().isIgnoreCopyToException() ? new StrictCopyContext(context) : context;
+    }
+
+    /**
+     * Get the reason why the server-side copy is not available from the locations.
+     *
+     * @param source the source file
+     * @param target the target file
+     * @return the reason. {@code null} if the both are on the same share.
+     * @since 1.0.0
+     */
+    static String locatorBlocker(SmbFile source, SmbFile target) {
+
+        if (!source.getServer().equalsIgnoreCase(target.getServer())
+                || source.getLocator().getPort() != target.getLocator().getPort()) {
+            return "Not on the same server.";
+        }
+
+        String sourceShare = source.getShare();
+
+        if (sourceShare == null || !sourceShare.equalsIgnoreCase(target.getShare())) {
+            return "Not on the same share.";
+        }
+
+        return null;
+
+    }
+
+    private static String treeBlocker(SmbFile source, SmbFile target) throws IOException {
+
+        try (SmbTreeHandle sourceTree = source.getTreeHandle(); SmbTreeHandle targetTree = target.getTreeHandle()) {
+
+            if (!sourceTree.isSMB2() || !targetTree.isSMB2()) {
+                return "Not negotiated SMB2 or later.";
+            }
+
+            return sourceTree.isSameTree(targetTree) ? null : "Not on the same tree connection.";
+
+        }
+
+    }
+
+    private static final class StrictCopyContext extends CIFSContextWrapper {
+
+        private final Configuration config;
+
+        private StrictCopyContext(CIFSContext delegate) {
+
+            super(delegate);
+
+            this.config = new DelegatingConfiguration(delegate.getConfig()) {
+                @Override
+                public boolean isIgnoreCopyToException() {
+                    return false;
+                }
+            };
+
+        }
+
+        @Override
+        public Configuration getConfig() {
+            return config;
+        }
+
+        @Override
+        protected CIFSContext wrap(CIFSContext newContext) {
+            return new StrictCopyContext(newContext);
+        }
+    }
+
+    /**
+     * Server-side copy.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    interface ServerSideCopy {
+
+        /**
+         * Copy on the server.
+         *
+         * @return size of the target after the copy
+         * @throws IOException if cannot copy
+         * @since 1.0.0
+         */
+        long copy() throws IOException;
+    }
+
+    /**
+     * Route of the copy.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public enum Route {
+
+        /**
+         * Copied by JCIFS-NG on the same tree connection. The server copied the data with the copy chunk requests
+         * unless it rejected them, in which case JCIFS-NG streamed the data through this JVM. Which one happened is
+         * not observable.
+         *
+         * @since 1.0.0
+         */
+        SERVER_SIDE_UNVERIFIED,
+        /**
+         * Copied by the client. The data is read to and written from this JVM.
+         *
+         * @since 1.0.0
+         */
+        CLIENT_SIDE;
+    }
+
+    /**
+     * Result of the copy.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is immutable and thread-safe.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static final class Result {
+
+        private final Route route;
+
+        private final long size;
+
+        private final String fallbackReason;
+
+        private Result(Route route, long size, String fallbackReason) {
+            this.route = route;
+            this.size = size;
+            this.fallbackReason = fallbackReason;
+        }
+
+        /**
+         * Get the route of the copy.
+         *
+         * @return the route
+         * @since 1.0.0
+         */
+        public Route getRoute() {
+            return route;
+        }
+
+        /**
+         * Get the number of bytes copied.
+         *
+         * @return number of bytes copied
+         * @since 1.0.0
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the number of bytes that may have been transferred between this JVM and the server. It is twice the size,
+         * because even the copy of {@link Route#SERVER_SIDE_UNVERIFIED} may have streamed the data through this JVM.
+         * The traffic saved by the server is not counted unless it is known.
+         *
+         * @return number of bytes transferred at most
+         * @since 1.0.0
+         */
+        public long getTransferredBytes() {
+            return size * 2;
+        }
+
+        /**
+         * Get the reason why the client-side copy was taken.
+         *
+         * @return the reason. Empty if the copy was left to JCIFS-NG.
+         * @since 1.0.0
+         */
+        public Optional<String> getFallbackReason() {
+            return Optional.ofNullable(fallbackReason);
+        }
+
+        /**
+         * Returns a string representation of this.
+         *
+         * @return string representation
+         * @since 1.0.0
+         */
+        @Override
+        public String toString() {
+            return "JcifsngCopier.Result{route=%s, size=%d, transferred=%d, fallbackReason=%s}"
+                    .formatted(route, size, getTransferredBytes(), fallbackReason);
+        }
+    }
+}
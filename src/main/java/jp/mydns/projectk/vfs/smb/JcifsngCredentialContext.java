@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import jcifs.CIFSContext;
+import jcifs.Configuration;
+import jcifs.Credentials;
+import jcifs.config.DelegatingConfiguration;
+import jcifs.context.CIFSContextWrapper;
+import jcifs.smb.NtlmPasswordAuthenticator;
+
+/**
+ * JCIFS-NG context that derives the credentials from the shared transport-level context.
+ * <p>
+ * The default credentials and the guest credentials are held by this context instead of the configuration of the
+ * shared context. So the contexts that differ only in the credentials share the transport pool of the shared context,
+ * up to the session limit of it.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ClientDefaultUserName
+ * @see ClientDefaultPassword
+ * @see ClientDefaultDomain
+ * @see ClientGuestUserName
+ * @see ClientGuestPassword
+ */
+final class JcifsngCredentialContext extends CIFSContextWrapper {
+
+    static final String USERNAME = "jcifs.smb.client.username";
+
+    static final String PASSWORD = "jcifs.smb.client.password";
+
+    static final String DOMAIN = "jcifs.smb.client.domain";
+
+    static final String GUEST_USERNAME = "jcifs.smb.client.guestUsername";
+
+    static final String GUEST_PASSWORD = "jcifs.smb.client.guestPassword";
+
+    /**
+     * JCIFS-NG property names of the credentials.
+     *
+     * @since 1.0.0
+     */
+    static final Set<String> NAMES = Set.of(USERNAME, PASSWORD, DOMAIN, GUEST_USERNAME, GUEST_PASSWORD);
+
+    private static final String PRINCIPAL_MAC = "HmacSHA256";
+
+    private static final byte[] PRINCIPAL_SECRET = new SecureRandom().generateSeed(32);
+
+    private final CIFSContext base;
+
+    private final Map<String, String> credentials;
+
+    private final Configuration config;
+
+    /**
+     * Constructor.
+     *
+     * @param base the shared transport-level context
+     * @param credentials JCIFS-NG properties of the credentials. Entries other than {@link #NAMES} are ignored.
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    JcifsngCredentialContext(CIFSContext base, Map<String, String> credentials) {
+        this(base, Map.copyOf(credentials), null);
+    }
+
+    private JcifsngCredentialContext(CIFSContext base, Map<String, String> credentials, CIFSContext delegate) {
+
+        super(delegate != null ? delegate : base.withCredentials(toDefaultCredentials(credentials)));
+
+        this.base = base;
+        this.credentials = credentials;
+        this.config = new CredentialConfiguration(base.getConfig(), credentials);
+
+    }
+
+    /**
+     * Get the key of the principal of the context, that separates the entries of the caches in this JVM. It is the
+     * HMAC-SHA256 of the NTLM credentials with a random key per JVM, so it is not comparable across the JVMs and does
+     * not allow to brute force the password offline. The other credentials, such as Kerberos, are keyed by their
+     * identity. The credentials made by this class carry the key computed once at their construction, so the lookups
+     * of the caches do not compute the HMAC again.
+     *
+     * @param context the JCIFS-NG context
+     * @return key of the principal
+     * @throws NullPointerException if {@code context} is {@code null}
+     * @since 1.0.0
+     */
+    static String principalKey(CIFSContext context) {
+
+        Credentials credentials = context.getCredentials();
+
+        if (credentials instanceof KeyedAuthenticator keyed) {
+            return keyed.principalKey;
+        }
+
+        if (!(credentials instanceof NtlmPasswordAuthenticator ntlm)) {
+            return credentials.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(credentials));
+        }
+
+        return computePrincipalKey(ntlm);
+
+    }
+
+    private static String computePrincipalKey(NtlmPasswordAuthenticator ntlm) {
+
+        String text = String.join("\0", Boolean.toString(ntlm.isGuest()), Objects.toString(ntlm.getUserDomain(), ""),
+                Objects.toString(ntlm.getUsername(), ""), Objects.toString(ntlm.getPassword(), ""));
+
+        try {
+
+            Mac mac = Mac.getInstance(PRINCIPAL_MAC);
+            mac.init(new SecretKeySpec(PRINCIPAL_SECRET, PRINCIPAL_MAC));
+
+            return HexFormat.of().formatHex(mac.doFinal(text.getBytes(StandardCharsets.UTF_8)));
+
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC-SHA256 is not available.", ex);
+        }
+
+    }
+
+    private static Credentials toDefaultCredentials(Map<String, String> credentials) {
+
+        String username = credentials.get(USERNAME);
+
+        return username != null
+                ? new KeyedAuthenticator(credentials.get(DOMAIN), username, credentials.get(PASSWORD))
+                : new KeyedAuthenticator();
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The derived context keeps the credentials of this.
+     *
+     * @since 1.0.0
+     */
+    @Override
+    protected CIFSContext wrap(CIFSContext newContext) {
+        return new JcifsngCredentialContext(base, credentials, newContext);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The credentials are taken from this, and others are taken from the shared context.
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public Configuration getConfig() {
+        return config;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public boolean hasDefaultCredentials() {
+        return credentials.containsKey(USERNAME);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public CIFSContext withDefaultCredentials() {
+        return wrap(base.withCredentials(toDefaultCredentials(credentials)));
+    }
+
+    /**
+     * Do nothing, because the shared context is closed by the owner of it.
+     *
+     * @return always {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean close() {
+        return false;
+    }
+
+    /**
+     * Configuration that overrides the credentials.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    private static final class CredentialConfiguration extends DelegatingConfiguration {
+
+        private final Map<String, String> credentials;
+
+        CredentialConfiguration(Configuration delegate, Map<String, String> credentials) {
+            super(Objects.requireNonNull(delegate));
+            this.credentials = credentials;
+        }
+
+        @Override
+        public String getDefaultUsername() {
+            return credentials.getOrDefault(USERNAME, super.getDefaultUsername());
+        }
+
+        @Override
+        public String getDefaultPassword() {
+            return credentials.getOrDefault(PASSWORD, super.getDefaultPassword());
+        }
+
+        @Override
+        public String getDefaultDomain() {
+            return credentials.getOrDefault(DOMAIN, super.getDefaultDomain());
+        }
+
+        @Override
+        public String getGuestUsername() {
+            return credentials.getOrDefault(GUEST_USERNAME, super.getGuestUsername());
+        }
+
+        @Override
+        public String getGuestPassword() {
+            return credentials.getOrDefault(GUEST_PASSWORD, super.getGuestPassword());
+        }
+    }
+
+    // NTLM credentials that carry their principal key, computed once at the construction.
+    private static final class KeyedAuthenticator extends NtlmPasswordAuthenticator {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String principalKey;
+
+        KeyedAuthenticator() {
+            this.principalKey = computePrincipalKey(this);
+        }
+
+        KeyedAuthenticator(String domain, String username, String password) {
+            super(domain, username, password);
+            this.principalKey = computePrincipalKey(this);
+        }
+    }
+}
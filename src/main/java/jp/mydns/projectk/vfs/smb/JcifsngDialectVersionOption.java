@@ -52,6 +52,8 @@ abstract class JcifsngDialectVersionOption extends JcifsngOption {
 
     private final DialectVersion value;
 
+    private final int hash;
+
     /**
      * Constructor.
      *
@@ -69,6 +71,7 @@ abstract class JcifsngDialectVersionOption extends JcifsngOption {
         try {
 
             this.value = DialectVersion.valueOf(JsonString.class.cast(value).getString());
+            this.hash = hash(getClass(), this.value.name().hashCode());
 
         } catch (ClassCastException | IllegalArgumentException ex) {
 
@@ -91,6 +94,19 @@ abstract class JcifsngDialectVersionOption extends JcifsngOption {
     protected JcifsngDialectVersionOption(DialectVersion value) {
 
         this.value = Objects.requireNonNull(value);
+        this.hash = hash(getClass(), value.name().hashCode());
+
+    }
+
+    /**
+     * Get the option value.
+     *
+     * @return the option value
+     * @since 1.0.0
+     */
+    DialectVersion getDialectVersion() {
+
+        return value;
 
     }
 
@@ -118,4 +134,28 @@ abstract class JcifsngDialectVersionOption extends JcifsngOption {
 
     }
 
+    /**
+     * Returns a hash code value. It is computed at construction.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Indicates that other object is equal to this one. It is equal if it is the same class and has the same value.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof JcifsngDialectVersionOption o && getClass() == o.getClass()
+                && value == o.value;
+    }
+
 }
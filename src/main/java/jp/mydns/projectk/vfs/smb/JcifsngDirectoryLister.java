@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import jcifs.CIFSContext;
+import jcifs.CIFSException;
+import jcifs.CloseableIterator;
+import jcifs.smb.SmbException;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Lazy listing of a directory.
+ * <p>
+ * The entries are pulled from the server a page at a time as the stream is consumed, so the memory is bounded by a page
+ * regardless of the size of the directory. The page is governed by {@link ClientListCount} and {@link ClientListSize}.
+ * Closing the stream before the end closes the search handle on the server. The entries carry the attributes that the
+ * listing returned, until {@link ClientAttributeCacheTimeout}. If the options configure a {@link JcifsngMetadataCache},
+ * the entries fill it as they are consumed.
+ * <p>
+ * A {@link JcifsngListFilter} narrows the listing. Its search pattern is pushed down to the server. Without a pattern,
+ * its residual predicate is evaluated on the names as the pages are decoded, so the discarded entries are not
+ * materialized as {@code SmbFile}s. With a pattern, the residual predicate is evaluated on the entries that the server
+ * matched.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngDirectoryLister {
+
+    private JcifsngDirectoryLister() {
+    }
+
+    /**
+     * List the directory lazily with the JCIFS-NG context and the options of {@code opts}.
+     *
+     * @param url SMB URL of the directory. It must end with {@code /}.
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the stream of the entries. It must be closed.
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if cannot start the listing
+     * @since 1.0.0
+     */
+    public static Stream<SmbFile> stream(String url, FileSystemOptions opts) throws IOException {
+        return stream(url, JcifsngListFilter.all(), opts);
+    }
+
+    /**
+     * List the entries of the directory that match the {@code filter} lazily with the JCIFS-NG context and the options
+     * of {@code opts}.
+     *
+     * @param url SMB URL of the directory. It must end with {@code /}.
+     * @param filter the filter of the names
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the stream of the entries. It must be closed.
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if cannot start the listing
+     * @since 1.0.0
+     */
+    public static Stream<SmbFile> stream(String url, JcifsngListFilter filter, FileSystemOptions opts)
+            throws IOException {
+
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(filter);
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+        Optional<JcifsngMetadataCache> cache = JcifsngMetadataCache.of(opts);
+        SmbFile dir = new SmbFile(url, context);
+
+        try {
+
+            Stream<SmbFile> entries = stream(dir, filter).onClose(dir::close);
+
+            return cache.isEmpty() ? entries : entries.peek(f -> {
+                try {
+                    cache.get().put(f);
+                } catch (SmbException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+
+        } catch (IOException | RuntimeException ex) {
+            dir.close();
+            throw ex;
+        }
+
+    }
+
+    /**
+     * List the directory lazily.
+     *
+     * @param dir the directory
+     * @return the stream of the entries. It must be closed. It throws an unchecked {@code CIFSException} if cannot
+     * pull the next page.
+     * @throws NullPointerException if {@code dir} is {@code null}
+     * @throws IOException if cannot start the listing
+     * @since 1.0.0
+     */
+    public static Stream<SmbFile> stream(SmbFile dir) throws IOException {
+        return stream(dir, JcifsngListFilter.all());
+    }
+
+    /**
+     * List the entries of the directory that match the {@code filter} lazily.
+     *
+     * @param dir the directory
+     * @param filter the filter of the names
+     * @return the stream of the entries. It must be closed. It throws an unchecked {@code CIFSException} if cannot
+     * pull the next page.
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if cannot start the listing
+     * @since 1.0.0
+     */
+    public static Stream<SmbFile> stream(SmbFile dir, JcifsngListFilter filter) throws IOException {
+
+        Objects.requireNonNull(dir);
+
+        if (!filter.hasResidual()) {
+            return stream(dir.children(filter.getPattern())).map(SmbFile.class::cast);
+        }
+
+        if (JcifsngListFilter.ALL_PATTERN.equals(filter.getPattern())) {
+            return stream(dir.children((parent, name) -> filter.test(name))).map(SmbFile.class::cast);
+        }
+
+        return stream(dir.children(filter.getPattern())).map(SmbFile.class::cast).filter(f -> filter.test(f.getName()));
+
+    }
+
+    /**
+     * Stream the entries of the {@code iterator}. The {@code iterator} is closed when the stream is closed.
+     *
+     * @param <T> type of the entry
+     * @param iterator the iterator that pulls the pages on demand
+     * @return the stream of the entries
+     * @throws NullPointerException if {@code iterator} is {@code null}
+     * @since 1.0.0
+     */
+    static <T> Stream<T> stream(CloseableIterator<T> iterator) {
+
+        Objects.requireNonNull(iterator);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+            try {
+                iterator.close();
+            } catch (CIFSException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+    }
+}
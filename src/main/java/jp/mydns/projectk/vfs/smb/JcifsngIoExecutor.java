@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors of the concurrent I/O of this module. The threads are daemon. The threads of the cached pool are
+ * created on demand and terminated after idle, and the work-stealing pool is for the recursive tasks.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class JcifsngIoExecutor {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private static final ThreadFactory FACTORY = r -> {
+
+        Thread thread = new Thread(r, "k-vfs-smb-io-" + SEQUENCE.incrementAndGet());
+        thread.setDaemon(true);
+
+        return thread;
+
+    };
+
+    private static final ExecutorService SHARED = Executors.newCachedThreadPool(FACTORY);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(FACTORY);
+
+    private static final ForkJoinPool WORK_STEALING = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            pool -> {
+
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("k-vfs-smb-walk-" + SEQUENCE.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+
+            }, null, false);
+
+    private JcifsngIoExecutor() {
+    }
+
+    /**
+     * Get the shared executor.
+     *
+     * @return the shared executor
+     * @since 1.0.0
+     */
+    static ExecutorService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the shared scheduler of the housekeeping tasks. The tasks must be short, because they share a thread.
+     *
+     * @return the shared scheduler
+     * @since 1.0.0
+     */
+    static ScheduledExecutorService scheduler() {
+        return SCHEDULER;
+    }
+
+    /**
+     * Get the shared work-stealing pool. The blocking I/O in this pool must be run by
+     * {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)} so that the pool compensates the blocked threads.
+     *
+     * @return the shared work-stealing pool
+     * @since 1.0.0
+     */
+    static ForkJoinPool workStealing() {
+        return WORK_STEALING;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Filter of the names of a directory listing.
+ * <p>
+ * The filter is split into the search pattern that is pushed down to the server and the residual predicate that is
+ * evaluated on the names as the listing is decoded. A glob of {@code *} and {@code ?} is pushed down as is, and is
+ * evaluated again as the residual, because the server may match the short 8.3 names too. The names are matched case
+ * insensitively, as the server does.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngListFilter {
+
+    /**
+     * Search pattern that matches all the entries.
+     *
+     * @since 1.0.0
+     */
+    static final String ALL_PATTERN = "*";
+
+    private static final JcifsngListFilter ALL = new JcifsngListFilter(ALL_PATTERN, null);
+
+    private final String pattern;
+
+    private final Predicate<String> residual;
+
+    private JcifsngListFilter(String pattern, Predicate<String> residual) {
+        this.pattern = pattern;
+        this.residual = residual;
+    }
+
+    /**
+     * Get the filter that accepts all the entries.
+     *
+     * @return the {@code JcifsngListFilter}
+     * @since 1.0.0
+     */
+    public static JcifsngListFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Get the filter of a glob. {@code *} matches any characters and {@code ?} matches a character.
+     *
+     * @param glob the glob
+     * @return the {@code JcifsngListFilter}
+     * @throws NullPointerException if {@code glob} is {@code null}
+     * @throws IllegalArgumentException if {@code glob} is empty or contains a path separator
+     * @since 1.0.0
+     */
+    public static JcifsngListFilter glob(String glob) {
+
+        requireName(glob);
+
+        if (ALL_PATTERN.equals(glob)) {
+            return ALL;
+        }
+
+        Pattern regex = Pattern.compile(toRegex(glob), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+        return new JcifsngListFilter(isPushable(glob) ? glob : ALL_PATTERN, n -> regex.matcher(n).matches());
+
+    }
+
+    /**
+     * Get the filter of the names that start with {@code prefix}.
+     *
+     * @param prefix the prefix
+     * @return the {@code JcifsngListFilter}
+     * @throws NullPointerException if {@code prefix} is {@code null}
+     * @throws IllegalArgumentException if {@code prefix} is empty or contains a path separator
+     * @since 1.0.0
+     */
+    public static JcifsngListFilter prefix(String prefix) {
+
+        requireName(prefix);
+
+        String lower = prefix.toLowerCase(Locale.ROOT);
+
+        return new JcifsngListFilter(isLiteral(prefix) ? prefix + "*" : ALL_PATTERN,
+                n -> n.toLowerCase(Locale.ROOT).startsWith(lower));
+
+    }
+
+    /**
+     * Get the filter of the names that end with {@code suffix}, such as {@code .csv}.
+     *
+     * @param suffix the suffix
+     * @return the {@code JcifsngListFilter}
+     * @throws NullPointerException if {@code suffix} is {@code null}
+     * @throws IllegalArgumentException if {@code suffix} is empty or contains a path separator
+     * @since 1.0.0
+     */
+    public static JcifsngListFilter suffix(String suffix) {
+
+        requireName(suffix);
+
+        String lower = suffix.toLowerCase(Locale.ROOT);
+
+        return new JcifsngListFilter(isLiteral(suffix) ? "*" + suffix : ALL_PATTERN,
+                n -> n.toLowerCase(Locale.ROOT).endsWith(lower));
+
+    }
+
+    /**
+     * Get the filter that evaluates the {@code predicate} on the names in addition to this filter. The
+     * {@code predicate} is not pushed down.
+     *
+     * @param predicate the predicate of the names. The names of the directories do not end with {@code /}.
+     * @return the {@code JcifsngListFilter}
+     * @throws NullPointerException if {@code predicate} is {@code null}
+     * @since 1.0.0
+     */
+    public JcifsngListFilter and(Predicate<String> predicate) {
+
+        Objects.requireNonNull(predicate);
+
+        return new JcifsngListFilter(pattern, residual == null ? predicate : residual.and(predicate));
+
+    }
+
+    /**
+     * Get the search pattern that is pushed down to the server.
+     *
+     * @return the search pattern. {@value #ALL_PATTERN} if nothing is pushed down.
+     * @since 1.0.0
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Whether the residual predicate is present.
+     *
+     * @return {@code true} if the names must be evaluated on the client
+     * @since 1.0.0
+     */
+    boolean hasResidual() {
+        return residual != null;
+    }
+
+    /**
+     * Evaluate the residual predicate.
+     *
+     * @param name the name of the entry. The trailing {@code /} of a directory is ignored.
+     * @return {@code true} if accepted
+     * @throws NullPointerException if {@code name} is {@code null}
+     * @since 1.0.0
+     */
+    boolean test(String name) {
+
+        if (residual == null) {
+            return true;
+        }
+
+        return residual.test(name.endsWith("/") ? name.substring(0, name.length() - 1) : name);
+
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return string representation
+     * @since 1.0.0
+     */
+    @Override
+    public String toString() {
+        return "JcifsngListFilter{pattern=%s, residual=%s}".formatted(pattern, residual != null);
+    }
+
+    private static void requireName(String name) {
+
+        if (name.isEmpty() || name.indexOf('/') >= 0 || name.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException("Filter must be a non-empty name but [%s].".formatted(name));
+        }
+
+    }
+
+    private static boolean isLiteral(String name) {
+        return isPushable(name) && name.indexOf('*') < 0 && name.indexOf('?') < 0;
+    }
+
+    private static boolean isPushable(String glob) {
+        // The DOS wildcards have the other meanings on the server.
+        return glob.indexOf('<') < 0 && glob.indexOf('>') < 0 && glob.indexOf('"') < 0;
+    }
+
+    private static String toRegex(String glob) {
+
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (char c : glob.toCharArray()) {
+
+            if (c == '*' || c == '?') {
+
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+
+                regex.append(c == '*' ? ".*" : ".");
+
+            } else {
+                literal.append(c);
+            }
+
+        }
+
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return regex.toString();
+
+    }
+}
@@ -47,6 +47,8 @@ public abstract class JcifsngLongOption extends JcifsngOption {
 
     protected final long value;
 
+    private final int hash;
+
     /**
      * Constructor.
      *
@@ -55,6 +57,27 @@ public abstract class JcifsngLongOption extends JcifsngOption {
      */
     protected JcifsngLongOption(long value) {
         this.value = value;
+        this.hash = hash(getClass(), Long.hashCode(value));
+    }
+
+    /**
+     * Require the value not to be negative.
+     *
+     * @param value option value
+     * @param optionName name of {@code FileOption}. Used in message if occurs {@code IllegalArgumentException}
+     * @return {@code value}
+     * @throws IllegalArgumentException if {@code value} is negative
+     * @since 1.0.0
+     */
+    protected static long requireNonNegative(long value, String optionName) {
+
+        if (value < 0) {
+            throw new IllegalArgumentException("FileOption value of [%s] must not be negative but [%d]."
+                    .formatted(optionName, value));
+        }
+
+        return value;
+
     }
 
     /**
@@ -76,4 +99,27 @@ public abstract class JcifsngLongOption extends JcifsngOption {
     public JsonValue getValue() {
         return Json.createValue(value);
     }
+
+    /**
+     * Returns a hash code value. It is computed at construction.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Indicates that other object is equal to this one. It is equal if it is the same class and has the same value.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof JcifsngLongOption o && getClass() == o.getClass() && value == o.value;
+    }
 }
@@ -0,0 +1,1009 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import jcifs.smb.SmbException;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Cache of the metadata of the SMB files that is shared across the JCIFS-NG contexts.
+ * <p>
+ * The attribute cache of JCIFS-NG belongs to each {@code SmbFile}, and it is bounded by the single
+ * {@link ClientAttributeCacheTimeout} of the context. This cache holds whether the file exists, its size, its times and
+ * its attributes, keyed by the principal, the host, the share and the path, so a new context or a new {@code SmbFile}
+ * of the same file does not need a round trip, and a principal never sees the metadata that another principal queried.
+ * The entries are valid for {@link MetadataCacheTtl}, and it can be overridden per share by
+ * {@link MetadataCacheShareTtls}. The memory is capped by {@link MetadataCacheCapacity} with the LRU eviction.
+ * <p>
+ * The entries are partitioned to the stripes by the hash of the key, and each stripe has its own lock and its own LRU
+ * order, so the concurrent lookups of the different files rarely contend. The listings of
+ * {@link JcifsngDirectoryLister} and {@link JcifsngTreeWalker} fill the cache that the options configure with the
+ * attributes that they returned.
+ * <p>
+ * The entries under a directory that is watched by {@link JcifsngChangeWatcher} are invalidated precisely on the change
+ * notifications, so they are valid for the longer {@link MetadataCacheWatchedTtl}. A lookup that raced with an
+ * invalidation of its stripe or of a directory above it does not cache its result. The lookups of the other files keep
+ * caching theirs.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see MetadataCacheCapacity
+ * @see MetadataCacheTtl
+ * @see MetadataCacheShareTtls
+ * @see MetadataCacheWatchedTtl
+ */
+public final class JcifsngMetadataCache {
+
+    /**
+     * Default number of the stripes.
+     *
+     * @since 1.0.0
+     */
+    static final int DEFAULT_STRIPES = 16;
+
+    // Estimated bytes of an entry besides the characters of its key.
+    private static final int ENTRY_OVERHEAD = 160;
+
+    /**
+     * Maximum number of the caches shared by the options.
+     *
+     * @since 1.0.0
+     */
+    static final int MAX_SHARED = 8;
+
+    // Guarded by itself. The eldest cache is cleared so its entries are released.
+    private static final Map<String, JcifsngMetadataCache> SHARED = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JcifsngMetadataCache> eldest) {
+
+            if (size() <= MAX_SHARED) {
+                return false;
+            }
+
+            eldest.getValue().clear();
+
+            return true;
+
+        }
+    };
+
+    private final Stripe[] stripes;
+
+    private final long stripeCapacity;
+
+    private final long ttlMillis;
+
+    private final Clock clock;
+
+    private final ConcurrentMap<String, Long> shareTtls = new ConcurrentHashMap<>();
+
+    // Number of the active watches per directory, the non-recursive ones and the recursive ones.
+    private final ConcurrentMap<String, int[]> watched = new ConcurrentHashMap<>();
+
+    // Number of the recent tree invalidations that are remembered for the lookups in flight.
+    private static final int TREE_HISTORY = 64;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ArrayDeque<TreeInvalidation> trees = new ArrayDeque<>();
+
+    // The sequence of the latest tree invalidation, and of the latest one that is forgotten. Guarded by trees.
+    private volatile long lastTree;
+
+    private long forgottenTree;
+
+    private volatile long watchedTtlMillis = MetadataCacheWatchedTtl.DEFAULT;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity memory cap in bytes
+     * @param stripes number of the stripes. It must be a power of two.
+     * @param ttl default time that an entry is valid
+     * @throws NullPointerException if {@code ttl} is {@code null}
+     * @throws IllegalArgumentException if {@code capacity} is not positive, or if {@code stripes} is not a positive
+     * power of two
+     * @since 1.0.0
+     */
+    public JcifsngMetadataCache(long capacity, int stripes, Duration ttl) {
+        this(capacity, stripes, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity memory cap in bytes
+     * @param stripes number of the stripes. It must be a power of two.
+     * @param ttl default time that an entry is valid
+     * @param clock the clock
+     * @throws NullPointerException if {@code ttl} or {@code clock} is {@code null}
+     * @throws IllegalArgumentException if {@code capacity} is not positive, or if {@code stripes} is not a positive
+     * power of two
+     * @since 1.0.0
+     */
+    JcifsngMetadataCache(long capacity, int stripes, Duration ttl, Clock clock) {
+
+        if (capacity < 1 || stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Capacity must be positive and stripes must be a power of two.");
+        }
+
+        this.stripes = new Stripe[stripes];
+
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+
+        this.stripeCapacity = Math.max(1, capacity / stripes);
+        this.ttlMillis = ttl.toMillis();
+        this.clock = Objects.requireNonNull(clock);
+
+    }
+
+    /**
+     * Get the cache configured by the options of {@code opts}. The caches are shared by the options of the same
+     * capacity and TTLs, up to {@value #MAX_SHARED} caches. If {@link MetadataCacheTtl} is not set,
+     * {@link ClientAttributeCacheTimeout} is the TTL.
+     *
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the {@code JcifsngMetadataCache}. It is empty if {@link MetadataCacheCapacity} is not set or zero.
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @throws IllegalArgumentException if {@link MetadataCacheShareTtls} is malformed
+     * @since 1.0.0
+     */
+    public static Optional<JcifsngMetadataCache> of(FileSystemOptions opts) {
+
+        Map<String, String> props = JcifsngModuleProperties.of(opts);
+        long capacity = JcifsngModuleProperties.getLong(props, MetadataCacheCapacity.NAME, 0L);
+
+        if (capacity <= 0) {
+            return Optional.empty();
+        }
+
+        long ttl = props.containsKey(MetadataCacheTtl.NAME)
+                ? JcifsngModuleProperties.getLong(props, MetadataCacheTtl.NAME, 0L)
+                : JcifsngConfigBuilder.getInstance().getOrPrepare(opts).getConfig().getAttributeCacheTimeout();
+        long watchedTtl = JcifsngModuleProperties.getLong(props, MetadataCacheWatchedTtl.NAME,
+                MetadataCacheWatchedTtl.DEFAULT);
+        Map<String, Long> overrides = parseShareTtls(props.getOrDefault(MetadataCacheShareTtls.NAME, ""));
+
+        return Optional.of(shared("%d/%d/%d/%s".formatted(capacity, ttl, watchedTtl, overrides), () -> {
+
+            var cache = new JcifsngMetadataCache(capacity, DEFAULT_STRIPES, Duration.ofMillis(ttl));
+            cache.shareTtls.putAll(overrides);
+            cache.watchedTtlMillis = watchedTtl;
+
+            return cache;
+
+        }));
+
+    }
+
+    /**
+     * Get the shared cache of the key. If the number of the shared caches exceeds {@value #MAX_SHARED}, the least
+     * recently used one is cleared and dropped.
+     *
+     * @param key key of the configuration
+     * @param factory the factory of the cache if absent
+     * @return the shared cache
+     * @since 1.0.0
+     */
+    static JcifsngMetadataCache shared(String key, Supplier<JcifsngMetadataCache> factory) {
+
+        synchronized (SHARED) {
+            return SHARED.computeIfAbsent(key, k -> factory.get());
+        }
+
+    }
+
+    /**
+     * Parse the TTLs per share.
+     *
+     * @param value the comma separated {@code host/share=millis}
+     * @return unmodifiable TTLs in milliseconds keyed by the lower case {@code host/share}
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @throws IllegalArgumentException if {@code value} is malformed
+     * @since 1.0.0
+     */
+    static Map<String, Long> parseShareTtls(String value) {
+
+        Map<String, Long> ttls = new HashMap<>();
+
+        for (String pair : value.split(",")) {
+
+            if (pair.isBlank()) {
+                continue;
+            }
+
+            int eq = pair.indexOf('=');
+            String share = eq < 0 ? "" : pair.substring(0, eq).trim();
+            int slash = share.indexOf('/');
+
+            if (slash < 1 || slash != share.lastIndexOf('/') || slash == share.length() - 1) {
+                throw new IllegalArgumentException("Share TTL must be host/share=millis but [%s].".formatted(pair));
+            }
+
+            long millis;
+
+            try {
+                millis = Long.parseLong(pair.substring(eq + 1).trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Share TTL must be host/share=millis but [%s].".formatted(pair), ex);
+            }
+
+            if (millis < 0) {
+                throw new IllegalArgumentException("Share TTL must not be negative but [%s].".formatted(pair));
+            }
+
+            ttls.put(share.toLowerCase(Locale.ROOT), millis);
+
+        }
+
+        return Collections.unmodifiableMap(ttls);
+
+    }
+
+    /**
+     * Get the metadata of the file. On a miss, the metadata is queried in a round trip and cached.
+     *
+     * @param file the SMB file
+     * @return the metadata
+     * @throws NullPointerException if {@code file} is {@code null}
+     * @throws IOException if cannot query the metadata
+     * @since 1.0.0
+     */
+    public Metadata get(SmbFile file) throws IOException {
+        return get(shareKey(file), principalKey(file), pathKey(file), () -> Metadata.load(file));
+    }
+
+    /**
+     * Get the metadata of the file.
+     *
+     * @param share lower case {@code host/share} of the file
+     * @param principal key of the principal
+     * @param path key of the file
+     * @param loader the loader on a miss
+     * @return the metadata
+     * @throws IOException if cannot load the metadata
+     * @since 1.0.0
+     */
+    Metadata get(String share, String principal, String path, Loader loader) throws IOException {
+
+        Key key = new Key(path, principal);
+        Stripe stripe = stripe(path);
+        long now = clock.millis();
+        long observed = sequence.get();
+
+        stripe.lock.lock();
+
+        try {
+
+            Node node = stripe.entries.get(key);
+
+            if (node != null && node.expiresAt > now) {
+                hits.increment();
+                return node.metadata;
+            }
+
+            if (node != null) {
+                stripe.remove(key);
+            }
+
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        misses.increment();
+
+        // Loads outside the lock, so a round trip does not block the other files of the stripe.
+        Metadata metadata = loader.load();
+        put(share, principal, path, metadata, observed);
+
+        return metadata;
+
+    }
+
+    /**
+     * Put the metadata of the file, such as an entry of a directory listing. The attributes of {@code file} must be
+     * known, otherwise it costs a round trip.
+     *
+     * @param file the SMB file
+     * @throws NullPointerException if {@code file} is {@code null}
+     * @throws SmbException if cannot get the attributes
+     * @since 1.0.0
+     */
+    public void put(SmbFile file) throws SmbException {
+
+        long observed = sequence.get();
+
+        put(shareKey(file), principalKey(file), pathKey(file), Metadata.of(file), observed);
+
+    }
+
+    /**
+     * Put the metadata of the file.
+     *
+     * @param share lower case {@code host/share} of the file
+     * @param principal key of the principal
+     * @param path key of the file
+     * @param metadata the metadata
+     * @param observed the invalidation sequence observed before the metadata was queried. If the stripe of the file or
+     * a directory above it was invalidated after, the metadata may be stale and is not cached.
+     * @since 1.0.0
+     */
+    void put(String share, String principal, String path, Metadata metadata, long observed) {
+
+        long ttl = shareTtls.getOrDefault(share, ttlMillis);
+        long weight = ENTRY_OVERHEAD + 2L * (path.length() + principal.length());
+
+        if (ttl <= 0 || weight > stripeCapacity) {
+            return;
+        }
+
+        if (isWatched(path)) {
+            ttl = Math.max(ttl, watchedTtlMillis);
+        }
+
+        Stripe stripe = stripe(path);
+
+        stripe.lock.lock();
+
+        try {
+
+            if (stripe.invalidatedAt > observed || isTreeInvalidated(path, observed)) {
+                return;
+            }
+
+            stripe.put(new Key(path, principal), new Node(Objects.requireNonNull(metadata), clock.millis() + ttl,
+                    weight));
+
+            while (stripe.bytes > stripeCapacity) {
+                stripe.evict();
+                evictions.increment();
+            }
+
+        } finally {
+            stripe.lock.unlock();
+        }
+
+    }
+
+    /**
+     * Invalidate the metadata of the file for all the principals.
+     *
+     * @param file the SMB file
+     * @throws NullPointerException if {@code file} is {@code null}
+     * @since 1.0.0
+     */
+    public void invalidate(SmbFile file) {
+        invalidate(pathKey(file));
+    }
+
+    /**
+     * Invalidate the metadata of the file for all the principals.
+     *
+     * @param path key of the file
+     * @since 1.0.0
+     */
+    void invalidate(String path) {
+
+        Stripe stripe = stripe(path);
+
+        stripe.lock.lock();
+
+        try {
+            stripe.invalidatedAt = sequence.incrementAndGet();
+            stripe.removePath(path);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+    }
+
+    /**
+     * Invalidate the metadata of the directory and all files under it for all the principals.
+     *
+     * @param dir key of the directory
+     * @since 1.0.0
+     */
+    void invalidateTree(String dir) {
+
+        String prefix = dir + "/";
+
+        // Recorded before the stripes are cleaned, so a stale lookup either finds the record or is cleaned after.
+        synchronized (trees) {
+
+            trees.addLast(new TreeInvalidation(dir, prefix, sequence.incrementAndGet()));
+            lastTree = trees.peekLast().sequence;
+
+            if (trees.size() > TREE_HISTORY) {
+                forgottenTree = trees.removeFirst().sequence;
+            }
+
+        }
+
+        for (Stripe stripe : stripes) {
+
+            stripe.lock.lock();
+
+            try {
+
+                List<String> paths = stripe.principals.keySet().stream()
+                        .filter(p -> p.equals(dir) || p.startsWith(prefix)).toList();
+
+                paths.forEach(stripe::removePath);
+
+            } finally {
+                stripe.lock.unlock();
+            }
+
+        }
+
+    }
+
+    private boolean isTreeInvalidated(String path, long observed) {
+
+        if (lastTree <= observed) {
+            return false;
+        }
+
+        synchronized (trees) {
+
+            if (forgottenTree > observed) {
+                return true;
+            }
+
+            for (TreeInvalidation tree : trees) {
+                if (tree.sequence > observed && (path.equals(tree.dir) || path.startsWith(tree.prefix))) {
+                    return true;
+                }
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Mark the directory as watched. The files under it are cached for {@link MetadataCacheWatchedTtl} after. The marks
+     * are counted, so a directory stays watched until all its watches are unmarked.
+     *
+     * @param dir key of the directory
+     * @param recursive whether the subdirectories are watched too
+     * @since 1.0.0
+     */
+    void markWatched(String dir, boolean recursive) {
+        watched.compute(dir, (k, counts) -> {
+
+            int[] next = counts == null ? new int[2] : counts.clone();
+            next[recursive ? 1 : 0]++;
+
+            return next;
+
+        });
+    }
+
+    /**
+     * Unmark a watch of the directory, and invalidate the files under it. Those that the remaining watches do not cover
+     * fall back to the TTL of the share after.
+     *
+     * @param dir key of the directory
+     * @param recursive whether the watch was recursive
+     * @since 1.0.0
+     */
+    void unmarkWatched(String dir, boolean recursive) {
+
+        watched.computeIfPresent(dir, (k, counts) -> {
+
+            int[] next = counts.clone();
+            next[recursive ? 1 : 0] = Math.max(0, next[recursive ? 1 : 0] - 1);
+
+            return next[0] + next[1] == 0 ? null : next;
+
+        });
+
+        invalidateTree(dir);
+
+    }
+
+    private boolean isWatched(String path) {
+
+        if (watched.isEmpty()) {
+            return false;
+        }
+
+        int slash = path.lastIndexOf('/');
+
+        if (slash > 0 && watched.containsKey(path.substring(0, slash))) {
+            return true;
+        }
+
+        for (slash = slash > 0 ? path.lastIndexOf('/', slash - 1) : -1; slash > 0;
+                slash = path.lastIndexOf('/', slash - 1)) {
+
+            int[] counts = watched.get(path.substring(0, slash));
+
+            if (counts != null && counts[1] > 0) {
+                return true;
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Set the time that an entry of the share is valid. It applies to the entries cached after.
+     *
+     * @param host the host
+     * @param share the share
+     * @param ttl time that an entry is valid. Zero disables the cache of the share.
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code ttl} is negative
+     * @since 1.0.0
+     */
+    public void setShareTtl(String host, String share, Duration ttl) {
+
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("Share TTL must not be negative.");
+        }
+
+        shareTtls.put(shareKey(host, share), ttl.toMillis());
+
+    }
+
+    /**
+     * Invalidate all entries.
+     *
+     * @since 1.0.0
+     */
+    public void clear() {
+
+        for (Stripe stripe : stripes) {
+
+            stripe.lock.lock();
+
+            try {
+                stripe.invalidatedAt = sequence.incrementAndGet();
+                stripe.entries.clear();
+                stripe.principals.clear();
+                stripe.bytes = 0;
+            } finally {
+                stripe.lock.unlock();
+            }
+
+        }
+
+    }
+
+    /**
+     * Get the number of the lookups that hit.
+     *
+     * @return number of the hits
+     * @since 1.0.0
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of the lookups that missed.
+     *
+     * @return number of the misses
+     * @since 1.0.0
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of the entries evicted by the memory cap.
+     *
+     * @return number of the evictions
+     * @since 1.0.0
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the estimated bytes of the cached entries.
+     *
+     * @return estimated bytes
+     * @since 1.0.0
+     */
+    public long getUsedBytes() {
+
+        long bytes = 0;
+
+        for (Stripe stripe : stripes) {
+
+            stripe.lock.lock();
+
+            try {
+                bytes += stripe.bytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+
+        }
+
+        return bytes;
+
+    }
+
+    /**
+     * Get the key of the share of the file.
+     *
+     * @param file the SMB file
+     * @return lower case {@code host/share}
+     * @since 1.0.0
+     */
+    static String shareKey(SmbFile file) {
+        return shareKey(Objects.toString(file.getServer(), ""), Objects.toString(file.getShare(), ""));
+    }
+
+    private static String shareKey(String host, String share) {
+        return (host + "/" + share).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the key of the file. The names are case insensitive, and a directory and the same path without the trailing
+     * {@code /} are the same file.
+     *
+     * @param file the SMB file
+     * @return key of the file
+     * @since 1.0.0
+     */
+    static String pathKey(SmbFile file) {
+
+        String path = file.getCanonicalPath().toLowerCase(Locale.ROOT);
+
+        return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+
+    }
+
+    private static String principalKey(SmbFile file) {
+        return JcifsngCredentialContext.principalKey(file.getContext());
+    }
+
+    private Stripe stripe(String path) {
+
+        int h = path.hashCode();
+
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+
+    }
+
+    /**
+     * Loader of the metadata on a miss.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        /**
+         * Load the metadata.
+         *
+         * @return the metadata
+         * @throws IOException if cannot load
+         * @since 1.0.0
+         */
+        Metadata load() throws IOException;
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final LinkedHashMap<Key, Node> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        // The principals that cache each path, to invalidate a path for all of them.
+        private final Map<String, Set<String>> principals = new HashMap<>();
+
+        private long bytes;
+
+        // The sequence of the latest invalidation of a path of this stripe.
+        private long invalidatedAt;
+
+        private void put(Key key, Node node) {
+
+            remove(key);
+            entries.put(key, node);
+            principals.computeIfAbsent(key.path, k -> new HashSet<>(2)).add(key.principal);
+            bytes += node.weight;
+
+        }
+
+        private void remove(Key key) {
+
+            Node node = entries.remove(key);
+
+            if (node != null) {
+                bytes -= node.weight;
+                unindex(key);
+            }
+
+        }
+
+        private void removePath(String path) {
+
+            Set<String> cached = principals.remove(path);
+
+            if (cached == null) {
+                return;
+            }
+
+            for (String principal : cached) {
+
+                Node node = entries.remove(new Key(path, principal));
+
+                if (node != null) {
+                    bytes -= node.weight;
+                }
+
+            }
+
+        }
+
+        private void evict() {
+
+            Iterator<Map.Entry<Key, Node>> it = entries.entrySet().iterator();
+            Map.Entry<Key, Node> eldest = it.next();
+
+            it.remove();
+            bytes -= eldest.getValue().weight;
+            unindex(eldest.getKey());
+
+        }
+
+        private void unindex(Key key) {
+
+            Set<String> cached = principals.get(key.path);
+
+            if (cached != null && cached.remove(key.principal) && cached.isEmpty()) {
+                principals.remove(key.path);
+            }
+
+        }
+    }
+
+    private static final class TreeInvalidation {
+
+        private final String dir;
+
+        private final String prefix;
+
+        private final long sequence;
+
+        private TreeInvalidation(String dir, String prefix, long sequence) {
+            this.dir = dir;
+            this.prefix = prefix;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class Key {
+
+        private final String path;
+
+        private final String principal;
+
+        private Key(String path, String principal) {
+            this.path = Objects.requireNonNull(path);
+            this.principal = Objects.requireNonNull(principal);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + principal.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key k && path.equals(k.path) && principal.equals(k.principal);
+        }
+    }
+
+    private static final class Node {
+
+        private final Metadata metadata;
+
+        private final long expiresAt;
+
+        private final long weight;
+
+        private Node(Metadata metadata, long expiresAt, long weight) {
+            this.metadata = metadata;
+            this.expiresAt = expiresAt;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Metadata of an SMB file.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is immutable and thread-safe.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static final class Metadata {
+
+        private static final Metadata ABSENT = new Metadata(false, 0, 0, 0, 0);
+
+        private final boolean exists;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final long createTime;
+
+        private final int attributes;
+
+        /**
+         * Constructor.
+         *
+         * @param exists whether the file exists
+         * @param size size in bytes
+         * @param lastModified modified time in milliseconds since the epoch
+         * @param createTime create time in milliseconds since the epoch
+         * @param attributes DOS attributes
+         * @since 1.0.0
+         */
+        Metadata(boolean exists, long size, long lastModified, long createTime, int attributes) {
+            this.exists = exists;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.createTime = createTime;
+            this.attributes = attributes;
+        }
+
+        private static Metadata load(SmbFile file) throws SmbException {
+            // The query of the existence fetches all the attributes at once.
+            return file.exists() ? of(file) : ABSENT;
+        }
+
+        private static Metadata of(SmbFile file) throws SmbException {
+            return new Metadata(true, file.length(), file.lastModified(), file.createTime(), file.getAttributes());
+        }
+
+        /**
+         * Whether the file exists.
+         *
+         * @return {@code true} if exists
+         * @since 1.0.0
+         */
+        public boolean exists() {
+            return exists;
+        }
+
+        /**
+         * Whether a directory.
+         *
+         * @return {@code true} if a directory
+         * @since 1.0.0
+         */
+        public boolean isDirectory() {
+            return (attributes & SmbFile.ATTR_DIRECTORY) != 0;
+        }
+
+        /**
+         * Get the size.
+         *
+         * @return size in bytes
+         * @since 1.0.0
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the modified time.
+         *
+         * @return modified time in milliseconds since the epoch
+         * @since 1.0.0
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Get the create time.
+         *
+         * @return create time in milliseconds since the epoch
+         * @since 1.0.0
+         */
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        /**
+         * Get the DOS attributes.
+         *
+         * @return the DOS attributes
+         * @since 1.0.0
+         */
+        public int getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * Returns a string representation of this.
+         *
+         * @return string representation
+         * @since 1.0.0
+         */
+        @Override
+        public String toString() {
+            return "JcifsngMetadataCache.Metadata{exists=%s, size=%d, lastModified=%d, attributes=%d}"
+                    .formatted(exists, size, lastModified, attributes);
+        }
+    }
+}
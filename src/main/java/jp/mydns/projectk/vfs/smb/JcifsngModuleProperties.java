@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.Map;
+import java.util.Objects;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Properties of this module that are staged together with the JCIFS-NG properties.
+ * <p>
+ * The options of the I/O features of this module are {@link JcifsngOption}s too, so they share the staging, the
+ * {@link JcifsngOptionPlan}, the {@link JcifsngOptionFingerprint} and the {@link Profile}. Their property names start
+ * with {@link #PREFIX}, and they are removed before building the JCIFS-NG context. So they do not split the shared
+ * context.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class JcifsngModuleProperties {
+
+    /**
+     * Prefix of the property names of this module.
+     *
+     * @since 1.0.0
+     */
+    static final String PREFIX = "projectk.vfs.smb.";
+
+    private JcifsngModuleProperties() {
+    }
+
+    /**
+     * Whether the property is of this module.
+     *
+     * @param name property name
+     * @return {@code true} if the property is of this module
+     * @throws NullPointerException if {@code name} is {@code null}
+     * @since 1.0.0
+     */
+    static boolean isModuleProperty(String name) {
+        return name.startsWith(PREFIX);
+    }
+
+    /**
+     * Get the staged properties of {@code opts}.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @return unmodifiable staged properties
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @since 1.0.0
+     */
+    static Map<String, String> of(FileSystemOptions opts) {
+        return JcifsngConfigBuilder.getInstance().getStagedProperties(Objects.requireNonNull(opts));
+    }
+
+    /**
+     * Get the property value as {@code int}.
+     *
+     * @param props the properties
+     * @param name property name
+     * @param defaultValue value if the property is not set
+     * @return the property value
+     * @throws NullPointerException if {@code props} or {@code name} is {@code null}
+     * @throws IllegalArgumentException if the property value is not an {@code int}
+     * @since 1.0.0
+     */
+    static int getInt(Map<String, String> props, String name, int defaultValue) {
+
+        String value = props.get(Objects.requireNonNull(name));
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Property [%s] must be int.".formatted(name), ex);
+        }
+
+    }
+
+    /**
+     * Get the property value as {@code long}.
+     *
+     * @param props the properties
+     * @param name property name
+     * @param defaultValue value if the property is not set
+     * @return the property value
+     * @throws NullPointerException if {@code props} or {@code name} is {@code null}
+     * @throws IllegalArgumentException if the property value is not a {@code long}
+     * @since 1.0.0
+     */
+    static long getLong(Map<String, String> props, String name, long defaultValue) {
+
+        String value = props.get(Objects.requireNonNull(name));
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Property [%s] must be long.".formatted(name), ex);
+        }
+
+    }
+
+    /**
+     * Get the property value as positive {@code int}.
+     *
+     * @param props the properties
+     * @param name property name
+     * @param defaultValue value if the property is not set
+     * @return the property value
+     * @throws NullPointerException if {@code props} or {@code name} is {@code null}
+     * @throws IllegalArgumentException if the property value is not a positive {@code int}
+     * @since 1.0.0
+     */
+    static int getPositiveInt(Map<String, String> props, String name, int defaultValue) {
+
+        int value = getInt(props, name, defaultValue);
+
+        if (value < 1) {
+            throw new IllegalArgumentException("Property [%s] must be positive.".formatted(name));
+        }
+
+        return value;
+
+    }
+}
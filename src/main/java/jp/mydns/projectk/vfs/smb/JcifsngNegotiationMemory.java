@@ -0,0 +1,555 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import jcifs.CIFSException;
+import jcifs.Configuration;
+import jcifs.DialectVersion;
+import jcifs.SmbTreeHandle;
+import jcifs.smb.SmbFile;
+import jcifs.smb.SmbTreeHandleInternal;
+import jcifs.util.transport.TransportException;
+
+/**
+ * Per-host memory of the SMB negotiation. It is used to narrow the negotiation and the transport attempts on later
+ * connects.
+ * <p>
+ * The memory holds, per host, the negotiated dialect, the maximum read, write and transaction sizes of the server, and
+ * the port of the transport that succeeded. The record expires after the TTL, and it is invalidated when the
+ * negotiation with the host fails. The memory can be persisted as JSON.
+ * <p>
+ * JCIFS-NG exposes only whether the SMB2 or later is negotiated, so the dialect that is captured from a connection is
+ * either {@link DialectVersion#SMB1} or {@link DialectVersion#SMB202}. The narrowing raises {@link MinimumVersion} to
+ * the recorded dialect, or lowers {@link MaximumVersion} to SMB1 to skip the SMB2 negotiation. If the direct TCP
+ * transport is confirmed to have succeeded, {@link ClientPort139Enabled} is disabled to skip the fallback to the
+ * NetBIOS transport.
+ * <p>
+ * The memory is not wired into the connections by itself. The caller narrows the plan by
+ * {@link JcifsngOptionPlan#narrow(String)} before preparing the context, and connects by {@link #connect(SmbFile)},
+ * that records the negotiation and invalidates the record on the failure. The negotiations observed elsewhere can be
+ * recorded by {@link #record(String, Negotiation)} and invalidated by {@link #invalidateOn(String, Throwable)}.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see JcifsngOptionPlan#narrow(String)
+ */
+public final class JcifsngNegotiationMemory {
+
+    /**
+     * Port of the direct TCP transport.
+     *
+     * @since 1.0.0
+     */
+    public static final int DIRECT_PORT = 445;
+
+    /**
+     * Port of the NetBIOS transport.
+     *
+     * @since 1.0.0
+     */
+    public static final int NETBIOS_PORT = 139;
+
+    private static final JcifsngNegotiationMemory INSTANCE
+            = new JcifsngNegotiationMemory(Duration.ofHours(1), Clock.systemUTC());
+
+    private final ConcurrentMap<String, Record> records = new ConcurrentHashMap<>();
+
+    private final Duration ttl;
+
+    private final Clock clock;
+
+    /**
+     * Constructor.
+     *
+     * @param ttl time to live of the record
+     * @param clock the clock
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    JcifsngNegotiationMemory(Duration ttl, Clock clock) {
+        this.ttl = Objects.requireNonNull(ttl);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Get the process-wide instance. The TTL of the record is 1 hour.
+     *
+     * @return the process-wide instance
+     * @since 1.0.0
+     */
+    public static JcifsngNegotiationMemory getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record the negotiation with the host.
+     *
+     * @param host the host name
+     * @param negotiation the negotiation
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    public void record(String host, Negotiation negotiation) {
+        records.put(normalize(host), new Record(negotiation, clock.instant().plus(ttl)));
+    }
+
+    /**
+     * Connect to the tree of the file, and record the negotiation with its host. If the negotiation or the transport
+     * fails, the record of the host is invalidated and the failure is thrown.
+     * <p>
+     * JCIFS-NG does not expose the port of the transport that succeeded, so the port is recorded only if no other port
+     * could have been tried: the port of the URL other than the default, or {@link #DIRECT_PORT} if the fallback to
+     * the NetBIOS transport is disabled. Otherwise it is recorded as unknown, and {@link ClientPort139Enabled} is not
+     * narrowed.
+     *
+     * @param file the SMB file
+     * @return the recorded negotiation
+     * @throws NullPointerException if {@code file} is {@code null}
+     * @throws CIFSException if cannot connect to the tree
+     * @since 1.0.0
+     */
+    public Negotiation connect(SmbFile file) throws CIFSException {
+
+        String host = file.getURL().getHost();
+
+        try (SmbTreeHandle handle = file.getTreeHandle()) {
+
+            Negotiation negotiation = Negotiation.of(handle, confirmedPort(file));
+
+            record(host, negotiation);
+
+            return negotiation;
+
+        } catch (CIFSException | RuntimeException ex) {
+            invalidateOn(host, ex);
+            throw ex;
+        }
+
+    }
+
+    /**
+     * Get the port that the transport to the file is confirmed to use.
+     *
+     * @param file the SMB file
+     * @return the port of the URL other than {@link #DIRECT_PORT}, or {@link #DIRECT_PORT} if the NetBIOS fallback is
+     * disabled. Otherwise zero.
+     * @throws NullPointerException if {@code file} is {@code null}
+     * @since 1.0.0
+     */
+    static int confirmedPort(SmbFile file) {
+
+        // The URL handler of JCIFS-NG defaults the port to the direct TCP, that still falls back to the NetBIOS.
+        int port = file.getURL().getPort();
+
+        if (port > 0 && port != DIRECT_PORT) {
+            return port;
+        }
+
+        return file.getContext().getConfig().isPort139FailoverEnabled() ? 0 : DIRECT_PORT;
+
+    }
+
+    /**
+     * Lookup the negotiation with the host. The expired record is removed.
+     *
+     * @param host the host name
+     * @return the negotiation. It is empty if not recorded or expired.
+     * @throws NullPointerException if {@code host} is {@code null}
+     * @since 1.0.0
+     */
+    public Optional<Negotiation> lookup(String host) {
+
+        String key = normalize(host);
+        Record record = records.get(key);
+
+        if (record == null) {
+            return Optional.empty();
+        }
+
+        if (!clock.instant().isBefore(record.expiry)) {
+            records.remove(key, record);
+            return Optional.empty();
+        }
+
+        return Optional.of(record.negotiation);
+
+    }
+
+    /**
+     * Invalidate the record of the host.
+     *
+     * @param host the host name
+     * @throws NullPointerException if {@code host} is {@code null}
+     * @since 1.0.0
+     */
+    public void invalidate(String host) {
+        records.remove(normalize(host));
+    }
+
+    /**
+     * Invalidate the record of the host if the {@code failure} is a failure of the negotiation or the transport.
+     *
+     * @param host the host name
+     * @param failure the failure of connecting to the host
+     * @return {@code true} if invalidated
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    public boolean invalidateOn(String host, Throwable failure) {
+
+        Objects.requireNonNull(host);
+
+        for (Throwable t = Objects.requireNonNull(failure); t != null; t = t.getCause()) {
+
+            if (t instanceof TransportException || t instanceof ConnectException
+                    || t instanceof SocketTimeoutException) {
+
+                invalidate(host);
+                return true;
+
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Get the options that narrow the negotiation with the host within the {@code config}.
+     *
+     * @param host the host name
+     * @param config the JCIFS-NG configuration to narrow
+     * @return unmodifiable options that narrow the negotiation. It is empty if not recorded or nothing to narrow.
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    public List<JcifsngOption> narrowing(String host, Configuration config) {
+
+        Objects.requireNonNull(config);
+
+        Negotiation negotiation = lookup(host).orElse(null);
+
+        if (negotiation == null) {
+            return List.of();
+        }
+
+        List<JcifsngOption> options = new ArrayList<>();
+        DialectVersion dialect = negotiation.getDialect();
+        DialectVersion min = config.getMinimumVersion();
+        DialectVersion max = config.getMaximumVersion();
+
+        if (dialect == DialectVersion.SMB1) {
+            if (min == DialectVersion.SMB1 && max != DialectVersion.SMB1) {
+                options.add(new MaximumVersion(DialectVersion.SMB1));
+            }
+        } else if (max.atLeast(dialect) && !min.atLeast(dialect)) {
+            options.add(new MinimumVersion(dialect));
+        }
+
+        if (negotiation.getPort() == DIRECT_PORT && config.isPort139FailoverEnabled()) {
+            options.add(new ClientPort139Enabled(false));
+        }
+
+        return List.copyOf(options);
+
+    }
+
+    /**
+     * Get the JSON representation of the records that not expired.
+     *
+     * @return JSON object of the host and record pairs
+     * @see #load(JsonObject)
+     * @since 1.0.0
+     */
+    public JsonObject toJson() {
+
+        JsonObjectBuilder builder = Json.createObjectBuilder();
+        Instant now = clock.instant();
+
+        for (Map.Entry<String, Record> entry : records.entrySet()) {
+
+            Record record = entry.getValue();
+
+            if (now.isBefore(record.expiry)) {
+                builder.add(entry.getKey(), record.negotiation.toJsonBuilder().add("expiry",
+                        record.expiry.toString()));
+            }
+
+        }
+
+        return builder.build();
+
+    }
+
+    /**
+     * Load the records from the JSON representation. The expired records are ignored.
+     *
+     * @param json JSON object of the host and record pairs
+     * @throws NullPointerException if {@code json} is {@code null}
+     * @throws IllegalArgumentException if {@code json} is malformed
+     * @see #toJson()
+     * @since 1.0.0
+     */
+    public void load(JsonObject json) {
+
+        Instant now = clock.instant();
+        Map<String, Record> loaded = new ConcurrentHashMap<>();
+
+        try {
+
+            for (Map.Entry<String, JsonValue> entry : json.entrySet()) {
+
+                JsonObject value = entry.getValue().asJsonObject();
+                Instant expiry = Instant.parse(value.getString("expiry"));
+
+                if (now.isBefore(expiry)) {
+                    loaded.put(normalize(entry.getKey()), new Record(Negotiation.of(value), expiry));
+                }
+
+            }
+
+        } catch (ClassCastException | NullPointerException | DateTimeException ex) {
+            throw new IllegalArgumentException("Malformed negotiation memory.", ex);
+        }
+
+        records.putAll(loaded);
+
+    }
+
+    /**
+     * Get the number of the records.
+     *
+     * @return the number of the records that includes expired
+     * @since 1.0.0
+     */
+    int size() {
+        return records.size();
+    }
+
+    private static String normalize(String host) {
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Record {
+
+        final Negotiation negotiation;
+
+        final Instant expiry;
+
+        Record(Negotiation negotiation, Instant expiry) {
+            this.negotiation = Objects.requireNonNull(negotiation);
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * Result of the negotiation with a host.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is immutable and thread-safe.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static final class Negotiation {
+
+        private final DialectVersion dialect;
+
+        private final int maxReadSize;
+
+        private final int maxWriteSize;
+
+        private final int maxTransactSize;
+
+        private final int port;
+
+        /**
+         * Constructor.
+         *
+         * @param dialect the negotiated dialect
+         * @param maxReadSize the maximum read size of the server
+         * @param maxWriteSize the maximum write size of the server
+         * @param maxTransactSize the maximum transaction size of the server
+         * @param port port of the transport that succeeded. Zero if unknown.
+         * @throws NullPointerException if {@code dialect} is {@code null}
+         * @since 1.0.0
+         */
+        public Negotiation(DialectVersion dialect, int maxReadSize, int maxWriteSize, int maxTransactSize, int port) {
+            this.dialect = Objects.requireNonNull(dialect);
+            this.maxReadSize = maxReadSize;
+            this.maxWriteSize = maxWriteSize;
+            this.maxTransactSize = maxTransactSize;
+            this.port = port;
+        }
+
+        /**
+         * Get the negotiation of the connected tree.
+         *
+         * @param handle the connected tree handle
+         * @param port the confirmed port of the transport. Zero if unknown.
+         * @return the negotiation
+         * @throws NullPointerException if {@code handle} is {@code null}
+         * @throws CIFSException if cannot get the negotiated sizes
+         * @since 1.0.0
+         * @see JcifsngNegotiationMemory#confirmedPort(SmbFile)
+         */
+        static Negotiation of(SmbTreeHandle handle, int port) throws CIFSException {
+
+            DialectVersion dialect = handle.isSMB2() ? DialectVersion.SMB202 : DialectVersion.SMB1;
+
+            if (handle instanceof SmbTreeHandleInternal h) {
+                return new Negotiation(dialect, h.getReceiveBufferSize(), h.getSendBufferSize(),
+                        h.getMaximumBufferSize(), port);
+            }
+
+            return new Negotiation(dialect, 0, 0, 0, port);
+
+        }
+
+        static Negotiation of(JsonObject json) {
+            return new Negotiation(DialectVersion.valueOf(json.getString("dialect")), json.getInt("maxReadSize"),
+                    json.getInt("maxWriteSize"), json.getInt("maxTransactSize"), json.getInt("port"));
+        }
+
+        JsonObjectBuilder toJsonBuilder() {
+            return Json.createObjectBuilder().add("dialect", dialect.name()).add("maxReadSize", maxReadSize)
+                    .add("maxWriteSize", maxWriteSize).add("maxTransactSize", maxTransactSize).add("port", port);
+        }
+
+        /**
+         * Get the negotiated dialect.
+         *
+         * @return the negotiated dialect
+         * @since 1.0.0
+         */
+        public DialectVersion getDialect() {
+            return dialect;
+        }
+
+        /**
+         * Get the maximum read size of the server.
+         *
+         * @return the maximum read size. Zero if unknown.
+         * @since 1.0.0
+         */
+        public int getMaxReadSize() {
+            return maxReadSize;
+        }
+
+        /**
+         * Get the maximum write size of the server.
+         *
+         * @return the maximum write size. Zero if unknown.
+         * @since 1.0.0
+         */
+        public int getMaxWriteSize() {
+            return maxWriteSize;
+        }
+
+        /**
+         * Get the maximum transaction size of the server.
+         *
+         * @return the maximum transaction size. Zero if unknown.
+         * @since 1.0.0
+         */
+        public int getMaxTransactSize() {
+            return maxTransactSize;
+        }
+
+        /**
+         * Get the port of the transport that succeeded.
+         *
+         * @return the port. Zero if unknown.
+         * @since 1.0.0
+         */
+        public int getPort() {
+            return port;
+        }
+
+        /**
+         * Returns a hash code value.
+         *
+         * @return a hash code value
+         * @since 1.0.0
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(dialect, maxReadSize, maxWriteSize, maxTransactSize, port);
+        }
+
+        /**
+         * Indicates that other object is equal to this one.
+         *
+         * @param other an any object
+         * @return {@code true} if equals otherwise {@code false}
+         * @since 1.0.0
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Negotiation o && dialect == o.dialect && maxReadSize == o.maxReadSize
+                    && maxWriteSize == o.maxWriteSize && maxTransactSize == o.maxTransactSize && port == o.port;
+        }
+
+        /**
+         * Returns a string representation of this.
+         *
+         * @return string representation
+         * @since 1.0.0
+         */
+        @Override
+        public String toString() {
+            return "Negotiation" + toJsonBuilder().build();
+        }
+    }
+}
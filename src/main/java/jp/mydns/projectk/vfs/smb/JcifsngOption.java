@@ -25,19 +25,21 @@
  */
 package jp.mydns.projectk.vfs.smb;
 
+import jakarta.json.Json;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
-import jcifs.CIFSContext;
-import jcifs.CIFSException;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import jcifs.config.PropertyConfiguration;
-import jcifs.context.BaseContext;
 import jp.mydns.projectk.vfs.AbstractFileOption;
-import jp.mydns.projectk.vfs.provider.jcifsng.SmbFileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 
@@ -46,7 +48,8 @@ import org.apache.commons.vfs2.FileSystemOptions;
  * <p>
  * Implementation requirements.
  * <ul>
- * <li>This class is immutable and thread-safe.</li>
+ * <li>This class is thread-safe. Its value is immutable, and only the string representation is cached on first
+ * use.</li>
  * <li>This class and JSON can be converted bidirectionally.</li>
  * <li>Can reflect this class on the {@link FileSystemOptions}.</li>
  * </ul>
@@ -57,6 +60,8 @@ import org.apache.commons.vfs2.FileSystemOptions;
  */
 public abstract class JcifsngOption extends AbstractFileOption {
 
+    private volatile String text;
+
     /**
      * Get the option name of JCIFS-NG.
      * <p>
@@ -87,7 +92,9 @@ public abstract class JcifsngOption extends AbstractFileOption {
     /**
      * {@inheritDoc}
      * <p>
-     * Applying to {@code opts} via {@link Properties}.
+     * Applying to {@code opts} via {@link Properties}. The property of this option is staged together with the
+     * properties of other {@code JcifsngOption} that applied to the same {@code opts} before. The JCIFS-NG context is
+     * built from all of them on first use.
      *
      * @throws NullPointerException if {@code opts} is {@code null}
      * @throws FileSystemException if cannot apply this configuration
@@ -98,19 +105,117 @@ public abstract class JcifsngOption extends AbstractFileOption {
     @Override
     public void apply(FileSystemOptions opts) throws FileSystemException {
 
-        Properties props = new Properties();
-        props.setProperty(getJcifsngOptionName(), getValueAsText());
+        stage(Objects.requireNonNull(opts));
+
+        JcifsngConfigBuilder.getInstance().prepare(opts);
+
+    }
+
+    /**
+     * Stage the property of this option to {@code opts} without building the JCIFS-NG context.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @since 1.0.0
+     */
+    void stage(FileSystemOptions opts) {
+
+        JcifsngConfigBuilder.getInstance().stage(opts, getJcifsngOptionName(), getValueAsText());
+
+    }
+
+    /**
+     * Collect the properties of this option to {@code props}. The default implementation puts the JCIFS-NG option name
+     * and the option value.
+     *
+     * @param props JCIFS-NG properties
+     * @throws NullPointerException if {@code props} is {@code null}
+     * @since 1.0.0
+     */
+    void collect(Map<String, String> props) {
+
+        props.put(getJcifsngOptionName(), getValueAsText());
+
+    }
+
+    /**
+     * Applying all {@code options} to {@code opts}. All properties are staged at once, and the JCIFS-NG context is
+     * built from them on first use. If contains options with the same JCIFS-NG option name, the later one takes
+     * effect.
+     *
+     * @param options the {@code JcifsngOption}s
+     * @param opts the {@code FileSystemOptions}
+     * @throws NullPointerException if any argument is {@code null} or if contains {@code null} in {@code options}
+     * @throws IllegalArgumentException if the options are inconsistent with each other
+     * @throws FileSystemException if cannot apply these configurations
+     * @since 1.0.0
+     * @see JcifsngOptionValidator
+     */
+    public static void applyAll(Collection<? extends JcifsngOption> options, FileSystemOptions opts)
+            throws FileSystemException {
+
+        Objects.requireNonNull(options);
+        Objects.requireNonNull(opts);
 
-        final CIFSContext jcifsContext;
+        SortedMap<String, String> props = new TreeMap<>();
 
-        try {
-            jcifsContext = new BaseContext(new PropertyConfiguration(props));
-        } catch (CIFSException ex) {
-            throw new FileSystemException(ex);
+        for (JcifsngOption option : options) {
+            option.collect(props);
         }
 
-        SmbFileSystemConfigBuilder.getInstance().setCIFSContext(opts, jcifsContext);
+        JcifsngOptionValidator.requireValid(props, JcifsngOptionValidator.newConfiguration(props));
 
+        JcifsngConfigBuilder builder = JcifsngConfigBuilder.getInstance();
+
+        builder.stageAll(opts, props);
+        builder.prepare(opts);
+
+    }
+
+    /**
+     * Get the canonical instance that equals to {@code option}. The options with the same class and value are shared,
+     * so that they are cheap to hold and are compared by identity.
+     *
+     * @param <T> type of the option
+     * @param option the option
+     * @return the canonical instance. It may be {@code option} itself.
+     * @throws NullPointerException if {@code option} is {@code null}
+     * @since 1.0.0
+     */
+    public static <T extends JcifsngOption> T intern(T option) {
+        return JcifsngOptionInterner.intern(Objects.requireNonNull(option));
+    }
+
+    /**
+     * Returns a string representation of this. It is built on first call and reused after.
+     *
+     * @return string representation
+     * @since 1.0.0
+     */
+    @Override
+    public String toString() {
+
+        String current = text;
+
+        if (current == null) {
+            current = Json.createObjectBuilder().add(getName(), getValue()).build().toString();
+            text = current;
+        }
+
+        return current;
+
+    }
+
+    /**
+     * Compute the hash code from the option class and the hash code of the option value.
+     *
+     * @param optionClass the option class
+     * @param valueHash hash code of the option value
+     * @return the hash code
+     * @since 1.0.0
+     */
+    static int hash(Class<?> optionClass, int valueHash) {
+        return 31 * optionClass.getName().hashCode() + valueHash;
     }
 
     /**
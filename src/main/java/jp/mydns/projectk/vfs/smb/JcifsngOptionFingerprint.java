@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Stable 128-bit fingerprint of a set of the {@link JcifsngOption}s.
+ * <p>
+ * Each option is hashed from its JCIFS-NG option name and its value text with MurmurHash3 (x64, 128-bit, seed 0), and
+ * the hashes are summed modulo 2<sup>128</sup>. So the fingerprint does not depend on the order of the options or on
+ * the JVM, and adding or removing an option does not rehash the other options.
+ * <p>
+ * The credentials ({@link ClientDefaultUserName}, {@link ClientDefaultPassword}, {@link ClientDefaultDomain},
+ * {@link ClientGuestUserName} and {@link ClientGuestPassword}) are left out, because the fingerprint is shared as a key
+ * and a fast unkeyed hash of a password can be brute forced offline. So the fingerprint identifies the configuration,
+ * not the principal.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngOptionFingerprint {
+
+    /**
+     * Fingerprint of the empty set.
+     *
+     * @since 1.0.0
+     */
+    public static final JcifsngOptionFingerprint EMPTY = new JcifsngOptionFingerprint(0L, 0L);
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+
+    private final long low;
+
+    private JcifsngOptionFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Get the fingerprint of the {@code options}. If contains options with the same JCIFS-NG option name, the later one
+     * takes effect like {@link JcifsngOption#applyAll(Collection, org.apache.commons.vfs2.FileSystemOptions)}.
+     *
+     * @param options the {@code JcifsngOption}s
+     * @return the fingerprint
+     * @throws NullPointerException if {@code options} is {@code null} or if contains {@code null} in {@code options}
+     * @since 1.0.0
+     */
+    public static JcifsngOptionFingerprint of(Collection<? extends JcifsngOption> options) {
+
+        SortedMap<String, String> props = new TreeMap<>();
+
+        for (JcifsngOption option : options) {
+            option.collect(props);
+        }
+
+        return of(props);
+
+    }
+
+    /**
+     * Get the fingerprint of the JCIFS-NG properties.
+     *
+     * @param props JCIFS-NG properties
+     * @return the fingerprint
+     * @throws NullPointerException if {@code props} is {@code null} or if contains {@code null} in {@code props}
+     * @since 1.0.0
+     */
+    public static JcifsngOptionFingerprint of(Map<String, String> props) {
+
+        JcifsngOptionFingerprint result = EMPTY;
+
+        for (Map.Entry<String, String> prop : props.entrySet()) {
+            result = result.plus(prop.getKey(), prop.getValue());
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Parse the string representation of the fingerprint.
+     *
+     * @param text 32 hexadecimal digits
+     * @return the fingerprint
+     * @throws NullPointerException if {@code text} is {@code null}
+     * @throws IllegalArgumentException if {@code text} is not 32 hexadecimal digits
+     * @see #toString()
+     * @since 1.0.0
+     */
+    public static JcifsngOptionFingerprint parse(String text) {
+
+        if (Objects.requireNonNull(text).length() != 32) {
+            throw new IllegalArgumentException("Fingerprint must be 32 hexadecimal digits.");
+        }
+
+        try {
+            return new JcifsngOptionFingerprint(HexFormat.fromHexDigitsToLong(text, 0, 16),
+                    HexFormat.fromHexDigitsToLong(text, 16, 32));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Fingerprint must be 32 hexadecimal digits.", ex);
+        }
+
+    }
+
+    /**
+     * Get the fingerprint that the {@code option} is added.
+     *
+     * @param option the {@code JcifsngOption}
+     * @return the fingerprint
+     * @throws NullPointerException if {@code option} is {@code null}
+     * @since 1.0.0
+     */
+    public JcifsngOptionFingerprint plus(JcifsngOption option) {
+
+        JcifsngOptionFingerprint result = this;
+
+        for (Map.Entry<String, String> prop : properties(option).entrySet()) {
+            result = result.plus(prop.getKey(), prop.getValue());
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Get the fingerprint that the {@code option} is removed. The {@code option} must have been added.
+     *
+     * @param option the {@code JcifsngOption}
+     * @return the fingerprint
+     * @throws NullPointerException if {@code option} is {@code null}
+     * @since 1.0.0
+     */
+    public JcifsngOptionFingerprint minus(JcifsngOption option) {
+
+        JcifsngOptionFingerprint result = this;
+
+        for (Map.Entry<String, String> prop : properties(option).entrySet()) {
+            result = result.minus(prop.getKey(), prop.getValue());
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Get the fingerprint that the JCIFS-NG property is added. The credentials are ignored.
+     *
+     * @param name JCIFS-NG property name
+     * @param value JCIFS-NG property value
+     * @return the fingerprint
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    JcifsngOptionFingerprint plus(String name, String value) {
+
+        if (JcifsngCredentialContext.NAMES.contains(name)) {
+            return this;
+        }
+
+        long[] h = hash(name, value);
+        long sumLow = low + h[1];
+        long carry = Long.compareUnsigned(sumLow, low) < 0 ? 1L : 0L;
+
+        return new JcifsngOptionFingerprint(high + h[0] + carry, sumLow);
+
+    }
+
+    /**
+     * Get the fingerprint that the JCIFS-NG property is removed. The credentials are ignored.
+     *
+     * @param name JCIFS-NG property name
+     * @param value JCIFS-NG property value
+     * @return the fingerprint
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    JcifsngOptionFingerprint minus(String name, String value) {
+
+        if (JcifsngCredentialContext.NAMES.contains(name)) {
+            return this;
+        }
+
+        long[] h = hash(name, value);
+        long diffLow = low - h[1];
+        long borrow = Long.compareUnsigned(low, h[1]) < 0 ? 1L : 0L;
+
+        return new JcifsngOptionFingerprint(high - h[0] - borrow, diffLow);
+
+    }
+
+    private static Map<String, String> properties(JcifsngOption option) {
+
+        Map<String, String> props = new TreeMap<>();
+
+        option.collect(props);
+
+        return props;
+
+    }
+
+    private static long[] hash(String name, String value) {
+
+        byte[] n = name.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[n.length + 1 + v.length];
+
+        System.arraycopy(n, 0, data, 0, n.length);
+        System.arraycopy(v, 0, data, n.length + 1, v.length);
+
+        return murmur3x64128(data);
+
+    }
+
+    static long[] murmur3x64128(byte[] data) {
+
+        long h1 = 0L;
+        long h2 = 0L;
+        int blocks = data.length / 16;
+
+        for (int i = 0; i < blocks; i++) {
+
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+
+        }
+
+        int tail = blocks * 16;
+        long k1 = 0L;
+        long k2 = 0L;
+
+        for (int i = data.length - tail - 1; i >= 0; i--) {
+
+            long b = data[tail + i] & 0xffL;
+
+            if (i >= 8) {
+                k2 |= b << ((i - 8) * 8);
+            } else {
+                k1 |= b << (i * 8);
+            }
+
+        }
+
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        h1 ^= data.length;
+        h2 ^= data.length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        return new long[]{h1, h2};
+
+    }
+
+    private static long getLong(byte[] data, int offset) {
+
+        long result = 0L;
+
+        for (int i = 7; i >= 0; i--) {
+            result = (result << 8) | (data[offset + i] & 0xffL);
+        }
+
+        return result;
+
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(long k) {
+
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+
+        return k;
+
+    }
+
+    /**
+     * Returns a hash code value.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    /**
+     * Indicates that other object is equal to this one.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof JcifsngOptionFingerprint o && high == o.high && low == o.low;
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return 32 hexadecimal digits
+     * @since 1.0.0
+     */
+    @Override
+    public String toString() {
+        return HexFormat.of().toHexDigits(high) + HexFormat.of().toHexDigits(low);
+    }
+}
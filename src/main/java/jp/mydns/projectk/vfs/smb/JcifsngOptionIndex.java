@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+import java.util.stream.Stream;
+import jp.mydns.projectk.vfs.FileOption;
+
+/**
+ * Index of the {@link JcifsngOption} by the {@link FileOption.Name}.
+ * <p>
+ * This is an alternative of looking up the {@link FileOption.Resolver} via the {@link ServiceLoader} for the
+ * {@code smb:} namespace. The lookup is done in constant time, the {@code FileOption.Resolver} is instantiated on first
+ * lookup, and the {@code JcifsngOption} is constructed without reflection and is interned. The annotations are read
+ * only once when this class is initialized.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngOptionIndex {
+
+    private static final Map<String, Entry> ENTRIES = Stream.of(
+            entry(AllowNtlmFallback.class, AllowNtlmFallback.Resolver::new, AllowNtlmFallback::new),
+            entry(BlockCacheBlockSize.class, BlockCacheBlockSize.Resolver::new, BlockCacheBlockSize::new),
+            entry(BlockCacheCapacity.class, BlockCacheCapacity.Resolver::new, BlockCacheCapacity::new),
+            entry(BufferCacheSize.class, BufferCacheSize.Resolver::new, BufferCacheSize::new),
+            entry(ClientAllowGuestFallback.class, ClientAllowGuestFallback.Resolver::new,
+                    ClientAllowGuestFallback::new),
+            entry(ClientAttributeCacheTimeout.class, ClientAttributeCacheTimeout.Resolver::new,
+                    ClientAttributeCacheTimeout::new),
+            entry(ClientCapabilities.class, ClientCapabilities.Resolver::new, ClientCapabilities::new),
+            entry(ClientConnectionTimeout.class, ClientConnectionTimeout.Resolver::new, ClientConnectionTimeout::new),
+            entry(ClientDefaultDomain.class, ClientDefaultDomain.Resolver::new, ClientDefaultDomain::new),
+            entry(ClientDefaultPassword.class, ClientDefaultPassword.Resolver::new, ClientDefaultPassword::new),
+            entry(ClientDefaultUserName.class, ClientDefaultUserName.Resolver::new, ClientDefaultUserName::new),
+            entry(ClientDfsConvertToFqdn.class, ClientDfsConvertToFqdn.Resolver::new, ClientDfsConvertToFqdn::new),
+            entry(ClientDfsDisabled.class, ClientDfsDisabled.Resolver::new, ClientDfsDisabled::new),
+            entry(ClientDfsStrictView.class, ClientDfsStrictView.Resolver::new, ClientDfsStrictView::new),
+            entry(ClientDfsTtl.class, ClientDfsTtl.Resolver::new, ClientDfsTtl::new),
+            entry(ClientDisableIdleTimeout.class, ClientDisableIdleTimeout.Resolver::new,
+                    ClientDisableIdleTimeout::new),
+            entry(ClientDisablePlainTextPasswords.class, ClientDisablePlainTextPasswords.Resolver::new,
+                    ClientDisablePlainTextPasswords::new),
+            entry(ClientDisableSpnegoIntegrity.class, ClientDisableSpnegoIntegrity.Resolver::new,
+                    ClientDisableSpnegoIntegrity::new),
+            entry(ClientEncryptionEnabled.class, ClientEncryptionEnabled.Resolver::new, ClientEncryptionEnabled::new),
+            entry(ClientEnforceSpnegoIntegrity.class, ClientEnforceSpnegoIntegrity.Resolver::new,
+                    ClientEnforceSpnegoIntegrity::new),
+            entry(ClientFlags2.class, ClientFlags2.Resolver::new, ClientFlags2::new),
+            entry(ClientForceExtendedSecurity.class, ClientForceExtendedSecurity.Resolver::new,
+                    ClientForceExtendedSecurity::new),
+            entry(ClientForceUnicode.class, ClientForceUnicode.Resolver::new, ClientForceUnicode::new),
+            entry(ClientGuestPassword.class, ClientGuestPassword.Resolver::new, ClientGuestPassword::new),
+            entry(ClientGuestUserName.class, ClientGuestUserName.Resolver::new, ClientGuestUserName::new),
+            entry(ClientIgnoreCopyToExceptions.class, ClientIgnoreCopyToExceptions.Resolver::new,
+                    ClientIgnoreCopyToExceptions::new),
+            entry(ClientIpcSigningEnforced.class, ClientIpcSigningEnforced.Resolver::new,
+                    ClientIpcSigningEnforced::new),
+            entry(ClientListCount.class, ClientListCount.Resolver::new, ClientListCount::new),
+            entry(ClientListSize.class, ClientListSize.Resolver::new, ClientListSize::new),
+            entry(ClientLocalAddress.class, ClientLocalAddress.Resolver::new, ClientLocalAddress::new),
+            entry(ClientLocalPort.class, ClientLocalPort.Resolver::new, ClientLocalPort::new),
+            entry(ClientLogonShare.class, ClientLogonShare.Resolver::new, ClientLogonShare::new),
+            entry(ClientMaxMpxCount.class, ClientMaxMpxCount.Resolver::new, ClientMaxMpxCount::new),
+            entry(ClientMaxRequestRetries.class, ClientMaxRequestRetries.Resolver::new, ClientMaxRequestRetries::new),
+            entry(ClientNativeLanman.class, ClientNativeLanman.Resolver::new, ClientNativeLanman::new),
+            entry(ClientNativeOs.class, ClientNativeOs.Resolver::new, ClientNativeOs::new),
+            entry(ClientNotifyBufferSize.class, ClientNotifyBufferSize.Resolver::new, ClientNotifyBufferSize::new),
+            entry(ClientPort139Enabled.class, ClientPort139Enabled.Resolver::new, ClientPort139Enabled::new),
+            entry(ClientReceiveBufferSize.class, ClientReceiveBufferSize.Resolver::new, ClientReceiveBufferSize::new),
+            entry(ClientRequireSecureNegotiate.class, ClientRequireSecureNegotiate.Resolver::new,
+                    ClientRequireSecureNegotiate::new),
+            entry(ClientResponseTimeout.class, ClientResponseTimeout.Resolver::new, ClientResponseTimeout::new),
+            entry(ClientSendBufferSize.class, ClientSendBufferSize.Resolver::new, ClientSendBufferSize::new),
+            entry(ClientSendNtlmTargetName.class, ClientSendNtlmTargetName.Resolver::new,
+                    ClientSendNtlmTargetName::new),
+            entry(ClientSessionLimit.class, ClientSessionLimit.Resolver::new, ClientSessionLimit::new),
+            entry(ClientSessionTimeout.class, ClientSessionTimeout.Resolver::new, ClientSessionTimeout::new),
+            entry(ClientSigningEnforced.class, ClientSigningEnforced.Resolver::new, ClientSigningEnforced::new),
+            entry(ClientSigningPreferred.class, ClientSigningPreferred.Resolver::new, ClientSigningPreferred::new),
+            entry(ClientSocketTimeout.class, ClientSocketTimeout.Resolver::new, ClientSocketTimeout::new),
+            entry(ClientStrictResourceLifecycle.class, ClientStrictResourceLifecycle.Resolver::new,
+                    ClientStrictResourceLifecycle::new),
+            entry(ClientTcpNoDelay.class, ClientTcpNoDelay.Resolver::new, ClientTcpNoDelay::new),
+            entry(ClientTransactionBufferSize.class, ClientTransactionBufferSize.Resolver::new,
+                    ClientTransactionBufferSize::new),
+            entry(ClientUseBatching.class, ClientUseBatching.Resolver::new, ClientUseBatching::new),
+            entry(ClientUseExtendedSecurity.class, ClientUseExtendedSecurity.Resolver::new,
+                    ClientUseExtendedSecurity::new),
+            entry(ClientUseLargeReadWrite.class, ClientUseLargeReadWrite.Resolver::new, ClientUseLargeReadWrite::new),
+            entry(ClientUseNtSmbs.class, ClientUseNtSmbs.Resolver::new, ClientUseNtSmbs::new),
+            entry(ClientUseNtStatus.class, ClientUseNtStatus.Resolver::new, ClientUseNtStatus::new),
+            entry(ClientUseSmb2Negotiation.class, ClientUseSmb2Negotiation.Resolver::new,
+                    ClientUseSmb2Negotiation::new),
+            entry(ClientUseUnicode.class, ClientUseUnicode.Resolver::new, ClientUseUnicode::new),
+            entry(LmCompatibility.class, LmCompatibility.Resolver::new, LmCompatibility::new),
+            entry(MaximumVersion.class, MaximumVersion.Resolver::new, MaximumVersion::new),
+            entry(MetadataCacheCapacity.class, MetadataCacheCapacity.Resolver::new, MetadataCacheCapacity::new),
+            entry(MetadataCacheShareTtls.class, MetadataCacheShareTtls.Resolver::new, MetadataCacheShareTtls::new),
+            entry(MetadataCacheTtl.class, MetadataCacheTtl.Resolver::new, MetadataCacheTtl::new),
+            entry(MetadataCacheWatchedTtl.class, MetadataCacheWatchedTtl.Resolver::new, MetadataCacheWatchedTtl::new),
+            entry(MinimumVersion.class, MinimumVersion.Resolver::new, MinimumVersion::new),
+            entry(NetbiosBroadcastAddress.class, NetbiosBroadcastAddress.Resolver::new, NetbiosBroadcastAddress::new),
+            entry(NetbiosCachePolicy.class, NetbiosCachePolicy.Resolver::new, NetbiosCachePolicy::new),
+            entry(NetbiosHostname.class, NetbiosHostname.Resolver::new, NetbiosHostname::new),
+            entry(NetbiosLmhostsFilename.class, NetbiosLmhostsFilename.Resolver::new, NetbiosLmhostsFilename::new),
+            entry(NetbiosLocalAddress.class, NetbiosLocalAddress.Resolver::new, NetbiosLocalAddress::new),
+            entry(NetbiosLocalPort.class, NetbiosLocalPort.Resolver::new, NetbiosLocalPort::new),
+            entry(NetbiosReceiveBufferSize.class, NetbiosReceiveBufferSize.Resolver::new,
+                    NetbiosReceiveBufferSize::new),
+            entry(NetbiosRetryCount.class, NetbiosRetryCount.Resolver::new, NetbiosRetryCount::new),
+            entry(NetbiosRetryTimeout.class, NetbiosRetryTimeout.Resolver::new, NetbiosRetryTimeout::new),
+            entry(NetbiosScope.class, NetbiosScope.Resolver::new, NetbiosScope::new),
+            entry(NetbiosSendBufferSize.class, NetbiosSendBufferSize.Resolver::new, NetbiosSendBufferSize::new),
+            entry(NetbiosSocketTimeout.class, NetbiosSocketTimeout.Resolver::new, NetbiosSocketTimeout::new),
+            entry(NetbiosWins.class, NetbiosWins.Resolver::new, NetbiosWins::new),
+            entry(OemEncoding.class, OemEncoding.Resolver::new, OemEncoding::new),
+            entry(Profile.class, Profile.Resolver::new, Profile::new),
+            entry(ReadAheadInitialWindow.class, ReadAheadInitialWindow.Resolver::new, ReadAheadInitialWindow::new),
+            entry(ReadAheadMaxWindow.class, ReadAheadMaxWindow.Resolver::new, ReadAheadMaxWindow::new),
+            entry(ReadChunkSize.class, ReadChunkSize.Resolver::new, ReadChunkSize::new),
+            entry(ReadParallelism.class, ReadParallelism.Resolver::new, ReadParallelism::new),
+            entry(TraceResources.class, TraceResources.Resolver::new, TraceResources::new),
+            entry(UseRawNtlm.class, UseRawNtlm.Resolver::new, UseRawNtlm::new),
+            entry(WalkParallelism.class, WalkParallelism.Resolver::new, WalkParallelism::new),
+            entry(WriteBehindChunkSize.class, WriteBehindChunkSize.Resolver::new, WriteBehindChunkSize::new),
+            entry(WriteBehindMaxPending.class, WriteBehindMaxPending.Resolver::new, WriteBehindMaxPending::new),
+            entry(WriteChunkSize.class, WriteChunkSize.Resolver::new, WriteChunkSize::new),
+            entry(WriteParallelism.class, WriteParallelism.Resolver::new, WriteParallelism::new)
+    ).collect(toUnmodifiableMap(Entry::name, Function.identity()));
+
+    private JcifsngOptionIndex() {
+    }
+
+    /**
+     * Get the names of all indexed options.
+     *
+     * @return unmodifiable names of all indexed options
+     * @since 1.0.0
+     */
+    public static Set<String> names() {
+        return ENTRIES.keySet();
+    }
+
+    /**
+     * Get the {@link FileOption.Resolver} of the {@code name}. The resolver is instantiated on first lookup.
+     *
+     * @param name option name. e.g. {@code smb:bufferCacheSize}
+     * @return the {@code FileOption.Resolver}. It is empty if {@code name} is not indexed.
+     * @throws NullPointerException if {@code name} is {@code null}
+     * @since 1.0.0
+     */
+    public static Optional<FileOption.Resolver> getResolver(String name) {
+        return Optional.ofNullable(ENTRIES.get(Objects.requireNonNull(name))).map(Entry::resolver);
+    }
+
+    /**
+     * Get the {@link JcifsngOption} of the {@code name}. The option is interned by
+     * {@link JcifsngOption#intern(JcifsngOption)}.
+     *
+     * @param name option name. e.g. {@code smb:bufferCacheSize}
+     * @param value option value
+     * @return the {@code JcifsngOption}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code name} is not indexed, or if {@code value} is not valid for the option
+     * @since 1.0.0
+     */
+    public static JcifsngOption newInstance(String name, JsonValue value) {
+
+        Entry entry = ENTRIES.get(Objects.requireNonNull(name));
+
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown FileOption name [%s].".formatted(name));
+        }
+
+        return JcifsngOption.intern(entry.factory().apply(Objects.requireNonNull(value)));
+
+    }
+
+    /**
+     * Construct the {@link JcifsngOption}s from the JSON object of the option name and value pairs.
+     *
+     * @param options JSON object of the option name and value pairs
+     * @return unmodifiable {@code JcifsngOption}s in the order of {@code options}
+     * @throws NullPointerException if {@code options} is {@code null}
+     * @throws IllegalArgumentException if contains the name that not indexed, or if contains the illegal value
+     * @since 1.0.0
+     */
+    public static List<JcifsngOption> newInstances(JsonObject options) {
+
+        List<JcifsngOption> instances = new ArrayList<>(options.size());
+
+        for (Map.Entry<String, JsonValue> option : options.entrySet()) {
+            instances.add(newInstance(option.getKey(), option.getValue()));
+        }
+
+        return Collections.unmodifiableList(instances);
+
+    }
+
+    private static Entry entry(Class<? extends JcifsngOption> optionClass, Supplier<FileOption.Resolver> resolver,
+            Function<JsonValue, JcifsngOption> factory) {
+
+        return new Entry(optionClass.getAnnotation(FileOption.Name.class).value(), resolver, factory);
+
+    }
+
+    /**
+     * Indexed option.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    private static final class Entry {
+
+        private final String name;
+
+        private final Supplier<FileOption.Resolver> resolverSupplier;
+
+        private final Function<JsonValue, JcifsngOption> factory;
+
+        private volatile FileOption.Resolver resolver;
+
+        Entry(String name, Supplier<FileOption.Resolver> resolverSupplier, Function<JsonValue, JcifsngOption> factory) {
+            this.name = name;
+            this.resolverSupplier = resolverSupplier;
+            this.factory = factory;
+        }
+
+        String name() {
+            return name;
+        }
+
+        Function<JsonValue, JcifsngOption> factory() {
+            return factory;
+        }
+
+        FileOption.Resolver resolver() {
+
+            FileOption.Resolver current = resolver;
+
+            if (current == null) {
+                current = resolverSupplier.get();
+                resolver = current;
+            }
+
+            return current;
+
+        }
+    }
+}
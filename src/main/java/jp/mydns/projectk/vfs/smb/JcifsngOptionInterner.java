@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import jcifs.DialectVersion;
+
+/**
+ * Interner of the {@link JcifsngOption} instances.
+ * <p>
+ * The {@link JcifsngBooleanOption} and the {@link JcifsngDialectVersionOption} have only a few values, so they are
+ * interned into a fixed table for each option class. The other options are interned into a concurrent pool keyed by
+ * the option class and the value text, which holds the options weakly and is bounded by {@link #MAX_POOL_SIZE}. The
+ * entries of the collected options are expunged on the next intern. If the pool is full, the given option is returned
+ * as is. The credential options are not interned, so the pool never holds their value text, such as the password.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class JcifsngOptionInterner {
+
+    /**
+     * Maximum number of the options in the weak pool.
+     *
+     * @since 1.0.0
+     */
+    static final int MAX_POOL_SIZE = 4096;
+
+    private static final ClassValue<AtomicReferenceArray<JcifsngOption>> TABLES = new ClassValue<>() {
+        @Override
+        protected AtomicReferenceArray<JcifsngOption> computeValue(Class<?> type) {
+            return new AtomicReferenceArray<>(JcifsngDialectVersionOption.class.isAssignableFrom(type)
+                    ? DialectVersion.values().length : 2);
+        }
+    };
+
+    private static final ConcurrentMap<Key, Ref> POOL = new ConcurrentHashMap<>();
+
+    private static final ReferenceQueue<JcifsngOption> COLLECTED = new ReferenceQueue<>();
+
+    private JcifsngOptionInterner() {
+    }
+
+    /**
+     * Get the canonical instance that equals to {@code option}.
+     *
+     * @param <T> type of the option
+     * @param option the option
+     * @return the canonical instance. It is {@code option} itself if {@code option} becomes canonical or if the pool is
+     * full.
+     * @throws NullPointerException if {@code option} is {@code null}
+     * @since 1.0.0
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends JcifsngOption> T intern(T option) {
+
+        // The table is for each option class, and the pooled option equals only to the option of the same class.
+        if (option instanceof JcifsngBooleanOption o) {
+            return (T) fromTable(o, o.value ? 1 : 0);
+        }
+
+        if (option instanceof JcifsngDialectVersionOption o) {
+            return (T) fromTable(o, o.getDialectVersion().ordinal());
+        }
+
+        if (isCredential(option)) {
+            return option;
+        }
+
+        return (T) fromPool(option);
+
+    }
+
+    private static boolean isCredential(JcifsngOption option) {
+
+        JcifsngOption.Name name = option.getClass().getAnnotation(JcifsngOption.Name.class);
+
+        return name != null && JcifsngCredentialContext.NAMES.contains(name.value());
+
+    }
+
+    private static JcifsngOption fromTable(JcifsngOption option, int index) {
+
+        JcifsngOption witness = TABLES.get(option.getClass()).compareAndExchange(index, null, option);
+
+        return witness != null ? witness : option;
+
+    }
+
+    private static JcifsngOption fromPool(JcifsngOption option) {
+
+        expunge();
+
+        Key key = new Key(option.getClass(), option.getValueAsText());
+        Ref created = null;
+
+        while (true) {
+
+            Ref ref = POOL.get(key);
+            JcifsngOption canonical = ref != null ? ref.get() : null;
+
+            if (canonical != null) {
+                return canonical;
+            }
+
+            if (ref == null && POOL.size() >= MAX_POOL_SIZE) {
+                return option;
+            }
+
+            if (created == null) {
+                created = new Ref(key, option);
+            }
+
+            // Replaces the entry of a collected option, or loses to the option interned concurrently.
+            if (ref == null ? POOL.putIfAbsent(key, created) == null : POOL.replace(key, ref, created)) {
+                return option;
+            }
+
+        }
+
+    }
+
+    private static void expunge() {
+
+        for (Ref ref = (Ref) COLLECTED.poll(); ref != null; ref = (Ref) COLLECTED.poll()) {
+            POOL.remove(ref.key, ref);
+        }
+
+    }
+
+    private static final class Key {
+
+        private final Class<?> type;
+
+        private final String value;
+
+        private Key(Class<?> type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return JcifsngOption.hash(type, Objects.hashCode(value));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || other instanceof Key o && type == o.type && Objects.equals(value, o.value);
+        }
+    }
+
+    private static final class Ref extends WeakReference<JcifsngOption> {
+
+        private final Key key;
+
+        private Ref(Key key, JcifsngOption option) {
+            super(option, COLLECTED);
+            this.key = key;
+        }
+    }
+}
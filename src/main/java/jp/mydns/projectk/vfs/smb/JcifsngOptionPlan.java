@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import jcifs.config.PropertyConfiguration;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Compiled set of the {@link JcifsngOption}s.
+ * <p>
+ * The JSON of the options is resolved and validated only once when compiling, and the plan can be applied to any
+ * number of the {@link FileSystemOptions} without the JSON processing and the reflection.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngOptionPlan {
+
+    private final List<JcifsngOption> options;
+
+    private final SortedMap<String, String> properties;
+
+    private final PropertyConfiguration configuration;
+
+    private final JcifsngOptionFingerprint fingerprint;
+
+    private JcifsngOptionPlan(List<JcifsngOption> options) {
+
+        SortedMap<String, String> props = new TreeMap<>();
+
+        for (JcifsngOption option : options) {
+            option.collect(props);
+        }
+
+        this.options = options;
+        this.properties = Collections.unmodifiableSortedMap(props);
+        this.fingerprint = JcifsngOptionFingerprint.of(properties);
+
+        this.configuration = JcifsngOptionValidator.newConfiguration(properties);
+
+        JcifsngOptionValidator.requireValid(properties, configuration);
+
+    }
+
+    /**
+     * Compile the JSON object of the option name and value pairs.
+     *
+     * @param options JSON object of the option name and value pairs. e.g. <code>{"smb:bufferCacheSize": 16}</code>
+     * @return compiled plan
+     * @throws NullPointerException if {@code options} is {@code null}
+     * @throws IllegalArgumentException if contains the unknown option name or the illegal option value, or if the
+     * options are inconsistent with each other
+     * @see JcifsngOptionIndex
+     * @since 1.0.0
+     */
+    public static JcifsngOptionPlan compile(JsonObject options) {
+        return new JcifsngOptionPlan(JcifsngOptionIndex.newInstances(Objects.requireNonNull(options)));
+    }
+
+    /**
+     * Compile the {@link JcifsngOption}s. If contains options with the same JCIFS-NG option name, the later one takes
+     * effect.
+     *
+     * @param options the {@code JcifsngOption}s
+     * @return compiled plan
+     * @throws NullPointerException if {@code options} is {@code null} or if contains {@code null} in {@code options}
+     * @throws IllegalArgumentException if contains the illegal option value, or if the options are inconsistent with
+     * each other
+     * @since 1.0.0
+     */
+    public static JcifsngOptionPlan compile(List<? extends JcifsngOption> options) {
+        return new JcifsngOptionPlan(List.copyOf(options));
+    }
+
+    /**
+     * Get the compiled options.
+     *
+     * @return unmodifiable compiled options
+     * @since 1.0.0
+     */
+    public List<JcifsngOption> getOptions() {
+        return options;
+    }
+
+    /**
+     * Get the JCIFS-NG properties.
+     *
+     * @return unmodifiable JCIFS-NG properties sorted by name
+     * @since 1.0.0
+     */
+    public SortedMap<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Get the JCIFS-NG configuration built from the JCIFS-NG properties.
+     *
+     * @return the JCIFS-NG configuration
+     * @since 1.0.0
+     */
+    public PropertyConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Get the fingerprint of the JCIFS-NG properties.
+     *
+     * @return the fingerprint
+     * @since 1.0.0
+     */
+    public JcifsngOptionFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Get the plan that narrows the negotiation with the host by the {@link JcifsngNegotiationMemory}.
+     *
+     * @param host the host name
+     * @return the narrowed plan. It is this plan if nothing to narrow.
+     * @throws NullPointerException if {@code host} is {@code null}
+     * @since 1.0.0
+     */
+    public JcifsngOptionPlan narrow(String host) {
+        return narrow(host, JcifsngNegotiationMemory.getInstance());
+    }
+
+    /**
+     * Get the plan that narrows the negotiation with the host by the {@code memory}.
+     *
+     * @param host the host name
+     * @param memory the {@code JcifsngNegotiationMemory}
+     * @return the narrowed plan. It is this plan if nothing to narrow.
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    JcifsngOptionPlan narrow(String host, JcifsngNegotiationMemory memory) {
+
+        List<JcifsngOption> narrowing = memory.narrowing(host, configuration);
+
+        if (narrowing.isEmpty()) {
+            return this;
+        }
+
+        List<JcifsngOption> narrowed = new ArrayList<>(options);
+        narrowed.addAll(narrowing);
+
+        return new JcifsngOptionPlan(List.copyOf(narrowed));
+
+    }
+
+    /**
+     * Applying this plan to {@code opts}. The result is equivalent to
+     * {@link JcifsngOption#applyAll(java.util.Collection, FileSystemOptions)} with the compiled options.
+     *
+     * @param opts the {@code FileSystemOptions}
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @since 1.0.0
+     */
+    public void apply(FileSystemOptions opts) {
+
+        JcifsngConfigBuilder builder = JcifsngConfigBuilder.getInstance();
+
+        builder.stageAll(Objects.requireNonNull(opts), properties);
+        builder.prepare(opts);
+
+    }
+
+    /**
+     * Returns a hash code value.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return properties.hashCode();
+    }
+
+    /**
+     * Indicates that other object is equal to this one.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof JcifsngOptionPlan o && properties.equals(o.properties);
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return string representation
+     * @since 1.0.0
+     */
+    @Override
+    public String toString() {
+        return "JcifsngOptionPlan" + options;
+    }
+}
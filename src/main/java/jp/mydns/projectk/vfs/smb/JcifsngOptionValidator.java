@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import jcifs.CIFSException;
+import jcifs.Configuration;
+import jcifs.DialectVersion;
+import jcifs.config.PropertyConfiguration;
+
+/**
+ * Cross-option validator of a whole set of the {@link JcifsngOption}s.
+ * <p>
+ * Some combinations of the options are valid one by one but can never negotiate, and they fail only on connection
+ * after the connection timeout and the response timeout. This validator checks the set of the JCIFS-NG properties
+ * once, when the set is applied by {@link JcifsngOption#applyAll(java.util.Collection,
+ * org.apache.commons.vfs2.FileSystemOptions)} or compiled by {@link JcifsngOptionPlan}, and reports all violations at
+ * once. The properties that are not set are checked with the JCIFS-NG default values.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngOptionValidator {
+
+    private static final String MAX_VERSION = "jcifs.smb.client.maxVersion";
+
+    private static final Configuration DEFAULTS = newConfiguration(Map.of());
+
+    private JcifsngOptionValidator() {
+    }
+
+    /**
+     * Validate the JCIFS-NG properties.
+     *
+     * @param props JCIFS-NG properties
+     * @return unmodifiable messages of all violations. It is empty if there are no violations.
+     * @throws NullPointerException if {@code props} is {@code null}
+     * @throws IllegalArgumentException if contains the illegal property value
+     * @since 1.0.0
+     */
+    public static List<String> validate(Map<String, String> props) {
+        return validate(props, newConfiguration(props));
+    }
+
+    /**
+     * Validate the JCIFS-NG properties.
+     *
+     * @param props JCIFS-NG properties
+     * @param config JCIFS-NG configuration built from {@code props}
+     * @return unmodifiable messages of all violations. It is empty if there are no violations.
+     * @throws NullPointerException if any argument is {@code null}
+     * @since 1.0.0
+     */
+    static List<String> validate(Map<String, String> props, Configuration config) {
+
+        Objects.requireNonNull(props);
+        Objects.requireNonNull(config);
+
+        List<String> violations = new ArrayList<>();
+
+        for (Rule rule : Rule.values()) {
+            rule.check(props, config).ifPresent(violations::add);
+        }
+
+        return Collections.unmodifiableList(violations);
+
+    }
+
+    /**
+     * Validate the JCIFS-NG properties, and throws an exception if there are any violations.
+     *
+     * @param props JCIFS-NG properties
+     * @param config JCIFS-NG configuration built from {@code props}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if there are any violations
+     * @since 1.0.0
+     */
+    static void requireValid(Map<String, String> props, Configuration config) {
+
+        List<String> violations = validate(props, config);
+
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Inconsistent JCIFS-NG options. " + String.join(" ", violations));
+        }
+
+    }
+
+    /**
+     * Build the JCIFS-NG configuration from the JCIFS-NG properties.
+     *
+     * @param props JCIFS-NG properties
+     * @return the JCIFS-NG configuration
+     * @throws NullPointerException if {@code props} is {@code null}
+     * @throws IllegalArgumentException if contains the illegal property value
+     * @since 1.0.0
+     */
+    static PropertyConfiguration newConfiguration(Map<String, String> props) {
+
+        Properties properties = JcifsngConfigBuilder.toProperties(Objects.requireNonNull(props));
+
+        try {
+            return new PropertyConfiguration(properties);
+        } catch (CIFSException ex) {
+            throw new IllegalArgumentException("Illegal JCIFS-NG configuration.", ex);
+        }
+
+    }
+
+    /**
+     * Cross-option rules.
+     *
+     * @since 1.0.0
+     */
+    enum Rule {
+
+        /**
+         * {@link MinimumVersion} must not be above {@link MaximumVersion}. JCIFS-NG raises the maximum version to the
+         * minimum version silently, so the raw property is checked.
+         *
+         * @since 1.0.0
+         */
+        VERSION_RANGE {
+            @Override
+            Optional<String> check(Map<String, String> props, Configuration config) {
+
+                DialectVersion min = config.getMinimumVersion();
+                DialectVersion max = maximumVersion(props);
+
+                return !max.atLeast(min)
+                        ? Optional.of("smb:minVersion [%s] is above smb:maxVersion [%s].".formatted(min, max))
+                        : Optional.empty();
+
+            }
+        },
+        /**
+         * {@link ClientSigningEnforced} on the SMB1 only requires {@link ClientDisablePlainTextPasswords}, because
+         * JCIFS-NG can not sign the session that is set up with a plain text password. It does not have a session key.
+         *
+         * @since 1.0.0
+         */
+        SIGNING_DIALECT {
+            @Override
+            Optional<String> check(Map<String, String> props, Configuration config) {
+
+                return config.isSigningEnforced() && maximumVersion(props) == DialectVersion.SMB1
+                        && !config.isDisablePlainTextPasswords()
+                        ? Optional.of("smb:client.signingEnforced on SMB1 requires"
+                                + " smb:client.disablePlainTextPasswords.")
+                        : Optional.empty();
+
+            }
+        },
+        /**
+         * {@link ClientTransactionBufferSize} must not be larger than {@link ClientReceiveBufferSize}.
+         *
+         * @since 1.0.0
+         */
+        TRANSACTION_BUFFER {
+            @Override
+            Optional<String> check(Map<String, String> props, Configuration config) {
+
+                int transaction = config.getTransactionBufferSize();
+                int receive = config.getReceiveBufferSize();
+
+                return transaction > receive
+                        ? Optional.of("smb:client.transactionBufferSize [%d] is larger than"
+                                .formatted(transaction) + " smb:client.receiveBufferSize [%d].".formatted(receive))
+                        : Optional.empty();
+
+            }
+        };
+
+        /**
+         * Check this rule.
+         *
+         * @param props JCIFS-NG properties
+         * @param config JCIFS-NG configuration built from {@code props}
+         * @return message of the violation. It is empty if not violated.
+         * @since 1.0.0
+         */
+        abstract Optional<String> check(Map<String, String> props, Configuration config);
+
+        private static DialectVersion maximumVersion(Map<String, String> props) {
+
+            String max = props.get(MAX_VERSION);
+
+            return max == null ? DEFAULTS.getMaximumVersion() : DialectVersion.valueOf(max);
+
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import jcifs.CIFSContext;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Input stream that reads a large file with the pipelined parallel ranged reads.
+ * <p>
+ * A single SMB stream has only one outstanding read at a time, so it is bound by the latency. This stream issues up to
+ * the parallelism of the concurrent reads of the chunks ahead of the current position, and reassembles them in order.
+ * The parallelism is bounded by {@link ClientMaxMpxCount}, and the memory is bounded by the parallelism times the
+ * chunk size.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is not thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ReadChunkSize
+ * @see ReadParallelism
+ */
+public final class JcifsngParallelInputStream extends InputStream {
+
+    private final JcifsngRangeReader reader;
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    private final Executor executor;
+
+    private final long size;
+
+    private final Queue<CompletableFuture<byte[]>> inflight;
+
+    private long scheduled;
+
+    private byte[] current = new byte[0];
+
+    private int pos;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param reader the {@code JcifsngRangeReader}. It is closed when this stream is closed.
+     * @param chunkSize size of a chunk in bytes
+     * @param parallelism maximum number of the concurrent reads
+     * @param executor executor of the reads
+     * @throws NullPointerException if {@code reader} or {@code executor} is {@code null}
+     * @throws IllegalArgumentException if {@code chunkSize} or {@code parallelism} is not positive
+     * @throws IOException if cannot get the size of the file
+     * @since 1.0.0
+     */
+    public JcifsngParallelInputStream(JcifsngRangeReader reader, int chunkSize, int parallelism, Executor executor)
+            throws IOException {
+
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive.");
+        }
+
+        this.reader = Objects.requireNonNull(reader);
+        this.executor = Objects.requireNonNull(executor);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.inflight = new ArrayDeque<>(parallelism);
+        this.size = reader.size();
+
+        schedule();
+
+    }
+
+    /**
+     * Open the SMB file with the JCIFS-NG context and the options of {@code opts}.
+     *
+     * @param url SMB URL of the file
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the opened stream
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@link ReadChunkSize} or {@link ReadParallelism} is not positive
+     * @throws IOException if cannot open the file
+     * @since 1.0.0
+     */
+    public static JcifsngParallelInputStream open(String url, FileSystemOptions opts) throws IOException {
+
+        Objects.requireNonNull(url);
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+        Map<String, String> props = JcifsngModuleProperties.of(opts);
+
+        int chunkSize = JcifsngModuleProperties.getPositiveInt(props, ReadChunkSize.NAME, ReadChunkSize.DEFAULT);
+        int parallelism = Math.min(context.getConfig().getMaxMpxCount(),
+                JcifsngModuleProperties.getPositiveInt(props, ReadParallelism.NAME, ReadParallelism.DEFAULT));
+
+        return new JcifsngParallelInputStream(JcifsngRangeReader.of(new SmbFile(url, context)), chunkSize,
+                Math.max(1, parallelism), JcifsngIoExecutor.shared());
+
+    }
+
+    /**
+     * Get the channel that reads from this stream.
+     *
+     * @return the {@code ReadableByteChannel}
+     * @since 1.0.0
+     */
+    public ReadableByteChannel channel() {
+        return Channels.newChannel(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public int read() throws IOException {
+
+        ensureOpen();
+
+        if (pos == current.length && !advance()) {
+            return -1;
+        }
+
+        return current[pos++] & 0xff;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureOpen();
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (pos == current.length && !advance()) {
+            return -1;
+        }
+
+        int n = Math.min(len, current.length - pos);
+
+        System.arraycopy(current, pos, b, off, n);
+        pos += n;
+
+        return n;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public int available() throws IOException {
+
+        ensureOpen();
+
+        return current.length - pos;
+
+    }
+
+    /**
+     * Cancel the outstanding reads that are not started, wait for the running ones, and close the reader. The reader is
+     * not closed under the running reads.
+     *
+     * @throws IOException if occurs I/O error while closing the reader
+     * @since 1.0.0
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        for (CompletableFuture<byte[]> chunk = inflight.poll(); chunk != null; chunk = inflight.poll()) {
+            chunk.handle((b, ex) -> null).join();
+        }
+
+        reader.close();
+
+    }
+
+    private boolean advance() throws IOException {
+
+        CompletableFuture<byte[]> next = inflight.poll();
+
+        if (next == null) {
+            return false;
+        }
+
+        current = join(next);
+        pos = 0;
+
+        schedule();
+
+        return true;
+
+    }
+
+    private void schedule() {
+
+        while (inflight.size() < parallelism && scheduled < size) {
+
+            long position = scheduled;
+            int length = (int) Math.min(chunkSize, size - position);
+
+            inflight.add(CompletableFuture.supplyAsync(() -> readChunk(position, length), executor));
+            scheduled += length;
+
+        }
+
+    }
+
+    private byte[] readChunk(long position, int length) {
+
+        if (closed) {
+            throw new CancellationException("Stream is closed.");
+        }
+
+        try {
+
+            byte[] chunk = new byte[length];
+            int n = reader.readFully(position, chunk, 0, length);
+
+            if (n < length) {
+                throw new IOException("Unexpected end of file at [%d].".formatted(position + n));
+            }
+
+            return chunk;
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> chunk) throws IOException {
+
+        try {
+            return chunk.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading.");
+        } catch (CancellationException ex) {
+            throw new IOException("Read is cancelled.", ex);
+        } catch (ExecutionException ex) {
+
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof UncheckedIOException u) {
+                throw u.getCause();
+            }
+
+            throw new IOException(cause);
+
+        }
+
+    }
+
+    private void ensureOpen() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream is closed.");
+        }
+
+    }
+}
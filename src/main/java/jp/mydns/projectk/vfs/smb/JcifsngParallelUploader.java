@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import jcifs.CIFSContext;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Uploader that writes a large file with the parallel chunked writes.
+ * <p>
+ * The file is preallocated to its final size first, then the chunks are read from the source in order and written
+ * concurrently at their own offsets, so they may complete out of order. The parallelism is bounded by
+ * {@link ClientMaxMpxCount}, and the memory is bounded by the parallelism times the chunk size. The upload fails fast
+ * on the first failed write.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see WriteChunkSize
+ * @see WriteParallelism
+ */
+public final class JcifsngParallelUploader {
+
+    private static final String USE_LARGE_READ_WRITE = "jcifs.smb.client.useLargeReadWrite";
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param chunkSize size of a chunk in bytes
+     * @param parallelism maximum number of the concurrent writes
+     * @param executor executor of the writes
+     * @throws NullPointerException if {@code executor} is {@code null}
+     * @throws IllegalArgumentException if {@code chunkSize} or {@code parallelism} is not positive
+     * @since 1.0.0
+     */
+    public JcifsngParallelUploader(int chunkSize, int parallelism, Executor executor) {
+
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive.");
+        }
+
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.executor = Objects.requireNonNull(executor);
+
+    }
+
+    /**
+     * Get the uploader configured by the options of {@code opts}.
+     *
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the {@code JcifsngParallelUploader}
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @throws IllegalArgumentException if {@link WriteChunkSize} or {@link WriteParallelism} is not positive
+     * @since 1.0.0
+     */
+    public static JcifsngParallelUploader of(FileSystemOptions opts) {
+        return of(JcifsngConfigBuilder.getInstance().getOrPrepare(opts), JcifsngModuleProperties.of(opts));
+    }
+
+    private static JcifsngParallelUploader of(CIFSContext context, Map<String, String> props) {
+
+        int defaultChunkSize = Boolean.parseBoolean(props.getOrDefault(USE_LARGE_READ_WRITE, "true"))
+                ? WriteChunkSize.LARGE : context.getConfig().getSendBufferSize();
+
+        int chunkSize = JcifsngModuleProperties.getPositiveInt(props, WriteChunkSize.NAME,
+                Math.max(1, defaultChunkSize));
+        int parallelism = Math.min(context.getConfig().getMaxMpxCount(),
+                JcifsngModuleProperties.getPositiveInt(props, WriteParallelism.NAME, WriteParallelism.DEFAULT));
+
+        return new JcifsngParallelUploader(chunkSize, Math.max(1, parallelism), JcifsngIoExecutor.shared());
+
+    }
+
+    /**
+     * Get the chunk size.
+     *
+     * @return size of a chunk in bytes
+     * @since 1.0.0
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the parallelism.
+     *
+     * @return maximum number of the concurrent writes
+     * @since 1.0.0
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Upload to the SMB file with the JCIFS-NG context and the options of {@code opts}.
+     *
+     * @param source the source of the data. It is not closed.
+     * @param size number of bytes to upload
+     * @param url SMB URL of the file
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @param listener listener of the completed chunks
+     * @return number of bytes written
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code size} is negative, or if {@link WriteChunkSize} or
+     * {@link WriteParallelism} is not positive
+     * @throws IOException if occurs I/O error, or if {@code source} ends before {@code size} bytes
+     * @since 1.0.0
+     */
+    public static long upload(InputStream source, long size, String url, FileSystemOptions opts,
+            ChunkListener listener) throws IOException {
+
+        Objects.requireNonNull(url);
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+        JcifsngParallelUploader uploader = of(context, JcifsngModuleProperties.of(opts));
+
+        try (JcifsngRangeWriter writer = JcifsngRangeWriter.of(new SmbFile(url, context))) {
+            return uploader.upload(source, size, writer, listener);
+        }
+
+    }
+
+    /**
+     * Upload {@code size} bytes of the {@code source} to the {@code writer}. The file is preallocated to {@code size}
+     * before writing.
+     *
+     * @param source the source of the data. It is not closed.
+     * @param size number of bytes to upload
+     * @param writer the {@code JcifsngRangeWriter}. It is not closed.
+     * @param listener listener of the completed chunks. It may be called concurrently.
+     * @return number of bytes written
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code size} is negative
+     * @throws IOException if occurs I/O error, or if {@code source} ends before {@code size} bytes
+     * @since 1.0.0
+     */
+    public long upload(InputStream source, long size, JcifsngRangeWriter writer, ChunkListener listener)
+            throws IOException {
+
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(writer);
+        Objects.requireNonNull(listener);
+
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative.");
+        }
+
+        writer.setLength(size);
+
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long position = 0;
+
+        try {
+
+            while (position < size && failure.get() == null) {
+
+                int length = (int) Math.min(chunkSize, size - position);
+                byte[] chunk = source.readNBytes(length);
+
+                if (chunk.length < length) {
+                    throw new IOException("Source ended at [%d] before [%d].".formatted(position + chunk.length, size));
+                }
+
+                permits.acquire();
+
+                long offset = position;
+
+                submit(() -> {
+                    try {
+
+                        if (failure.get() == null) {
+                            writer.write(offset, chunk, 0, length);
+                            listener.completed(offset, length);
+                        }
+
+                    } catch (IOException | RuntimeException ex) {
+                        failure.compareAndSet(null, ex);
+                    } finally {
+                        permits.release();
+                    }
+                }, permits);
+
+                position += length;
+
+            }
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading.");
+        } finally {
+            permits.acquireUninterruptibly(parallelism);
+        }
+
+        Throwable cause = failure.get();
+
+        if (cause instanceof IOException io) {
+            throw io;
+        }
+
+        if (cause != null) {
+            throw new IOException(cause);
+        }
+
+        return size;
+
+    }
+
+    private void submit(Runnable write, Semaphore permits) {
+
+        try {
+            executor.execute(write);
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+
+    }
+
+    /**
+     * Listener of the completed chunks of the upload.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    public interface ChunkListener {
+
+        /**
+         * Called when a chunk is written.
+         *
+         * @param position the position of the chunk in the file
+         * @param length the length of the chunk
+         * @since 1.0.0
+         */
+        void completed(long position, int length);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+import jcifs.smb.SmbFile;
+
+/**
+ * Offset based reader of a file. The reads at the different offsets can be issued concurrently.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface JcifsngRangeReader extends Closeable {
+
+    /**
+     * Get the size of the file.
+     *
+     * @return the size in bytes
+     * @throws IOException if occurs I/O error
+     * @since 1.0.0
+     */
+    long size() throws IOException;
+
+    /**
+     * Read up to {@code len} bytes at the {@code position}.
+     *
+     * @param position the position of the file to read from
+     * @param b the buffer into which the data is read
+     * @param off the start offset in {@code b}
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, or {@code -1} if the {@code position} is at the end of the file
+     * @throws IOException if occurs I/O error
+     * @since 1.0.0
+     */
+    int read(long position, byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Read exactly {@code len} bytes at the {@code position} unless reaching the end of the file.
+     *
+     * @param position the position of the file to read from
+     * @param b the buffer into which the data is read
+     * @param off the start offset in {@code b}
+     * @param len the number of bytes to read
+     * @return the number of bytes read. It is less than {@code len} only if reached the end of the file.
+     * @throws IOException if occurs I/O error
+     * @since 1.0.0
+     */
+    default int readFully(long position, byte[] b, int off, int len) throws IOException {
+
+        int total = 0;
+
+        while (total < len) {
+
+            int n = read(position + total, b, off + total, len - total);
+
+            if (n < 0) {
+                break;
+            }
+
+            total += n;
+
+        }
+
+        return total;
+
+    }
+
+    /**
+     * Get the {@code JcifsngRangeReader} of the SMB file. Each concurrent read uses its own pooled file handle.
+     *
+     * @param file the SMB file. It is closed when the reader is closed.
+     * @return the {@code JcifsngRangeReader}
+     * @throws NullPointerException if {@code file} is {@code null}
+     * @since 1.0.0
+     */
+    static JcifsngRangeReader of(SmbFile file) {
+        return new SmbRangeReader(Objects.requireNonNull(file));
+    }
+}
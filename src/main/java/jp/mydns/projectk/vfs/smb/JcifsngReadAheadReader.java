@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import jcifs.CIFSContext;
+
+/**
+ * Reader that reads ahead of the sequential reads.
+ * <p>
+ * The file is read by the chunks of {@link ClientReceiveBufferSize}. A read that starts where the previous read ended,
+ * or the first read from the start of the file, is sequential, and the next chunks in the window are read in the
+ * background while the consumer processes the current chunk. The window starts with {@link ReadAheadInitialWindow}
+ * chunks and doubles each time the consumer finishes a chunk sequentially, up to {@link ReadAheadMaxWindow}. A read
+ * that jumps is random, it halves the window and cancels the reads ahead.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngReadAheadReader implements JcifsngRangeReader {
+
+    private final JcifsngRangeReader delegate;
+
+    private final int chunkSize;
+
+    private final int initialWindow;
+
+    private final int maxWindow;
+
+    private final Executor executor;
+
+    private final TreeMap<Long, CompletableFuture<byte[]>> ahead = new TreeMap<>();
+
+    private long size = -1;
+
+    private int window;
+
+    private long expected = -1;
+
+    private long currentIndex = -1;
+
+    private byte[] current;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the reader of the file. It is closed when this reader is closed.
+     * @param chunkSize size of a chunk in bytes
+     * @param initialWindow initial number of the chunks read ahead
+     * @param maxWindow maximum number of the chunks read ahead
+     * @param executor executor of the reads ahead
+     * @throws NullPointerException if {@code delegate} or {@code executor} is {@code null}
+     * @throws IllegalArgumentException if {@code chunkSize}, {@code initialWindow} or {@code maxWindow} is not
+     * positive, or if {@code initialWindow} is larger than {@code maxWindow}
+     * @since 1.0.0
+     */
+    public JcifsngReadAheadReader(JcifsngRangeReader delegate, int chunkSize, int initialWindow, int maxWindow,
+            Executor executor) {
+
+        if (chunkSize < 1 || initialWindow < 1 || maxWindow < initialWindow) {
+            throw new IllegalArgumentException("Chunk size and windows must be positive and ordered.");
+        }
+
+        this.delegate = Objects.requireNonNull(delegate);
+        this.executor = Objects.requireNonNull(executor);
+        this.chunkSize = chunkSize;
+        this.initialWindow = initialWindow;
+        this.maxWindow = maxWindow;
+        this.window = initialWindow;
+
+    }
+
+    /**
+     * Wrap the reader with the read-ahead configured by the JCIFS-NG context and the properties. If
+     * {@link ReadAheadMaxWindow} is zero, the reader is returned as is.
+     *
+     * @param delegate the reader of the file
+     * @param context the JCIFS-NG context
+     * @param props the staged properties
+     * @return the {@code JcifsngRangeReader}
+     * @throws IllegalArgumentException if {@link ReadAheadInitialWindow} is not positive, or if
+     * {@link ReadAheadMaxWindow} is negative
+     * @since 1.0.0
+     */
+    static JcifsngRangeReader wrap(JcifsngRangeReader delegate, CIFSContext context, Map<String, String> props) {
+
+        int maxWindow = JcifsngModuleProperties.getInt(props, ReadAheadMaxWindow.NAME, ReadAheadMaxWindow.DEFAULT);
+
+        if (maxWindow < 0) {
+            throw new IllegalArgumentException(
+                    "Property [%s] must not be negative.".formatted(ReadAheadMaxWindow.NAME));
+        }
+
+        if (maxWindow == 0) {
+            return delegate;
+        }
+
+        int initialWindow = JcifsngModuleProperties.getPositiveInt(props, ReadAheadInitialWindow.NAME,
+                ReadAheadInitialWindow.DEFAULT);
+
+        return new JcifsngReadAheadReader(delegate, Math.max(1, context.getConfig().getReceiveBufferSize()),
+                Math.min(initialWindow, maxWindow), maxWindow, JcifsngIoExecutor.shared());
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized long size() throws IOException {
+
+        if (size < 0) {
+            size = delegate.size();
+        }
+
+        return size;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized int read(long position, byte[] b, int off, int len) throws IOException {
+
+        Objects.checkFromIndexSize(off, len, b.length);
+
+        if (position >= size()) {
+            return -1;
+        }
+
+        if (len == 0) {
+            return 0;
+        }
+
+        boolean sequential = position == expected || expected < 0 && position == 0;
+
+        if (!sequential && expected >= 0) {
+            window = Math.max(initialWindow, window / 2);
+            cancelAhead(Long.MAX_VALUE);
+        }
+
+        long index = position / chunkSize;
+        byte[] chunk = chunk(index);
+        int offset = (int) (position - index * chunkSize);
+
+        if (offset >= chunk.length) {
+            return -1;
+        }
+
+        int n = Math.min(len, chunk.length - offset);
+
+        System.arraycopy(chunk, offset, b, off, n);
+        expected = position + n;
+
+        if (sequential) {
+
+            if (offset + n == chunk.length) {
+                window = Math.min(maxWindow, window * 2);
+            }
+
+            scheduleAhead(index);
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Get the current window.
+     *
+     * @return number of the chunks read ahead
+     * @since 1.0.0
+     */
+    synchronized int getWindow() {
+        return window;
+    }
+
+    /**
+     * Cancel the reads ahead, and close the delegate.
+     *
+     * @throws IOException if occurs I/O error while closing the delegate
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized void close() throws IOException {
+
+        cancelAhead(Long.MAX_VALUE);
+        current = null;
+
+        delegate.close();
+
+    }
+
+    private byte[] chunk(long index) throws IOException {
+
+        if (index == currentIndex) {
+            return current;
+        }
+
+        cancelAhead(index);
+
+        CompletableFuture<byte[]> next = ahead.remove(index);
+
+        current = next != null ? join(next) : load(index);
+        currentIndex = index;
+
+        return current;
+
+    }
+
+    private void scheduleAhead(long index) throws IOException {
+
+        long last = Math.min(index + window, (size() - 1) / chunkSize);
+
+        for (long i = index + 1; i <= last; i++) {
+
+            long chunkIndex = i;
+
+            ahead.computeIfAbsent(i, k -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return load(chunkIndex);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, executor));
+
+        }
+
+    }
+
+    private void cancelAhead(long before) {
+
+        for (Iterator<CompletableFuture<byte[]>> it = ahead.headMap(before).values().iterator(); it.hasNext();) {
+            it.next().cancel(false);
+            it.remove();
+        }
+
+    }
+
+    private byte[] load(long index) throws IOException {
+
+        long start = index * chunkSize;
+        byte[] chunk = new byte[(int) Math.min(chunkSize, Math.max(0, size - start))];
+        int n = delegate.readFully(start, chunk, 0, chunk.length);
+
+        return n < chunk.length ? Arrays.copyOf(chunk, Math.max(0, n)) : chunk;
+
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> chunk) throws IOException {
+
+        try {
+            return chunk.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading.");
+        } catch (CancellationException ex) {
+            throw new IOException("Read is cancelled.", ex);
+        } catch (ExecutionException ex) {
+
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof UncheckedIOException u) {
+                throw u.getCause();
+            }
+
+            throw new IOException(cause);
+
+        }
+
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Set;
+import jcifs.CIFSContext;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Seekable byte channel over an SMB file.
+ * <p>
+ * The position is kept by this channel and each read and write is issued at its own offset, so moving the position
+ * does not reopen the file. A heap buffer is read into and written from its backing array directly. A direct buffer is
+ * staged through a scratch array of {@link ClientReceiveBufferSize} for reads and {@link ClientSendBufferSize} for
+ * writes, because JCIFS-NG transfers only byte arrays. {@link #transferTo(long, long, WritableByteChannel)} and
+ * {@link #transferFrom(ReadableByteChannel, long, long)} move the data with the same scratch arrays, so a local
+ * {@link java.nio.channels.FileChannel} is filled or drained with a single copy in this module.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngSeekableByteChannel implements SeekableByteChannel {
+
+    private static final Set<StandardOpenOption> SUPPORTED_OPTIONS = Set.of(StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+    private final JcifsngRangeReader reader;
+
+    private final JcifsngRangeWriter writer;
+
+    private final boolean append;
+
+    private final int readBufferSize;
+
+    private final int writeBufferSize;
+
+    private byte[] readBuffer;
+
+    private byte[] writeBuffer;
+
+    private long position;
+
+    private long size = -1;
+
+    private boolean open = true;
+
+    /**
+     * Constructor.
+     *
+     * @param reader the {@code JcifsngRangeReader}. It is closed when this channel is closed.
+     * @param writer the {@code JcifsngRangeWriter}. It is closed when this channel is closed. {@code null} if this
+     * channel is read-only.
+     * @param readBufferSize size in bytes of the scratch array for reads
+     * @param writeBufferSize size in bytes of the scratch array for writes
+     * @throws NullPointerException if {@code reader} is {@code null}
+     * @throws IllegalArgumentException if {@code readBufferSize} or {@code writeBufferSize} is not positive
+     * @since 1.0.0
+     */
+    public JcifsngSeekableByteChannel(JcifsngRangeReader reader, JcifsngRangeWriter writer, int readBufferSize,
+            int writeBufferSize) {
+        this(reader, writer, false, readBufferSize, writeBufferSize);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param reader the {@code JcifsngRangeReader}. It is closed when this channel is closed.
+     * @param writer the {@code JcifsngRangeWriter}. It is closed when this channel is closed. {@code null} if this
+     * channel is read-only.
+     * @param append whether each write appends to the end of the file. Each write starts at the larger of the end of
+     * the own writes and the size that {@code reader} reports, so neither the own bytes nor the bytes that the others
+     * appended before are overwritten.
+     * @param readBufferSize size in bytes of the scratch array for reads
+     * @param writeBufferSize size in bytes of the scratch array for writes
+     * @throws NullPointerException if {@code reader} is {@code null}
+     * @throws IllegalArgumentException if {@code readBufferSize} or {@code writeBufferSize} is not positive
+     * @since 1.0.0
+     */
+    public JcifsngSeekableByteChannel(JcifsngRangeReader reader, JcifsngRangeWriter writer, boolean append,
+            int readBufferSize, int writeBufferSize) {
+
+        if (readBufferSize < 1 || writeBufferSize < 1) {
+            throw new IllegalArgumentException("Buffer sizes must be positive.");
+        }
+
+        this.reader = Objects.requireNonNull(reader);
+        this.writer = writer;
+        this.append = append;
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
+
+    }
+
+    /**
+     * Open the SMB file with the JCIFS-NG context and the options of {@code opts}.
+     * <p>
+     * Supported options are {@link StandardOpenOption#READ}, {@link StandardOpenOption#WRITE},
+     * {@link StandardOpenOption#APPEND}, {@link StandardOpenOption#CREATE} and
+     * {@link StandardOpenOption#TRUNCATE_EXISTING}. The file is created if opened for writing. It is opened read-only
+     * if neither {@code WRITE} nor {@code APPEND} is specified, and the read-only channel reads through the
+     * {@link JcifsngBlockCache} and the {@link JcifsngReadAheadReader}. Use
+     * {@link java.nio.channels.Channels#newInputStream(java.nio.channels.ReadableByteChannel)} for a sequential input
+     * stream that reads ahead.
+     *
+     * @param url SMB URL of the file
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @param options the options specifying how the file is opened
+     * @return the opened channel
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws UnsupportedOperationException if {@code options} contains an unsupported option
+     * @throws IOException if cannot open the file
+     * @since 1.0.0
+     */
+    public static JcifsngSeekableByteChannel open(String url, FileSystemOptions opts, OpenOption... options)
+            throws IOException {
+
+        Objects.requireNonNull(url);
+
+        Set<OpenOption> optionSet = Set.of(options);
+
+        for (OpenOption option : optionSet) {
+            if (!SUPPORTED_OPTIONS.contains(option)) {
+                throw new UnsupportedOperationException("Unsupported option [%s].".formatted(option));
+            }
+        }
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+        SmbFile file = new SmbFile(url, context);
+        boolean writable = optionSet.contains(StandardOpenOption.WRITE)
+                || optionSet.contains(StandardOpenOption.APPEND);
+
+        JcifsngRangeReader reader;
+
+        try {
+            reader = writable ? JcifsngRangeReader.of(file)
+                    : JcifsngReadAheadReader.wrap(JcifsngBlockCache.reader(file, opts), context,
+                            JcifsngModuleProperties.of(opts));
+        } catch (IOException | RuntimeException ex) {
+            file.close();
+            throw ex;
+        }
+
+        JcifsngSeekableByteChannel channel = new JcifsngSeekableByteChannel(reader,
+                writable ? JcifsngRangeWriter.of(file) : null, optionSet.contains(StandardOpenOption.APPEND),
+                context.getConfig().getReceiveBufferSize(), context.getConfig().getSendBufferSize());
+
+        try {
+
+            if (writable && optionSet.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.truncate(0);
+            }
+
+            if (optionSet.contains(StandardOpenOption.APPEND)) {
+                channel.position(channel.size());
+            }
+
+            return channel;
+
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+
+        ensureOpen();
+
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        int n;
+
+        if (dst.hasArray()) {
+
+            n = reader.read(position, dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+
+            if (n > 0) {
+                dst.position(dst.position() + n);
+            }
+
+        } else {
+
+            byte[] scratch = readBuffer();
+
+            n = reader.read(position, scratch, 0, Math.min(scratch.length, dst.remaining()));
+
+            if (n > 0) {
+                dst.put(scratch, 0, n);
+            }
+
+        }
+
+        if (n > 0) {
+            position += n;
+        }
+
+        return n;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+
+        ensureOpen();
+        ensureWritable();
+
+        // The end is tracked locally too, because the size that the reader reports may lag behind the own writes.
+        if (append) {
+            size = Math.max(size, reader.size());
+            position = size;
+        }
+
+        int n = src.remaining();
+
+        if (src.hasArray()) {
+
+            writer.write(position, src.array(), src.arrayOffset() + src.position(), n);
+            src.position(src.limit());
+
+        } else {
+
+            byte[] scratch = writeBuffer();
+            long offset = position;
+
+            while (src.hasRemaining()) {
+
+                int length = Math.min(scratch.length, src.remaining());
+
+                src.get(scratch, 0, length);
+                writer.write(offset, scratch, 0, length);
+                offset += length;
+
+            }
+
+        }
+
+        grow(position += n);
+
+        return n;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized long position() throws IOException {
+
+        ensureOpen();
+
+        return position;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized JcifsngSeekableByteChannel position(long newPosition) throws IOException {
+
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative.");
+        }
+
+        ensureOpen();
+
+        position = newPosition;
+
+        return this;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized long size() throws IOException {
+
+        ensureOpen();
+
+        if (size < 0) {
+            size = reader.size();
+        }
+
+        return size;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized JcifsngSeekableByteChannel truncate(long newSize) throws IOException {
+
+        if (newSize < 0) {
+            throw new IllegalArgumentException("Size must not be negative.");
+        }
+
+        ensureOpen();
+        ensureWritable();
+
+        if (newSize < size()) {
+            writer.setLength(newSize);
+            size = newSize;
+        }
+
+        position = Math.min(position, newSize);
+
+        return this;
+
+    }
+
+    /**
+     * Transfer bytes from this channel to the {@code target}. The position of this channel is not changed.
+     *
+     * @param from the position in this channel to start transfer from
+     * @param count maximum number of bytes to transfer
+     * @param target the target channel
+     * @return number of bytes transferred
+     * @throws NullPointerException if {@code target} is {@code null}
+     * @throws IllegalArgumentException if {@code from} or {@code count} is negative
+     * @throws IOException if occurs I/O error
+     * @see java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)
+     * @since 1.0.0
+     */
+    public synchronized long transferTo(long from, long count, WritableByteChannel target) throws IOException {
+
+        Objects.requireNonNull(target);
+
+        if (from < 0 || count < 0) {
+            throw new IllegalArgumentException("Position and count must not be negative.");
+        }
+
+        ensureOpen();
+
+        byte[] scratch = readBuffer();
+        long transferred = 0;
+
+        while (transferred < count) {
+
+            int n = reader.read(from + transferred, scratch, 0, (int) Math.min(scratch.length, count - transferred));
+
+            if (n < 0) {
+                break;
+            }
+
+            ByteBuffer chunk = ByteBuffer.wrap(scratch, 0, n);
+
+            while (chunk.hasRemaining()) {
+                target.write(chunk);
+            }
+
+            transferred += n;
+
+        }
+
+        return transferred;
+
+    }
+
+    /**
+     * Transfer bytes from the {@code source} to this channel. The position of this channel is not changed.
+     *
+     * @param source the source channel
+     * @param from the position in this channel to start transfer to
+     * @param count maximum number of bytes to transfer
+     * @return number of bytes transferred
+     * @throws NullPointerException if {@code source} is {@code null}
+     * @throws IllegalArgumentException if {@code from} or {@code count} is negative
+     * @throws NonWritableChannelException if this channel is read-only
+     * @throws IOException if occurs I/O error
+     * @see java.nio.channels.FileChannel#transferFrom(ReadableByteChannel, long, long)
+     * @since 1.0.0
+     */
+    public synchronized long transferFrom(ReadableByteChannel source, long from, long count) throws IOException {
+
+        Objects.requireNonNull(source);
+
+        if (from < 0 || count < 0) {
+            throw new IllegalArgumentException("Position and count must not be negative.");
+        }
+
+        ensureOpen();
+        ensureWritable();
+
+        byte[] scratch = writeBuffer();
+        long transferred = 0;
+
+        while (transferred < count) {
+
+            ByteBuffer chunk = ByteBuffer.wrap(scratch, 0, (int) Math.min(scratch.length, count - transferred));
+
+            if (source.read(chunk) <= 0) {
+                break;
+            }
+
+            writer.write(from + transferred, scratch, 0, chunk.position());
+            transferred += chunk.position();
+
+        }
+
+        grow(from + transferred);
+
+        return transferred;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Close the reader and the writer.
+     *
+     * @throws IOException if occurs I/O error
+     * @since 1.0.0
+     */
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (!open) {
+            return;
+        }
+
+        open = false;
+        readBuffer = null;
+        writeBuffer = null;
+
+        try (reader) {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+    }
+
+    private void grow(long end) throws IOException {
+
+        if (end > size()) {
+            size = end;
+        }
+
+    }
+
+    private byte[] readBuffer() {
+
+        if (readBuffer == null) {
+            readBuffer = new byte[readBufferSize];
+        }
+
+        return readBuffer;
+
+    }
+
+    private byte[] writeBuffer() {
+
+        if (writeBuffer == null) {
+            writeBuffer = new byte[writeBufferSize];
+        }
+
+        return writeBuffer;
+
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+
+    }
+
+    private void ensureWritable() {
+
+        if (writer == null) {
+            throw new NonWritableChannelException();
+        }
+
+    }
+}
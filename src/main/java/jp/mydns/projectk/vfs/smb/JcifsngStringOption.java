@@ -48,6 +48,8 @@ public abstract class JcifsngStringOption extends JcifsngOption {
 
     protected final String value;
 
+    private final int hash;
+
     /**
      * Constructor.
      *
@@ -57,6 +59,7 @@ public abstract class JcifsngStringOption extends JcifsngOption {
      */
     protected JcifsngStringOption(String value) {
         this.value = Objects.requireNonNull(value);
+        this.hash = hash(getClass(), value.hashCode());
     }
 
     /**
@@ -78,4 +81,28 @@ public abstract class JcifsngStringOption extends JcifsngOption {
     public JsonValue getValue() {
         return Json.createValue(value);
     }
+
+    /**
+     * Returns a hash code value. It is computed at construction.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Indicates that other object is equal to this one. It is equal if it is the same class and has the same value.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof JcifsngStringOption o && getClass() == o.getClass() && hash == o.hash
+                && value.equals(o.value);
+    }
 }
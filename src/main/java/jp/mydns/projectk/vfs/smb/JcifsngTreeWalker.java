@@ -0,0 +1,688 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import jcifs.CIFSContext;
+import jcifs.smb.SmbException;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Walker of a directory tree that lists the directories concurrently.
+ * <p>
+ * Each directory is listed by a task of a work-stealing pool, and the subdirectories are forked as new tasks, so the
+ * idle threads steal the listings of the other branches. The concurrent listings are bounded per host by
+ * {@link WalkParallelism} across the walks of this walker. The page size of each listing is governed by
+ * {@link ClientListCount} and {@link ClientListSize} of the JCIFS-NG context. The entries carry the attributes that the
+ * listing returned, so no further round trip per entry is needed, and they fill the {@link JcifsngMetadataCache} if the
+ * walker has one.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngTreeWalker {
+
+    private static final Object END = new Object();
+
+    private final int maxPerHost;
+
+    private final int queueCapacity;
+
+    private final ForkJoinPool pool;
+
+    private final JcifsngMetadataCache cache;
+
+    private final ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxPerHost maximum number of the concurrent listings per host
+     * @param queueCapacity maximum number of the entries that {@link #stream(SmbFile)} buffers ahead of the consumer
+     * @param pool the work-stealing pool
+     * @throws NullPointerException if {@code pool} is {@code null}
+     * @throws IllegalArgumentException if {@code maxPerHost} or {@code queueCapacity} is not positive
+     * @since 1.0.0
+     */
+    public JcifsngTreeWalker(int maxPerHost, int queueCapacity, ForkJoinPool pool) {
+        this(maxPerHost, queueCapacity, pool, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxPerHost maximum number of the concurrent listings per host
+     * @param queueCapacity maximum number of the entries that {@link #stream(SmbFile)} buffers ahead of the consumer
+     * @param pool the work-stealing pool
+     * @param cache the cache that the listed entries fill. {@code null} if none.
+     * @throws NullPointerException if {@code pool} is {@code null}
+     * @throws IllegalArgumentException if {@code maxPerHost} or {@code queueCapacity} is not positive
+     * @since 1.0.0
+     */
+    public JcifsngTreeWalker(int maxPerHost, int queueCapacity, ForkJoinPool pool, JcifsngMetadataCache cache) {
+
+        if (maxPerHost < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Parallelism and queue capacity must be positive.");
+        }
+
+        this.maxPerHost = maxPerHost;
+        this.queueCapacity = queueCapacity;
+        this.pool = Objects.requireNonNull(pool);
+        this.cache = cache;
+
+    }
+
+    /**
+     * Get the walker configured by the JCIFS-NG context and the options of {@code opts}. The parallelism is bounded by
+     * {@link ClientMaxMpxCount}, and the stream buffers a page of {@link ClientListCount} per listing. The listed
+     * entries fill the {@link JcifsngMetadataCache} that the options configure.
+     *
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @return the {@code JcifsngTreeWalker}
+     * @throws NullPointerException if {@code opts} is {@code null}
+     * @throws IllegalArgumentException if {@link WalkParallelism} is not positive
+     * @since 1.0.0
+     */
+    public static JcifsngTreeWalker of(FileSystemOptions opts) {
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+        Map<String, String> props = JcifsngModuleProperties.of(opts);
+
+        int parallelism = Math.max(1, Math.min(context.getConfig().getMaxMpxCount(),
+                JcifsngModuleProperties.getPositiveInt(props, WalkParallelism.NAME, WalkParallelism.DEFAULT)));
+
+        return new JcifsngTreeWalker(parallelism, Math.max(1, context.getConfig().getListCount()) * parallelism,
+                JcifsngIoExecutor.workStealing(), JcifsngMetadataCache.of(opts).orElse(null));
+
+    }
+
+    /**
+     * Walk the tree under the {@code root} directory. The {@code sink} is called concurrently from the threads of the
+     * pool as soon as each directory is listed. The {@code root} itself is not passed.
+     *
+     * @param root the root directory
+     * @param sink the consumer of the entries. It must be thread-safe.
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if cannot list a directory. The walk is stopped on the first failure.
+     * @since 1.0.0
+     */
+    public void walk(SmbFile root, Consumer<? super Entry> sink) throws IOException {
+        walk(Entry.root(root), host(root), this::listSmb, sink);
+    }
+
+    /**
+     * Walk the tree under the {@code root} directory as a stream. The entries are streamed as each directory is listed,
+     * and the walk is cancelled when the stream is closed.
+     *
+     * @param root the root directory
+     * @return the stream of the entries. It must be closed.
+     * @throws NullPointerException if {@code root} is {@code null}
+     * @throws UncheckedIOException while consuming, if cannot list a directory. An unchecked failure of the listing is
+     * thrown as is.
+     * @since 1.0.0
+     */
+    public Stream<Entry> stream(SmbFile root) {
+        return stream(Entry.root(root), host(root), this::listSmb);
+    }
+
+    /**
+     * Walk the tree with the {@code lister}.
+     *
+     * @param root the root directory
+     * @param host the host of the tree
+     * @param lister the lister of a directory
+     * @param sink the consumer of the entries
+     * @throws IOException if cannot list a directory
+     * @since 1.0.0
+     */
+    void walk(Entry root, String host, Lister lister, Consumer<? super Entry> sink) throws IOException {
+        walk(root, host, lister, sink, new AtomicBoolean());
+    }
+
+    private void walk(Entry root, String host, Lister lister, Consumer<? super Entry> sink, AtomicBoolean cancelled)
+            throws IOException {
+
+        Objects.requireNonNull(sink);
+
+        Walk walk = new Walk(hosts.computeIfAbsent(host, k -> new Semaphore(maxPerHost)), lister, sink, cancelled);
+
+        try {
+            pool.invoke(new ListTask(walk, root));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        IOException failure = walk.failure.get();
+
+        if (failure != null) {
+            throw failure;
+        }
+
+    }
+
+    /**
+     * Walk the tree with the {@code lister} as a stream.
+     *
+     * @param root the root directory
+     * @param host the host of the tree
+     * @param lister the lister of a directory
+     * @return the stream of the entries
+     * @since 1.0.0
+     */
+    Stream<Entry> stream(Entry root, String host, Lister lister) {
+
+        BlockingQueue<Object> queue = new LinkedBlockingQueue<>(queueCapacity);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        // A thread of the pool that waits for the consumer is compensated, so the other listings go on.
+        Consumer<Entry> sink = entry -> {
+            if (!Handoff.offer(queue, entry, cancelled)) {
+                throw new CancellationException();
+            }
+        };
+
+        ForkJoinTask<?> task = pool.submit(() -> {
+
+            Object last = END;
+
+            try {
+                walk(root, host, lister, sink, cancelled);
+            } catch (CancellationException ex) {
+                return;
+            } catch (IOException | RuntimeException ex) {
+                // Any failure is handed to the consumer, which waits for the end otherwise.
+                last = ex;
+            }
+
+            Handoff.offer(queue, last, cancelled);
+
+        });
+
+        Iterator<Entry> iterator = new Iterator<>() {
+
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new UncheckedIOException(new InterruptedIOException("Interrupted while walking."));
+                    }
+                }
+
+                if (next instanceof IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+
+                if (next instanceof RuntimeException ex) {
+                    throw ex;
+                }
+
+                return next != END;
+
+            }
+
+            @Override
+            public Entry next() {
+
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Entry entry = (Entry) next;
+                next = null;
+
+                return entry;
+
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    cancelled.set(true);
+                    task.cancel(false);
+                    queue.clear();
+                });
+
+    }
+
+    private static String host(SmbFile root) {
+        return root.getServer() == null ? "" : root.getServer().toLowerCase(Locale.ROOT);
+    }
+
+    private void listSmb(Entry dir, Consumer<Entry> out) throws IOException {
+
+        SmbFile directory = dir.file;
+
+        directory.listFiles(f -> {
+
+            out.accept(Entry.of(f));
+
+            if (cache != null) {
+                cache.put(f);
+            }
+
+            return false;
+
+        });
+
+    }
+
+    /**
+     * Lister of a directory.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    interface Lister {
+
+        /**
+         * List the directory.
+         *
+         * @param dir the directory
+         * @param out the consumer of the children
+         * @throws IOException if cannot list
+         * @since 1.0.0
+         */
+        void list(Entry dir, Consumer<Entry> out) throws IOException;
+    }
+
+    private static final class Walk {
+
+        private final Semaphore permits;
+
+        private final Lister lister;
+
+        private final Consumer<? super Entry> sink;
+
+        private final AtomicBoolean cancelled;
+
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        private Walk(Semaphore permits, Lister lister, Consumer<? super Entry> sink, AtomicBoolean cancelled) {
+            this.permits = permits;
+            this.lister = lister;
+            this.sink = sink;
+            this.cancelled = cancelled;
+        }
+
+        private boolean isStopped() {
+            return cancelled.get() || failure.get() != null;
+        }
+    }
+
+    private static final class ListTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Walk walk;
+
+        private final transient Entry dir;
+
+        private ListTask(Walk walk, Entry dir) {
+            this.walk = walk;
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (walk.isStopped()) {
+                return;
+            }
+
+            List<Entry> children = new ArrayList<>();
+
+            try {
+                ForkJoinPool.managedBlock(new Listing(walk, dir, children));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                walk.failure.compareAndSet(null, new InterruptedIOException("Interrupted while walking."));
+                return;
+            }
+
+            List<ListTask> subtasks = new ArrayList<>();
+
+            for (Entry child : children) {
+
+                if (walk.isStopped()) {
+                    return;
+                }
+
+                walk.sink.accept(child);
+
+                if (child.isDirectory()) {
+                    subtasks.add(new ListTask(walk, child));
+                }
+
+            }
+
+            invokeAll(subtasks);
+
+        }
+    }
+
+    private static final class Listing implements ForkJoinPool.ManagedBlocker {
+
+        private final Walk walk;
+
+        private final Entry dir;
+
+        private final List<Entry> children;
+
+        private boolean done;
+
+        private Listing(Walk walk, Entry dir, List<Entry> children) {
+            this.walk = walk;
+            this.dir = dir;
+            this.children = children;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+
+            walk.permits.acquire();
+
+            try {
+
+                // The siblings that waited for the permit stop once the walk is closed or failed.
+                if (!walk.isStopped()) {
+                    walk.lister.list(dir, children::add);
+                }
+
+            } catch (IOException ex) {
+                walk.failure.compareAndSet(null, ex);
+            } finally {
+                walk.permits.release();
+                done = true;
+            }
+
+            return true;
+
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    private static final class Handoff implements ForkJoinPool.ManagedBlocker {
+
+        private final BlockingQueue<Object> queue;
+
+        private final Object item;
+
+        private final AtomicBoolean cancelled;
+
+        private boolean offered;
+
+        private Handoff(BlockingQueue<Object> queue, Object item, AtomicBoolean cancelled) {
+            this.queue = queue;
+            this.item = item;
+            this.cancelled = cancelled;
+        }
+
+        private static boolean offer(BlockingQueue<Object> queue, Object item, AtomicBoolean cancelled) {
+
+            Handoff handoff = new Handoff(queue, item, cancelled);
+
+            try {
+                ForkJoinPool.managedBlock(handoff);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            return handoff.offered;
+
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+
+            while (!offered && !cancelled.get()) {
+                offered = queue.offer(item, 100, TimeUnit.MILLISECONDS);
+            }
+
+            return true;
+
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return offered || cancelled.get() || (offered = queue.offer(item));
+        }
+    }
+
+    /**
+     * Entry of the tree with the attributes that the listing returned.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is immutable and thread-safe.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static final class Entry {
+
+        private final transient SmbFile file;
+
+        private final String url;
+
+        private final String name;
+
+        private final boolean directory;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final long createTime;
+
+        private final int attributes;
+
+        /**
+         * Constructor.
+         *
+         * @param file the SMB file. {@code null} if not an SMB file.
+         * @param url URL of the entry
+         * @param name name of the entry
+         * @param directory whether the entry is a directory
+         * @param size size in bytes
+         * @param lastModified modified time in milliseconds since the epoch
+         * @param createTime create time in milliseconds since the epoch
+         * @param attributes DOS attributes
+         * @since 1.0.0
+         */
+        Entry(SmbFile file, String url, String name, boolean directory, long size, long lastModified, long createTime,
+                int attributes) {
+            this.file = file;
+            this.url = Objects.requireNonNull(url);
+            this.name = Objects.requireNonNull(name);
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.createTime = createTime;
+            this.attributes = attributes;
+        }
+
+        private static Entry root(SmbFile root) {
+            return new Entry(Objects.requireNonNull(root), root.getCanonicalPath(), root.getName(), true, 0, 0, 0, 0);
+        }
+
+        private static Entry of(SmbFile file) throws SmbException {
+
+            int attributes = file.getAttributes();
+
+            return new Entry(file, file.getCanonicalPath(), file.getName(),
+                    (attributes & SmbFile.ATTR_DIRECTORY) != 0, file.length(), file.lastModified(), file.createTime(),
+                    attributes);
+
+        }
+
+        /**
+         * Get the SMB file of this entry.
+         *
+         * @return the SMB file. Its attributes are cached from the listing.
+         * @throws IllegalStateException if this entry is not of an SMB file
+         * @since 1.0.0
+         */
+        public SmbFile getFile() {
+
+            if (file == null) {
+                throw new IllegalStateException("Not an SMB file.");
+            }
+
+            return file;
+
+        }
+
+        /**
+         * Get the URL.
+         *
+         * @return URL of the entry. It ends with {@code /} if a directory.
+         * @since 1.0.0
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Get the name.
+         *
+         * @return name of the entry. It ends with {@code /} if a directory.
+         * @since 1.0.0
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Whether a directory.
+         *
+         * @return {@code true} if a directory
+         * @since 1.0.0
+         */
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * Get the size.
+         *
+         * @return size in bytes
+         * @since 1.0.0
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the modified time.
+         *
+         * @return modified time in milliseconds since the epoch
+         * @since 1.0.0
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Get the create time.
+         *
+         * @return create time in milliseconds since the epoch
+         * @since 1.0.0
+         */
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        /**
+         * Get the DOS attributes.
+         *
+         * @return the DOS attributes
+         * @see SmbFile#ATTR_DIRECTORY
+         * @since 1.0.0
+         */
+        public int getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * Returns a string representation of this.
+         *
+         * @return string representation
+         * @since 1.0.0
+         */
+        @Override
+        public String toString() {
+            return "JcifsngTreeWalker.Entry{url=%s, directory=%s, size=%d, lastModified=%d}"
+                    .formatted(url, directory, size, lastModified);
+        }
+    }
+}
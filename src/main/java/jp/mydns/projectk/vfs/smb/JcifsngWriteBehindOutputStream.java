@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import jcifs.CIFSContext;
+import jcifs.smb.SmbFile;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Output stream that coalesces the small writes and writes them behind.
+ * <p>
+ * The written bytes are collected into the chunks of {@link WriteBehindChunkSize}, and each full chunk is written in
+ * the background at its own offset. At most {@link WriteBehindMaxPending} chunks are being written at once, so the
+ * memory is bounded by the chunk size times one more than that. A failure of a background write is thrown by the
+ * following {@link #write(byte[], int, int)}, {@link #flush()} or {@link #close()}.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is not thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JcifsngWriteBehindOutputStream extends OutputStream {
+
+    private final JcifsngRangeWriter writer;
+
+    private final int chunkSize;
+
+    private final int maxPending;
+
+    private final Executor executor;
+
+    private final Semaphore permits;
+
+    private final Queue<byte[]> spares = new ConcurrentLinkedQueue<>();
+
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    private byte[] buffer;
+
+    private int count;
+
+    private long position;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param writer the {@code JcifsngRangeWriter}. It is closed when this stream is closed.
+     * @param position the position of the file to start writing at
+     * @param chunkSize size of a chunk in bytes
+     * @param maxPending maximum number of the chunks being written at once
+     * @param executor executor of the writes
+     * @throws NullPointerException if {@code writer} or {@code executor} is {@code null}
+     * @throws IllegalArgumentException if {@code position} is negative, or if {@code chunkSize} or {@code maxPending}
+     * is not positive
+     * @since 1.0.0
+     */
+    public JcifsngWriteBehindOutputStream(JcifsngRangeWriter writer, long position, int chunkSize, int maxPending,
+            Executor executor) {
+
+        if (position < 0 || chunkSize < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("Position must not be negative, and chunk size and pending must be"
+                    + " positive.");
+        }
+
+        this.writer = Objects.requireNonNull(writer);
+        this.executor = Objects.requireNonNull(executor);
+        this.position = position;
+        this.chunkSize = chunkSize;
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxPending);
+
+    }
+
+    /**
+     * Open the SMB file with the JCIFS-NG context and the options of {@code opts}. The file is created if not exists.
+     *
+     * @param url SMB URL of the file
+     * @param opts the {@code FileSystemOptions} that the {@link JcifsngOption}s are applied
+     * @param append {@code true} to write at the end of the file, {@code false} to truncate the file
+     * @return the opened stream
+     * @throws NullPointerException if {@code url} or {@code opts} is {@code null}
+     * @throws IllegalArgumentException if {@link WriteBehindChunkSize} or {@link WriteBehindMaxPending} is not
+     * positive
+     * @throws IOException if cannot open the file
+     * @since 1.0.0
+     */
+    public static JcifsngWriteBehindOutputStream open(String url, FileSystemOptions opts, boolean append)
+            throws IOException {
+
+        Objects.requireNonNull(url);
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+        Map<String, String> props = JcifsngModuleProperties.of(opts);
+
+        int chunkSize = JcifsngModuleProperties.getPositiveInt(props, WriteBehindChunkSize.NAME,
+                Math.max(1, context.getConfig().getSendBufferSize()));
+        int maxPending = JcifsngModuleProperties.getPositiveInt(props, WriteBehindMaxPending.NAME,
+                WriteBehindMaxPending.DEFAULT);
+
+        SmbFile file = new SmbFile(url, context);
+        JcifsngRangeWriter writer = JcifsngRangeWriter.of(file);
+
+        try {
+
+            long position = 0;
+
+            if (append) {
+                position = file.exists() ? file.length() : 0;
+            } else {
+                writer.setLength(0);
+            }
+
+            return new JcifsngWriteBehindOutputStream(writer, position, chunkSize, maxPending,
+                    JcifsngIoExecutor.shared());
+
+        } catch (IOException | RuntimeException ex) {
+            writer.close();
+            throw ex;
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IOException if occurs I/O error, or if a background write has failed
+     * @since 1.0.0
+     */
+    @Override
+    public void write(int b) throws IOException {
+
+        ensureOpen();
+        throwIfFailed();
+
+        if (buffer == null) {
+            buffer = spare();
+        }
+
+        buffer[count++] = (byte) b;
+
+        if (count == chunkSize) {
+            submit();
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IOException if occurs I/O error, or if a background write has failed
+     * @since 1.0.0
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureOpen();
+        throwIfFailed();
+
+        while (len > 0) {
+
+            if (buffer == null) {
+                buffer = spare();
+            }
+
+            int n = Math.min(len, chunkSize - count);
+
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+
+            if (count == chunkSize) {
+                submit();
+            }
+
+        }
+
+    }
+
+    /**
+     * Write the coalesced bytes, and wait for all background writes.
+     *
+     * @throws IOException if occurs I/O error, or if a background write has failed
+     * @since 1.0.0
+     */
+    @Override
+    public void flush() throws IOException {
+
+        ensureOpen();
+
+        if (count > 0) {
+            submit();
+        }
+
+        drain();
+        throwIfFailed();
+
+    }
+
+    /**
+     * Flush, and close the writer.
+     *
+     * @throws IOException if occurs I/O error, or if a background write has failed
+     * @since 1.0.0
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        try (writer) {
+            flush();
+        } finally {
+            closed = true;
+            buffer = null;
+            spares.clear();
+        }
+
+    }
+
+    private void submit() throws IOException {
+
+        byte[] chunk = buffer;
+        int length = count;
+        long offset = position;
+
+        buffer = null;
+        count = 0;
+        position += length;
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing.");
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        writer.write(offset, chunk, 0, length);
+                    }
+                } catch (IOException ex) {
+                    failure.compareAndSet(null, ex);
+                } catch (RuntimeException ex) {
+                    failure.compareAndSet(null, new IOException(ex));
+                } finally {
+                    spares.offer(chunk);
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+
+    }
+
+    private void drain() throws IOException {
+
+        try {
+            permits.acquire(maxPending);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing.");
+        }
+
+        permits.release(maxPending);
+
+    }
+
+    private byte[] spare() {
+
+        byte[] chunk = spares.poll();
+
+        return chunk != null ? chunk : new byte[chunkSize];
+
+    }
+
+    private void throwIfFailed() throws IOException {
+
+        IOException cause = failure.get();
+
+        if (cause != null) {
+            throw new IOException("Background write failed.", cause);
+        }
+
+    }
+
+    private void ensureOpen() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream is closed.");
+        }
+
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.JsonValue;
+import java.util.ServiceLoader;
+import jp.mydns.projectk.vfs.FileOption;
+import static jp.mydns.projectk.vfs.FileOptionSourceValidator.requireLong;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Memory cap in bytes of the metadata cache that is shared across the contexts. Zero disables the cache.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * <li>This class and JSON can be converted bidirectionally.</li>
+ * <li>Can reflect this class on the {@link FileSystemOptions}.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see JcifsngMetadataCache
+ */
+@FileOption.Name("smb:metadataCache.capacity")
+@JcifsngOption.Name(MetadataCacheCapacity.NAME)
+public class MetadataCacheCapacity extends JcifsngLongOption {
+
+    /**
+     * Property name.
+     *
+     * @since 1.0.0
+     */
+    static final String NAME = JcifsngModuleProperties.PREFIX + "metadataCache.capacity";
+
+    /**
+     * Constructor.
+     *
+     * @param value option value
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @throws IllegalArgumentException if {@code value} is not convertible to type {@code long}, or if it is negative
+     * @since 1.0.0
+     */
+    public MetadataCacheCapacity(JsonValue value) {
+        this(requireLong(value, "smb:metadataCache.capacity"));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param value option value
+     * @throws IllegalArgumentException if {@code value} is negative
+     * @since 1.0.0
+     */
+    public MetadataCacheCapacity(long value) {
+        super(requireNonNegative(value, "smb:metadataCache.capacity"));
+    }
+
+    /**
+     * Resolver for {@link MetadataCacheCapacity} instance from JSON.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is immutable and thread-safe.</li>
+     * <li>Implementations of this interface must be able to construct instances using {@link ServiceLoader}.</li>
+     * <li>This class must be able to construct an instance of {@code FileOption} from the JSON representing
+     * {@code FileOption}.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static class Resolver implements JcifsngOptionResolver {
+    }
+}
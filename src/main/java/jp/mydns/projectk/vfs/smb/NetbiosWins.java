@@ -57,6 +57,8 @@ public class NetbiosWins extends JcifsngOption {
 
     private final List<String> values;
 
+    private final int hash;
+
     /**
      * Constructor.
      *
@@ -66,7 +68,8 @@ public class NetbiosWins extends JcifsngOption {
      * @since 1.0.0
      */
     public NetbiosWins(JsonValue values) {
-        this.values = requireStringList(Objects.requireNonNull(values), "smb:netbios.wins");
+        this.values = List.copyOf(requireStringList(Objects.requireNonNull(values), "smb:netbios.wins"));
+        this.hash = hash(getClass(), this.values.hashCode());
     }
 
     /**
@@ -78,6 +81,7 @@ public class NetbiosWins extends JcifsngOption {
      */
     public NetbiosWins(List<String> values) {
         this.values = List.copyOf(Objects.requireNonNull(values));
+        this.hash = hash(getClass(), this.values.hashCode());
     }
 
     /**
@@ -101,18 +105,18 @@ public class NetbiosWins extends JcifsngOption {
     }
 
     /**
-     * Returns a hash code value.
+     * Returns a hash code value. It is computed at construction.
      *
      * @return a hash code value
      * @since 1.0.0
      */
     @Override
     public int hashCode() {
-        return Objects.hash(getName(), getValue());
+        return hash;
     }
 
     /**
-     * Indicates that other object is equal to this one.
+     * Indicates that other object is equal to this one. It is equal if it is the same class and has the same values.
      *
      * @param other an any object
      * @return {@code true} if equals otherwise {@code false}
@@ -120,19 +124,24 @@ public class NetbiosWins extends JcifsngOption {
      */
     @Override
     public boolean equals(Object other) {
-        return other instanceof NetbiosWins o && Objects.equals(getName(), o.getName())
-                && Objects.equals(getValue(), o.getValue());
-    }
 
-    /**
-     * Returns a string representation of this.
-     *
-     * @return string representation
-     * @since 1.0.0
-     */
-    @Override
-    public String toString() {
-        return Json.createObjectBuilder().add(getName(), getValue()).build().toString();
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof NetbiosWins o) || getClass() != o.getClass() || hash != o.hash
+                || values.size() != o.values.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).equals(o.values.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+
     }
 
     /**
@@ -150,6 +159,6 @@ public class NetbiosWins extends JcifsngOption {
      * @version 1.0.0
      * @since 1.0.0
      */
-    public static class Resolver implements FileOption.Resolver {
+    public static class Resolver implements JcifsngOptionResolver {
     }
 }
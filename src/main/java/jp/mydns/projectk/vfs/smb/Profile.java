@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import static java.util.stream.Collectors.joining;
+import java.util.stream.Stream;
+import jp.mydns.projectk.vfs.FileOption;
+import org.apache.commons.vfs2.FileSystemOptions;
+
+/**
+ * Throughput tuning profile. It is a composite option that expands to the preset {@link JcifsngOption}s.
+ * <p>
+ * The preset options are staged together with the other options, so the JCIFS-NG context is built only once. The
+ * options that are set explicitly take precedence over the preset regardless of the order of applying.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is immutable and thread-safe.</li>
+ * <li>This class and JSON can be converted bidirectionally.</li>
+ * <li>Can reflect this class on the {@link FileSystemOptions}.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see Preset
+ */
+@FileOption.Name("smb:profile")
+public class Profile extends JcifsngOption {
+
+    private final Preset value;
+
+    private final int hash;
+
+    /**
+     * Constructor.
+     *
+     * @param value option value
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @throws IllegalArgumentException if {@code value} is not convertible to {@link Preset}
+     * @since 1.0.0
+     */
+    public Profile(JsonValue value) {
+        this(toPreset(value));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param value option value
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @since 1.0.0
+     */
+    public Profile(Preset value) {
+
+        this.value = Objects.requireNonNull(value);
+        this.hash = hash(getClass(), value.name().hashCode());
+
+    }
+
+    private static Preset toPreset(JsonValue value) {
+
+        Objects.requireNonNull(value);
+
+        try {
+            return Preset.valueOf(JsonString.class.cast(value).getString());
+        } catch (ClassCastException | IllegalArgumentException ex) {
+
+            String availables = Stream.of(Preset.values()).map(Enum::name).collect(joining(", "));
+
+            throw new IllegalArgumentException("FileOption value of [smb:profile] must be either [%s]."
+                    .formatted(availables));
+
+        }
+
+    }
+
+    /**
+     * Get the preset.
+     *
+     * @return the preset
+     * @since 1.0.0
+     */
+    public Preset getPreset() {
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    protected String getValueAsText() {
+        return value.name();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public JsonValue getValue() {
+        return Json.createValue(value.name());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Stage the preset properties except that already staged.
+     *
+     * @since 1.0.0
+     */
+    @Override
+    void stage(FileSystemOptions opts) {
+
+        JcifsngConfigBuilder builder = JcifsngConfigBuilder.getInstance();
+        SortedMap<String, String> props = new TreeMap<>(value.getProperties());
+
+        props.keySet().removeAll(builder.getStagedProperties(opts).keySet());
+
+        builder.stageAll(opts, props);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Put the preset properties that are absent in {@code props}.
+     *
+     * @since 1.0.0
+     */
+    @Override
+    void collect(Map<String, String> props) {
+        value.getProperties().forEach(props::putIfAbsent);
+    }
+
+    /**
+     * Returns a hash code value. It is computed at construction.
+     *
+     * @return a hash code value
+     * @since 1.0.0
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Indicates that other object is equal to this one. It is equal if it has the same preset.
+     *
+     * @param other an any object
+     * @return {@code true} if equals otherwise {@code false}
+     * @since 1.0.0
+     */
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof Profile o && getClass() == o.getClass() && value == o.value;
+    }
+
+    /**
+     * Preset of the throughput tuning.
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public enum Preset {
+
+        /**
+         * Datacenter LAN of 10/25 GbE. Large buffers and many outstanding requests, and TCP no delay.
+         *
+         * @since 1.0.0
+         */
+        LAN(new ClientReceiveBufferSize(1_048_576), new ClientSendBufferSize(1_048_576),
+                new ClientTransactionBufferSize(1_048_576), new ClientMaxMpxCount(128), new BufferCacheSize(64),
+                new ClientTcpNoDelay(true)),
+        /**
+         * High RTT WAN link. Long timeouts and few retries.
+         *
+         * @since 1.0.0
+         */
+        WAN(new ClientConnectionTimeout(60_000), new ClientResponseTimeout(120_000),
+                new ClientSocketTimeout(180_000), new ClientSessionTimeout(180_000), new ClientMaxRequestRetries(1));
+
+        private final List<JcifsngOption> options;
+
+        private final SortedMap<String, String> properties;
+
+        Preset(JcifsngOption... options) {
+
+            SortedMap<String, String> props = new TreeMap<>();
+
+            for (JcifsngOption option : options) {
+                option.collect(props);
+            }
+
+            this.options = List.of(options);
+            this.properties = Collections.unmodifiableSortedMap(props);
+
+        }
+
+        /**
+         * Get the preset options.
+         *
+         * @return unmodifiable preset options
+         * @since 1.0.0
+         */
+        public List<JcifsngOption> getOptions() {
+            return options;
+        }
+
+        /**
+         * Get the JCIFS-NG properties of the preset options.
+         *
+         * @return unmodifiable JCIFS-NG properties sorted by name
+         * @since 1.0.0
+         */
+        SortedMap<String, String> getProperties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Resolver for {@link Profile} instance from JSON.
+     * <p>
+     * Implementation requirements.
+     * <ul>
+     * <li>This class is immutable and thread-safe.</li>
+     * <li>Implementations of this interface must be able to construct instances using {@link ServiceLoader}.</li>
+     * <li>This class must be able to construct an instance of {@code FileOption} from the JSON representing
+     * {@code FileOption}.</li>
+     * </ul>
+     *
+     * @author riru
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static class Resolver implements JcifsngOptionResolver {
+    }
+}
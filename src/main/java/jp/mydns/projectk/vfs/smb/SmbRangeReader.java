@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import jcifs.smb.SmbFile;
+import jcifs.smb.SmbRandomAccessFile;
+
+/**
+ * {@link JcifsngRangeReader} of an SMB file. The file handles are pooled, and each concurrent read borrows one of
+ * them.
+ * <p>
+ * Implementation requirements.
+ * <ul>
+ * <li>This class is thread-safe.</li>
+ * </ul>
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class SmbRangeReader implements JcifsngRangeReader {
+
+    private final SmbFile file;
+
+    private final Queue<SmbRandomAccessFile> handles = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param file the SMB file
+     * @since 1.0.0
+     */
+    SmbRangeReader(SmbFile file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the size of the file. It is queried with a new SMB file of the same URL, because the SMB file caches its size
+     * for {@link ClientAttributeCacheTimeout}, and the writes through its handles do not refresh the cache.
+     *
+     * @return the size in bytes
+     * @throws IOException if occurs I/O error
+     * @since 1.0.0
+     */
+    @Override
+    public long size() throws IOException {
+
+        if (closed) {
+            throw new IOException("Reader is closed.");
+        }
+
+        try (SmbFile fresh = new SmbFile(file.getURL(), file.getContext())) {
+            return fresh.length();
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+
+        SmbRandomAccessFile handle = borrow();
+
+        try {
+
+            handle.seek(position);
+
+            return handle.read(b, off, len);
+
+        } finally {
+            giveBack(handle);
+        }
+
+    }
+
+    private SmbRandomAccessFile borrow() throws IOException {
+
+        if (closed) {
+            throw new IOException("Reader is closed.");
+        }
+
+        SmbRandomAccessFile handle = handles.poll();
+
+        return handle != null ? handle : file.openRandomAccess("r");
+
+    }
+
+    private void giveBack(SmbRandomAccessFile handle) throws IOException {
+
+        handles.offer(handle);
+
+        if (closed) {
+            closeHandles();
+        }
+
+    }
+
+    /**
+     * Close all pooled file handles, and the SMB file.
+     *
+     * @throws IOException if occurs I/O error
+     * @since 1.0.0
+     */
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+
+        try {
+            closeHandles();
+        } finally {
+            file.close();
+        }
+
+    }
+
+    private void closeHandles() throws IOException {
+
+        IOException failure = null;
+
+        for (SmbRandomAccessFile handle = handles.poll(); handle != null; handle = handles.poll()) {
+            try {
+                handle.close();
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+    }
+}
@@ -45,6 +45,8 @@ module jp.mydns.projectk.vfs.smb {
     uses jp.mydns.projectk.vfs.FileOption.Resolver;
     provides jp.mydns.projectk.vfs.FileOption.Resolver with
             jp.mydns.projectk.vfs.smb.AllowNtlmFallback.Resolver
+          , jp.mydns.projectk.vfs.smb.BlockCacheBlockSize.Resolver
+          , jp.mydns.projectk.vfs.smb.BlockCacheCapacity.Resolver
           , jp.mydns.projectk.vfs.smb.BufferCacheSize.Resolver
           , jp.mydns.projectk.vfs.smb.ClientAllowGuestFallback.Resolver
           , jp.mydns.projectk.vfs.smb.ClientAttributeCacheTimeout.Resolver
@@ -102,6 +104,10 @@ module jp.mydns.projectk.vfs.smb {
           , jp.mydns.projectk.vfs.smb.ClientUseUnicode.Resolver
           , jp.mydns.projectk.vfs.smb.LmCompatibility.Resolver
           , jp.mydns.projectk.vfs.smb.MaximumVersion.Resolver
+          , jp.mydns.projectk.vfs.smb.MetadataCacheCapacity.Resolver
+          , jp.mydns.projectk.vfs.smb.MetadataCacheShareTtls.Resolver
+          , jp.mydns.projectk.vfs.smb.MetadataCacheTtl.Resolver
+          , jp.mydns.projectk.vfs.smb.MetadataCacheWatchedTtl.Resolver
           , jp.mydns.projectk.vfs.smb.MinimumVersion.Resolver
           , jp.mydns.projectk.vfs.smb.NetbiosBroadcastAddress.Resolver
           , jp.mydns.projectk.vfs.smb.NetbiosCachePolicy.Resolver
@@ -117,7 +123,17 @@ module jp.mydns.projectk.vfs.smb {
           , jp.mydns.projectk.vfs.smb.NetbiosSocketTimeout.Resolver
           , jp.mydns.projectk.vfs.smb.NetbiosWins.Resolver
           , jp.mydns.projectk.vfs.smb.OemEncoding.Resolver
+          , jp.mydns.projectk.vfs.smb.Profile.Resolver
+          , jp.mydns.projectk.vfs.smb.ReadAheadInitialWindow.Resolver
+          , jp.mydns.projectk.vfs.smb.ReadAheadMaxWindow.Resolver
+          , jp.mydns.projectk.vfs.smb.ReadChunkSize.Resolver
+          , jp.mydns.projectk.vfs.smb.ReadParallelism.Resolver
           , jp.mydns.projectk.vfs.smb.TraceResources.Resolver
-          , jp.mydns.projectk.vfs.smb.UseRawNtlm.Resolver;
+          , jp.mydns.projectk.vfs.smb.UseRawNtlm.Resolver
+          , jp.mydns.projectk.vfs.smb.WalkParallelism.Resolver
+          , jp.mydns.projectk.vfs.smb.WriteBehindChunkSize.Resolver
+          , jp.mydns.projectk.vfs.smb.WriteBehindMaxPending.Resolver
+          , jp.mydns.projectk.vfs.smb.WriteChunkSize.Resolver
+          , jp.mydns.projectk.vfs.smb.WriteParallelism.Resolver;
     exports jp.mydns.projectk.vfs.smb;
 }
@@ -25,9 +25,8 @@
  */
 package jp.mydns.projectk.vfs.smb;
 
+import jcifs.CIFSContext;
 import jcifs.Configuration;
-import jcifs.config.PropertyConfiguration;
-import jcifs.context.BaseContext;
 import org.apache.commons.vfs2.FileSystemOptions;
 
 /**
@@ -39,16 +38,14 @@ import org.apache.commons.vfs2.FileSystemOptions;
  */
 abstract class AbstractOptionTest {
 
-    protected PropertyConfiguration toPropertyConfiguration(FileSystemOptions fsOpts) {
+    protected Configuration toPropertyConfiguration(FileSystemOptions fsOpts) {
         
         var utils = new SmbConfigUtils();
         
-        BaseContext bc = BaseContext.class.cast(utils.getParam(fsOpts,
+        CIFSContext ctx = CIFSContext.class.cast(utils.getParam(fsOpts,
                 "jp.mydns.projectk.vfs.provider.jcifsng.SmbFileSystemConfigBuilder.CIFSCONTEXT"));
         
-        Configuration config = PropertyConfiguration.class.cast(bc.getConfig());
-        
-        return PropertyConfiguration.class.cast(config);
+        return ctx.getConfig();
         
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import jcifs.DialectVersion;
+import jcifs.config.PropertyConfiguration;
+import jcifs.context.BaseContext;
+import jp.mydns.projectk.vfs.provider.jcifsng.SmbFileSystemConfigBuilder;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of building the JCIFS-NG context from a typical set of options.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main ContextBuildBenchmark -prof gc} to see the allocation
+ * rate in addition to the time. {@code perOption} builds one {@code BaseContext} per option like the former
+ * {@link JcifsngOption#apply(FileSystemOptions)}, {@code applyAll} only stages the properties and the context is built
+ * on first use.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextBuildBenchmark {
+
+    private final List<JcifsngOption> options = List.of(new BufferCacheSize(16), new ClientConnectionTimeout(35000),
+            new ClientResponseTimeout(30000), new ClientSocketTimeout(35000), new ClientSessionTimeout(35000),
+            new ClientReceiveBufferSize(65536), new ClientSendBufferSize(65536),
+            new ClientTransactionBufferSize(65536), new ClientMaxMpxCount(10), new ClientTcpNoDelay(true),
+            new ClientSigningPreferred(true), new ClientUseLargeReadWrite(true), new ClientDfsDisabled(true),
+            new ClientListCount(200), new ClientListSize(65535), new ClientAttributeCacheTimeout(5000),
+            new MinimumVersion(DialectVersion.SMB202), new MaximumVersion(DialectVersion.SMB311),
+            new ClientDefaultUserName("user"), new ClientDefaultPassword("password"));
+
+    /**
+     * Build a {@code BaseContext} for each option.
+     *
+     * @return the options that the last built context is set
+     * @throws Exception if cannot build
+     * @since 1.0.0
+     */
+    @Benchmark
+    public FileSystemOptions perOption() throws Exception {
+
+        FileSystemOptions opts = new FileSystemOptions();
+
+        for (JcifsngOption option : options) {
+
+            Properties props = new Properties();
+            props.setProperty(option.getJcifsngOptionName(), option.getValueAsText());
+
+            SmbFileSystemConfigBuilder.getInstance().setCIFSContext(opts,
+                    new BaseContext(new PropertyConfiguration(props)));
+
+        }
+
+        return opts;
+
+    }
+
+    /**
+     * Build a single {@code BaseContext} from all options.
+     *
+     * @return the options that the built context is set
+     * @throws Exception if cannot build
+     * @since 1.0.0
+     */
+    @Benchmark
+    public FileSystemOptions applyAll() throws Exception {
+
+        FileSystemOptions opts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(options, opts);
+
+        return opts;
+
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class DeferredJcifsngContext.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class DeferredJcifsngContextTest {
+
+    /**
+     * Test of apply. The context is not materialized until first use.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply_Deferred() throws Exception {
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new BufferCacheSize(3), new ClientListCount(10)), fsOpts);
+
+        var instance = DeferredJcifsngContext.class.cast(new SmbConfigUtils().getParam(fsOpts,
+                "jp.mydns.projectk.vfs.provider.jcifsng.SmbFileSystemConfigBuilder.CIFSCONTEXT"));
+
+        assertThat(instance.isMaterialized()).isFalse();
+        assertThat(instance.getProperties())
+                .containsExactly(Map.entry("jcifs.smb.client.listCount", "10"), Map.entry("jcifs.smb.maxBuffers", "3"));
+
+        assertThat(instance.getConfig().getBufferCacheSize()).isEqualTo(3);
+        assertThat(instance.isMaterialized()).isTrue();
+
+    }
+
+    /**
+     * Test of close method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testClose() throws Exception {
+
+        var instance = new DeferredJcifsngContext(Map.of("jcifs.smb.maxBuffers", "4"));
+
+        instance.materialize();
+
+        assertThat(instance.close()).isFalse();
+        assertThat(instance.isMaterialized()).isFalse();
+
+    }
+
+    /**
+     * Test {@code equals} method, {@code hashCode} method and {@code compareTo} method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testEqualsHashCode() {
+
+        var base = new DeferredJcifsngContext(Map.of("jcifs.smb.maxBuffers", "4", "jcifs.smb.client.listCount", "1"));
+        var same = new DeferredJcifsngContext(Map.of("jcifs.smb.client.listCount", "1", "jcifs.smb.maxBuffers", "4"));
+        var another = new DeferredJcifsngContext(Map.of("jcifs.smb.maxBuffers", "4"));
+
+        assertThat(base).hasSameHashCodeAs(same).isEqualTo(same).isEqualByComparingTo(same)
+                .doesNotHaveSameHashCodeAs(another).isNotEqualTo(another).isLessThan(another);
+
+    }
+}
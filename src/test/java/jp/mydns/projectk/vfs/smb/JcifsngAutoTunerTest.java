@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngAutoTuner.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngAutoTunerTest {
+
+    /**
+     * Test of tune method on a LAN stand-in. 0.2 ms RTT and 1 GB/s.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testTune_Lan() throws IOException {
+
+        var clock = new AtomicLong();
+        var tuner = new JcifsngAutoTuner(3, 1_048_576, 1_048_576, 8, clock::get);
+
+        var result = tuner.tune(new StandIn(200_000L, 1_000_000_000L, clock::addAndGet));
+
+        assertThat(result.getRoundTripTime()).isEqualTo(Duration.ofNanos(200_000L));
+        assertThat(result.getReadBandwidth()).isBetween(990_000_000L, 1_010_000_000L);
+        assertThat(result.getOptions()).containsExactly(new ClientReceiveBufferSize(262_144),
+                new ClientSendBufferSize(262_144), new ClientTransactionBufferSize(262_144), new ClientMaxMpxCount(10),
+                new ClientListSize(262_044));
+
+    }
+
+    /**
+     * Test of tune method with the small requests. The round trip of each request is not mistaken for the transfer.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testTune_PerRequestLatency() throws IOException {
+
+        var clock = new AtomicLong();
+        var tuner = new JcifsngAutoTuner(3, 4_194_304, 65_536, 4, clock::get);
+
+        // 64 requests in 16 waves of 4. The round trips take 16 ms and the transfer takes 42 ms.
+        var result = tuner.tune(new StandIn(1_000_000L, 100_000_000L, clock::addAndGet));
+
+        assertThat(result.getReadBandwidth()).isBetween(99_000_000L, 101_000_000L);
+        assertThat(result.getWriteBandwidth()).isBetween(99_000_000L, 101_000_000L);
+        assertThat(result.getOptions()).contains(new ClientReceiveBufferSize(131_072),
+                new ClientSendBufferSize(131_072));
+
+    }
+
+    /**
+     * Test of tune method on a WAN stand-in. 80 ms RTT and 125 MB/s.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testTune_Wan() throws IOException {
+
+        var clock = new AtomicLong();
+        var tuner = new JcifsngAutoTuner(3, 1_048_576, 1_048_576, 8, clock::get);
+
+        var result = tuner.tune(new StandIn(80_000_000L, 125_000_000L, clock::addAndGet));
+
+        assertThat(result.getOptions()).containsExactly(
+                new ClientReceiveBufferSize(JcifsngAutoTuner.MAX_BUFFER_SIZE),
+                new ClientSendBufferSize(JcifsngAutoTuner.MAX_BUFFER_SIZE),
+                new ClientTransactionBufferSize(JcifsngAutoTuner.MAX_BUFFER_SIZE), new ClientMaxMpxCount(10),
+                new ClientListSize(1_048_476));
+
+    }
+
+    /**
+     * Test of tune method with the real latency that injected by sleeping.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testTune_InjectedLatency() throws IOException {
+
+        var tuner = new JcifsngAutoTuner(3, 262_144);
+
+        var result = tuner.tune(new StandIn(5_000_000L, 100_000_000L, LockSupport::parkNanos));
+
+        assertThat(result.getRoundTripTime()).isGreaterThanOrEqualTo(Duration.ofMillis(5));
+        assertThat(result.getReadBandwidth()).isPositive();
+        assertThat(JcifsngOptionPlan.compile(result.toJson()).getOptions()).isEqualTo(result.getOptions());
+
+    }
+
+    /**
+     * Test of derive method. The multiplex count grows beyond the maximum buffer size.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testDerive_HighBandwidthDelayProduct() {
+
+        // 100 ms and 1 GB/s. BDP is 100 MB.
+        var result = JcifsngAutoTuner.derive(100_000_000L, 1_000_000_000L, 1_000_000_000L);
+
+        assertThat(result.getOptions()).contains(new ClientMaxMpxCount(24));
+
+    }
+
+    /**
+     * Test of derive method. The buffer size is not below the default of JCIFS-NG.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testDerive_Minimum() {
+
+        var result = JcifsngAutoTuner.derive(1_000L, 1_000L, 1_000L);
+
+        assertThat(result.getOptions()).containsExactly(new ClientReceiveBufferSize(65_535),
+                new ClientSendBufferSize(65_535), new ClientTransactionBufferSize(65_535), new ClientMaxMpxCount(10),
+                new ClientListSize(65_435));
+        assertThat(JcifsngOptionValidator.validate(JcifsngOptionPlan.compile(result.getOptions()).getProperties()))
+                .isEmpty();
+
+    }
+
+    /**
+     * Test constructor if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngAutoTuner(0, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngAutoTuner(1, 0));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngAutoTuner(1, 1, 0, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngAutoTuner(1, 1, 1, 0));
+
+    }
+
+    /**
+     * In-process stand-in of the SMB share with the injected latency and bandwidth. Each request costs a round trip,
+     * the outstanding requests overlap their round trips, and they share the bandwidth.
+     */
+    static class StandIn implements JcifsngAutoTuner.Probe {
+
+        private final long rttNanos;
+
+        private final long bandwidth;
+
+        private final LongConsumer delay;
+
+        private int stored;
+
+        StandIn(long rttNanos, long bandwidth, LongConsumer delay) {
+            this.rttNanos = rttNanos;
+            this.bandwidth = bandwidth;
+            this.delay = delay;
+        }
+
+        @Override
+        public void ping() {
+            delay.accept(rttNanos);
+        }
+
+        @Override
+        public void write(byte[] data, int chunkSize, int parallelism) {
+            delay.accept(latency(data.length, chunkSize, parallelism) + transfer(data.length));
+            stored = data.length;
+        }
+
+        @Override
+        public void read(int length, int chunkSize, int parallelism) {
+            delay.accept(latency(length, chunkSize, parallelism) + transfer(Math.min(length, stored)));
+        }
+
+        private long latency(int length, int chunkSize, int parallelism) {
+
+            int requests = (length + chunkSize - 1) / chunkSize;
+
+            return rttNanos * ((requests + parallelism - 1) / parallelism);
+
+        }
+
+        private long transfer(int length) {
+            return (long) (length * 1_000_000_000.0 / bandwidth);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngBlockCache.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngBlockCacheTest {
+
+    private final JcifsngNegotiationMemoryTest.TestClock clock = new JcifsngNegotiationMemoryTest.TestClock();
+
+    /**
+     * Test that the repeated random reads are served from the cache.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Hit() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(10_000);
+        var delegate = new MemoryRangeReader(data, 0L);
+        var instance = new JcifsngBlockCache(8_192, 1_024, 1, Duration.ofSeconds(5), clock);
+
+        try (var reader = instance.wrap("file", 1L, data.length, delegate)) {
+
+            byte[] footer = new byte[100];
+            byte[] page = new byte[1_500];
+
+            for (int i = 0; i < 3; i++) {
+
+                assertThat(reader.read(9_900, footer, 0, 100)).isEqualTo(100);
+                assertThat(reader.read(2_000, page, 0, 1_500)).isEqualTo(1_500);
+
+            }
+
+            assertThat(footer).isEqualTo(Arrays.copyOfRange(data, 9_900, 10_000));
+            assertThat(page).isEqualTo(Arrays.copyOfRange(data, 2_000, 3_500));
+            assertThat(reader.size()).isEqualTo(10_000L);
+            assertThat(reader.read(10_000, footer, 0, 1)).isEqualTo(-1);
+
+        }
+
+        assertThat(delegate.getReads()).isEqualTo(4);
+        assertThat(instance.getMisses()).isEqualTo(4L);
+        assertThat(instance.getHits()).isEqualTo(8L);
+        assertThat(instance.getAllocatedBytes()).isEqualTo(4_096L);
+        assertThat(delegate.isClosed()).isTrue();
+
+    }
+
+    /**
+     * Test that the least recently used block is evicted by the memory cap.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Evict() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(4_096);
+        var delegate = new MemoryRangeReader(data, 0L);
+        var instance = new JcifsngBlockCache(2_048, 1_024, 1, Duration.ofSeconds(5), clock);
+        var reader = instance.wrap("file", 1L, data.length, delegate);
+        byte[] b = new byte[1];
+
+        reader.read(0, b, 0, 1);
+        reader.read(1_024, b, 0, 1);
+        reader.read(0, b, 0, 1);
+        reader.read(2_048, b, 0, 1);
+
+        assertThat(instance.getEvictions()).isEqualTo(1L);
+        assertThat(instance.getAllocatedBytes()).isEqualTo(2_048L);
+
+        reader.read(0, b, 0, 1);
+        reader.read(1_024, b, 0, 1);
+
+        assertThat(delegate.getReads()).isEqualTo(4);
+        assertThat(b[0]).isEqualTo(data[1_024]);
+
+    }
+
+    /**
+     * Test that the blocks are invalidated if the modified time or the size is changed.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrap_Changed() throws IOException {
+
+        var instance = new JcifsngBlockCache(8_192, 1_024, 1, Duration.ofSeconds(5), clock);
+        byte[] before = MemoryRangeReader.sequence(2_000);
+        byte[] after = new byte[2_000];
+        byte[] b = new byte[10];
+
+        instance.wrap("file", 1L, 2_000, new MemoryRangeReader(before, 0L)).read(0, b, 0, 10);
+
+        var changed = new MemoryRangeReader(after, 0L);
+
+        instance.wrap("file", 2L, 2_000, changed).read(0, b, 0, 10);
+
+        assertThat(changed.getReads()).isEqualTo(1);
+        assertThat(b).isEqualTo(new byte[10]);
+
+        var resized = new MemoryRangeReader(after, 0L);
+
+        instance.wrap("file", 2L, 1_500, resized).read(0, b, 0, 10);
+
+        assertThat(resized.getReads()).isEqualTo(1);
+        assertThat(instance.getAllocatedBytes()).isEqualTo(1_024L);
+
+    }
+
+    /**
+     * Test that the block expires after the TTL.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Expired() throws IOException {
+
+        var delegate = new MemoryRangeReader(MemoryRangeReader.sequence(100), 0L);
+        var instance = new JcifsngBlockCache(1_024, 1_024, 1, Duration.ofSeconds(5), clock);
+        var reader = instance.wrap("file", 1L, 100, delegate);
+        byte[] b = new byte[10];
+
+        reader.read(0, b, 0, 10);
+        clock.advance(Duration.ofSeconds(4));
+        reader.read(0, b, 0, 10);
+
+        assertThat(delegate.getReads()).isEqualTo(1);
+
+        clock.advance(Duration.ofSeconds(1));
+        reader.read(0, b, 0, 10);
+
+        assertThat(delegate.getReads()).isEqualTo(2);
+
+    }
+
+    /**
+     * Test that the files are cached separately.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_SeparateFiles() throws IOException {
+
+        var instance = new JcifsngBlockCache(8_192, 1_024, 1, Duration.ofSeconds(5), clock);
+        var one = new MemoryRangeReader(new byte[]{1, 1, 1}, 0L);
+        var two = new MemoryRangeReader(new byte[]{2, 2, 2}, 0L);
+        byte[] b = new byte[3];
+
+        instance.wrap("one", 1L, 3, one).read(0, b, 0, 3);
+        instance.wrap("two", 1L, 3, two).read(0, b, 0, 3);
+
+        assertThat(b).containsOnly(2);
+
+        instance.clear();
+        instance.wrap("one", 1L, 3, one).read(0, b, 0, 3);
+
+        assertThat(b).containsOnly(1);
+        assertThat(one.getReads()).isEqualTo(2);
+
+    }
+
+    /**
+     * Test that a block loaded by a reader wrapped before an invalidation of its file is not cached.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_RacedInvalidation() throws IOException {
+
+        var instance = new JcifsngBlockCache(8_192, 1_024, 1, Duration.ofSeconds(5), clock);
+        var delegate = new MemoryRangeReader(MemoryRangeReader.sequence(100), 0L) {
+            @Override
+            public int read(long position, byte[] b, int off, int len) throws IOException {
+
+                if (getReads() == 0) {
+                    instance.invalidate("file");
+                }
+
+                return super.read(position, b, off, len);
+
+            }
+        };
+        var stale = instance.wrap("file", 1L, 100, delegate);
+        byte[] b = new byte[10];
+
+        stale.read(0, b, 0, 10);
+
+        assertThat(instance.getAllocatedBytes()).isZero();
+
+        stale.read(0, b, 0, 10);
+
+        assertThat(delegate.getReads()).isEqualTo(2);
+
+        var fresh = new MemoryRangeReader(MemoryRangeReader.sequence(100), 0L);
+
+        instance.wrap("file", 1L, 100, fresh).read(0, b, 0, 10);
+        instance.wrap("file", 1L, 100, fresh).read(0, b, 0, 10);
+
+        assertThat(fresh.getReads()).isEqualTo(1);
+
+    }
+
+    /**
+     * Test that each stripe has its share of the memory cap.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Striped() throws IOException {
+
+        var instance = new JcifsngBlockCache(4_096, 1_024, 16, Duration.ofSeconds(5), clock);
+        byte[] b = new byte[1];
+
+        for (int i = 0; i < 32; i++) {
+            instance.wrap("file" + i, 1L, 1_024, new MemoryRangeReader(new byte[1_024], 0L)).read(0, b, 0, 1);
+        }
+
+        assertThat(instance.getAllocatedBytes()).isLessThanOrEqualTo(4_096L);
+        assertThat(instance.getMisses()).isEqualTo(32L);
+
+    }
+
+    /**
+     * Test that clear method releases the off-heap memory.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testClear() throws IOException {
+
+        var instance = new JcifsngBlockCache(16_384, 1_024, 4, Duration.ofSeconds(5), clock);
+        var reader = instance.wrap("file", 1L, 3_000, new MemoryRangeReader(new byte[3_000], 0L));
+        byte[] b = new byte[3_000];
+
+        reader.read(0, b, 0, 3_000);
+
+        assertThat(instance.getAllocatedBytes()).isEqualTo(3_072L);
+
+        instance.clear();
+
+        assertThat(instance.getAllocatedBytes()).isZero();
+
+    }
+
+    /**
+     * Test that the shared caches are bounded, and the dropped one is cleared.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testShared_Bounded() throws IOException {
+
+        var first = JcifsngBlockCache.shared("test/first", () -> new JcifsngBlockCache(1_024, 1_024, 1, Duration.ZERO));
+
+        first.wrap("file", 1L, 10, new MemoryRangeReader(new byte[10], 0L)).read(0, new byte[1], 0, 1);
+
+        for (int i = 0; i < JcifsngBlockCache.MAX_SHARED; i++) {
+            JcifsngBlockCache.shared("test/" + i, () -> new JcifsngBlockCache(1_024, 1_024, 1, Duration.ZERO));
+        }
+
+        assertThat(first.getAllocatedBytes()).isZero();
+        assertThat(JcifsngBlockCache.shared("test/first", () -> null)).isNull();
+
+    }
+
+    /**
+     * Test that the illegal values of the block cache options are rejected on construction.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOptions_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new BlockCacheBlockSize(0))
+                .withMessage("FileOption value of [smb:blockCache.blockSize] must be positive but [0].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new BlockCacheCapacity(-1))
+                .withMessage("FileOption value of [smb:blockCache.capacity] must not be negative but [-1].");
+
+    }
+
+    /**
+     * Test constructor if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngBlockCache(1_000, 1_024, 1, Duration.ZERO));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngBlockCache(1_024, 0, 1, Duration.ZERO));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngBlockCache(1_024, 1, 3, Duration.ZERO));
+
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import jcifs.FileNotifyInformation;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngChangeWatcher.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngChangeWatcherTest {
+
+    private static final String DIR = "smb://host/share/dir";
+
+    private final JcifsngNegotiationMemoryTest.TestClock clock = new JcifsngNegotiationMemoryTest.TestClock();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ExecutorService executor;
+
+    private JcifsngMetadataCache cache;
+
+    private QueueSource source;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        cache = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+        source = new QueueSource();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that the entries under the watched directory are valid for the watched TTL.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_WatchedTtl() throws Exception {
+
+        try (var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, false, source)) {
+
+            assertThat(watch.isActive()).isTrue();
+            confirm(watch);
+
+            lookup("a.csv");
+            lookup("sub/b.csv");
+            clock.advance(Duration.ofMinutes(1));
+            lookup("a.csv");
+            lookup("sub/b.csv");
+
+            // Only the direct children are watched without the recursion.
+            assertThat(loads).hasValue(3);
+
+        }
+
+    }
+
+    /**
+     * Test that the entries keep the TTL of the share until the server answers the first notification.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_Unconfirmed() throws Exception {
+
+        try (var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, false, source)) {
+
+            lookup("a.csv");
+            clock.advance(Duration.ofMinutes(1));
+            lookup("a.csv");
+
+            assertThat(watch.isConfirmed()).isFalse();
+            assertThat(loads).hasValue(2);
+
+        }
+
+    }
+
+    /**
+     * Test that the directory stays watched until all its watches are closed.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_Overlapped() throws Exception {
+
+        var another = new QueueSource();
+        var watcher = new JcifsngChangeWatcher(cache, executor);
+
+        try (var watch = watcher.watch(DIR, false, source)) {
+
+            var first = watcher.watch(DIR, false, another);
+
+            confirm(watch);
+            another.push(List.of(new Change(FileNotifyInformation.FILE_ACTION_ADDED, "y.csv")));
+            await(() -> first.getNotifications() == 1);
+            first.close();
+            await(() -> !first.isActive());
+
+            lookup("a.csv");
+            clock.advance(Duration.ofMinutes(1));
+            lookup("a.csv");
+
+            assertThat(loads).hasValue(1);
+
+        }
+
+    }
+
+    /**
+     * Test that the notified file and its parent are invalidated.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_Notification() throws Exception {
+
+        try (var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, true, source)) {
+
+            cache.get("host/share", "p", DIR, this::load);
+            lookup("a.csv");
+            lookup("b.csv");
+            lookup("sub/c.csv");
+
+            source.push(List.of(new Change(FileNotifyInformation.FILE_ACTION_MODIFIED, "A.csv"),
+                    new Change(FileNotifyInformation.FILE_ACTION_ADDED, "sub\\c.csv")));
+            await(() -> watch.getNotifications() == 2);
+
+            cache.get("host/share", "p", DIR, this::load);
+            lookup("a.csv");
+            lookup("b.csv");
+            lookup("sub/c.csv");
+
+            assertThat(loads).hasValue(4 + 3);
+
+        }
+
+    }
+
+    /**
+     * Test that a removal invalidates the files under the removed directory.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_Removed() throws Exception {
+
+        try (var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, true, source)) {
+
+            lookup("sub/c.csv");
+            lookup("subway.csv");
+
+            source.push(List.of(new Change(FileNotifyInformation.FILE_ACTION_REMOVED, "sub")));
+            await(() -> watch.getNotifications() == 1);
+
+            lookup("sub/c.csv");
+            lookup("subway.csv");
+
+            assertThat(loads).hasValue(3);
+
+        }
+
+    }
+
+    /**
+     * Test that an overflow invalidates all the entries under the directory.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_Overflow() throws Exception {
+
+        cache.get("host/share", "p", "smb://host/share/other", this::load);
+
+        try (var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, true, source)) {
+
+            lookup("a.csv");
+            lookup("sub/b.csv");
+
+            source.push(List.of());
+            await(() -> watch.getOverflows() == 1);
+
+            lookup("a.csv");
+            lookup("sub/b.csv");
+            cache.get("host/share", "p", "smb://host/share/other", this::load);
+
+            assertThat(loads).hasValue(5);
+            assertThat(watch.isActive()).isTrue();
+
+        }
+
+    }
+
+    /**
+     * Test that the entries fall back to the TTL of the share after the watch is broken.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_Broken() throws Exception {
+
+        var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, false, source);
+
+        confirm(watch);
+        lookup("a.csv");
+
+        source.push(new IOException("Watch was broken."));
+        await(() -> !watch.isActive());
+
+        assertThat(watch.getFailure()).get().extracting(Exception::getMessage).isEqualTo("Watch was broken.");
+        assertThat(source.closed).isTrue();
+
+        lookup("a.csv");
+        clock.advance(Duration.ofMinutes(1));
+        lookup("a.csv");
+
+        assertThat(loads).hasValue(3);
+
+    }
+
+    /**
+     * Test that the watch is stopped by closing.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testClose() throws Exception {
+
+        var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, false, source);
+
+        confirm(watch);
+        lookup("a.csv");
+        watch.close();
+        await(() -> !watch.isActive());
+
+        assertThat(watch.getFailure()).isEmpty();
+
+        lookup("a.csv");
+
+        assertThat(loads).hasValue(2);
+
+    }
+
+    /**
+     * Test that a lookup that raced with an invalidation does not cache its result.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWatch_Race() throws Exception {
+
+        try (var watch = new JcifsngChangeWatcher(cache, executor).watch(DIR, false, source)) {
+
+            cache.get("host/share", "p", DIR + "/a.csv", () -> {
+                source.push(List.of(new Change(FileNotifyInformation.FILE_ACTION_MODIFIED, "a.csv")));
+                await(() -> watch.getNotifications() == 1);
+                return load();
+            });
+
+            lookup("a.csv");
+
+            assertThat(loads).hasValue(2);
+
+        }
+
+    }
+
+    private void confirm(JcifsngChangeWatcher.Watch watch) {
+
+        long notified = watch.getNotifications();
+
+        source.push(List.of(new Change(FileNotifyInformation.FILE_ACTION_ADDED, "x.csv")));
+        await(() -> watch.getNotifications() > notified);
+
+        assertThat(watch.isConfirmed()).isTrue();
+
+    }
+
+    private void lookup(String name) throws IOException {
+        cache.get("host/share", "p", DIR + "/" + name, this::load);
+    }
+
+    private JcifsngMetadataCache.Metadata load() {
+        loads.incrementAndGet();
+        return new JcifsngMetadataCache.Metadata(true, 10, 1, 1, 0);
+    }
+
+    private static void await(BooleanSupplier condition) {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (!condition.getAsBoolean()) {
+
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.onSpinWait();
+
+        }
+
+    }
+
+    /**
+     * Change notification.
+     */
+    record Change(int getAction, String getFileName) implements FileNotifyInformation {
+    }
+
+    /**
+     * Source of the notifications that are pushed by the test.
+     */
+    static class QueueSource implements JcifsngChangeWatcher.Source {
+
+        private static final Object CANCELLED = new Object();
+
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+        volatile boolean closed;
+
+        void push(Object changes) {
+            queue.add(changes);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<FileNotifyInformation> next() throws IOException {
+
+            Object next;
+
+            try {
+                next = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            if (next instanceof IOException ex) {
+                throw ex;
+            }
+
+            return next == CANCELLED ? null : (List<FileNotifyInformation>) next;
+
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            queue.add(CANCELLED);
+        }
+    }
+}
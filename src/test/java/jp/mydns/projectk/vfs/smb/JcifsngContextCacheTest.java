@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import jcifs.CIFSContext;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngContextCache.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngContextCacheTest extends AbstractOptionTest {
+
+    /**
+     * Test of acquire method. If acquire the equal properties.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testAcquire_Equal() throws Exception {
+
+        var instance = new JcifsngContextCache(Duration.ofMinutes(1), new AtomicLong()::get);
+
+        var lease = instance.acquire(Map.of("jcifs.smb.maxBuffers", "1", "jcifs.smb.client.tcpNoDelay", "true"));
+        var same = instance.acquire(Map.of("jcifs.smb.client.tcpNoDelay", "true", "jcifs.smb.maxBuffers", "1"));
+        var another = instance.acquire(Map.of("jcifs.smb.maxBuffers", "2"));
+
+        assertThat(lease.getContext().getConfig()).isSameAs(same.getContext().getConfig())
+                .isNotSameAs(another.getContext().getConfig());
+        assertThat(instance.size()).isEqualTo(2);
+
+    }
+
+    /**
+     * Test of release. The context that no longer referenced is evicted after the idle timeout.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRelease() throws Exception {
+
+        var ticker = new AtomicLong();
+        var instance = new JcifsngContextCache(Duration.ofNanos(100), ticker::get);
+
+        var lease = instance.acquire(Map.of("jcifs.smb.maxBuffers", "1"));
+        var same = instance.acquire(Map.of("jcifs.smb.maxBuffers", "1"));
+
+        lease.close();
+        lease.close();
+        ticker.addAndGet(100);
+        instance.acquire(Map.of("jcifs.smb.maxBuffers", "2"));
+
+        assertThat(instance.size()).isEqualTo(2);
+
+        same.close();
+        assertThat(instance.size()).isEqualTo(2);
+
+        ticker.addAndGet(99);
+        instance.acquire(Map.of("jcifs.smb.maxBuffers", "3"));
+        assertThat(instance.size()).isEqualTo(3);
+
+        ticker.addAndGet(1);
+        instance.acquire(Map.of("jcifs.smb.maxBuffers", "3"));
+        assertThat(instance.size()).isEqualTo(2);
+
+    }
+
+    /**
+     * Test of acquire method. A slow build blocks neither the other properties nor builds twice.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testAcquire_BuildOutsideLock() throws Exception {
+
+        var building = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var builds = new AtomicInteger();
+        var base = new DeferredJcifsngContext(Map.of()).materialize();
+
+        var instance = new JcifsngContextCache(Duration.ofMinutes(1), new AtomicLong()::get, props -> {
+
+            builds.incrementAndGet();
+
+            if (props.containsKey("slow")) {
+                building.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return base;
+
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+
+            Future<JcifsngContextCache.Lease> slow = executor.submit(() -> instance.acquire(Map.of("slow", "1")));
+            building.await();
+            Future<JcifsngContextCache.Lease> same = executor.submit(() -> instance.acquire(Map.of("slow", "1")));
+
+            instance.acquire(Map.of("fast", "1")).close();
+
+            assertThat(slow).isNotDone();
+            assertThat(same).isNotDone();
+
+            release.countDown();
+
+            assertThat(slow.get().getContext().getConfig()).isSameAs(same.get().getContext().getConfig());
+            assertThat(builds).hasValue(2);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    /**
+     * Test of acquire method. A failed build is not cached.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testAcquire_BuildFailure() throws Exception {
+
+        var builds = new AtomicInteger();
+
+        var instance = new JcifsngContextCache(Duration.ofMinutes(1), new AtomicLong()::get, props -> {
+            builds.incrementAndGet();
+            throw new FileSystemException("Cannot build.");
+        });
+
+        assertThatExceptionOfType(FileSystemException.class).isThrownBy(() -> instance.acquire(Map.of()));
+        assertThatExceptionOfType(FileSystemException.class).isThrownBy(() -> instance.acquire(Map.of()));
+
+        assertThat(builds).hasValue(2);
+        assertThat(instance.size()).isZero();
+
+    }
+
+    /**
+     * Test of evictExpired method. The idle context is evicted without another lease.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testEvictExpired() throws Exception {
+
+        var ticker = new AtomicLong();
+        var instance = new JcifsngContextCache(Duration.ofNanos(100), ticker::get);
+
+        instance.acquire(Map.of("jcifs.smb.maxBuffers", "1")).close();
+        instance.evictExpired();
+
+        assertThat(instance.size()).isEqualTo(1);
+
+        ticker.addAndGet(100);
+        instance.evictExpired();
+
+        assertThat(instance.size()).isZero();
+
+    }
+
+    /**
+     * Test of release. The lease is kept while a derived context is reachable, and released after it is not.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRelease_DerivedContext() throws Exception {
+
+        var instance = new JcifsngContextCache(Duration.ZERO, new AtomicLong()::get);
+
+        CIFSContext derived = instance.acquire(Map.of("jcifs.smb.maxBuffers", "1")).getContext()
+                .withAnonymousCredentials();
+
+        assertThat(derived.close()).isFalse();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+            instance.acquire(Map.of("jcifs.smb.maxBuffers", "2")).close();
+        }
+
+        assertThat(instance.size()).isEqualTo(1);
+        assertThat(derived.getCredentials().isAnonymous()).isTrue();
+
+        derived = null;
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (instance.size() > 0) {
+
+            assertThat(System.nanoTime()).isLessThan(deadline);
+
+            System.gc();
+            Thread.sleep(10);
+            instance.acquire(Map.of("jcifs.smb.maxBuffers", "2")).close();
+
+        }
+
+    }
+
+    /**
+     * Test of apply. The equal option sets share the context.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply_Share() throws Exception {
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+        FileSystemOptions sameOpts = new FileSystemOptions();
+        FileSystemOptions anotherOpts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new BufferCacheSize(7), new ClientTcpNoDelay(true)), fsOpts);
+        JcifsngOption.applyAll(List.of(new ClientTcpNoDelay(true), new BufferCacheSize(7)), sameOpts);
+        JcifsngOption.applyAll(List.of(new ClientTcpNoDelay(false), new BufferCacheSize(7)), anotherOpts);
+
+        assertThat(toPropertyConfiguration(fsOpts)).isSameAs(toPropertyConfiguration(sameOpts))
+                .isNotSameAs(toPropertyConfiguration(anotherOpts));
+        assertThat(fsOpts.compareTo(sameOpts)).isZero();
+
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import jcifs.CIFSContext;
+import jcifs.smb.SmbFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngCopier.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngCopierTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that the copy is left to JCIFS-NG if available, and it is reported as unverified.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testCopy_ServerSide() throws IOException {
+
+        var reader = new MemoryRangeReader(MemoryRangeReader.sequence(1_000), 0L);
+        var writer = new MemoryRangeWriter(0L);
+
+        var result = new JcifsngCopier(100, 2, executor).copy(null, () -> 1_000L, reader, writer);
+
+        assertThat(result.getRoute()).isEqualTo(JcifsngCopier.Route.SERVER_SIDE_UNVERIFIED);
+        assertThat(result.getSize()).isEqualTo(1_000L);
+        assertThat(result.getTransferredBytes()).isEqualTo(2_000L);
+        assertThat(result.getFallbackReason()).isEmpty();
+        assertThat(reader.getReads()).isZero();
+        assertThat(writer.getWrites()).isZero();
+
+    }
+
+    /**
+     * Test that the client-side copy is taken if the server-side copy is not available.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testCopy_ClientSide() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(100_003);
+        var reader = new MemoryRangeReader(data, 100_000L);
+        var writer = new MemoryRangeWriter(100_000L);
+        var serverSide = new AtomicInteger();
+
+        var result = new JcifsngCopier(4_096, 4, executor).copy("Not on the same share.", () -> {
+            serverSide.incrementAndGet();
+            return 0L;
+        }, reader, writer);
+
+        assertThat(result.getRoute()).isEqualTo(JcifsngCopier.Route.CLIENT_SIDE);
+        assertThat(result.getSize()).isEqualTo(data.length);
+        assertThat(result.getTransferredBytes()).isEqualTo(data.length * 2L);
+        assertThat(result.getFallbackReason()).hasValue("Not on the same share.");
+        assertThat(serverSide).hasValue(0);
+        assertThat(writer.getData()).isEqualTo(data);
+        assertThat(reader.getMaxRunning()).isGreaterThan(1);
+        assertThat(writer.getMaxRunning()).isGreaterThan(1);
+
+    }
+
+    /**
+     * Test that the client-side copy is taken if the server-side copy fails.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testCopy_Fallback() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_000);
+        var writer = new MemoryRangeWriter(0L);
+
+        var result = new JcifsngCopier(100, 2, executor).copy(null, () -> {
+            throw new IOException("Not supported.");
+        }, new MemoryRangeReader(data, 0L), writer);
+
+        assertThat(result.getRoute()).isEqualTo(JcifsngCopier.Route.CLIENT_SIDE);
+        assertThat(result.getFallbackReason()).hasValue("Server-side copy failed. Not supported.");
+        assertThat(writer.getData()).isEqualTo(data);
+
+    }
+
+    /**
+     * Test that the server-side copy whose failure was swallowed is detected by the size of the target, and the
+     * client-side copy is taken.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testCopy_Incomplete() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_000);
+        var writer = new MemoryRangeWriter(0L);
+
+        var result = new JcifsngCopier(100, 2, executor).copy(null, () -> 0L, new MemoryRangeReader(data, 0L),
+                writer);
+
+        assertThat(result.getRoute()).isEqualTo(JcifsngCopier.Route.CLIENT_SIDE);
+        assertThat(result.getFallbackReason())
+                .hasValue("Server-side copy was incomplete. The target has [0] of [1000] bytes.");
+        assertThat(writer.getData()).isEqualTo(data);
+
+    }
+
+    /**
+     * Test that the server-side copy runs on the context that reports the failures of the copy.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStrictCopyContext() throws Exception {
+
+        var swallowing = new FileSystemOptions();
+        new ClientIgnoreCopyToExceptions(true).apply(swallowing);
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(swallowing);
+
+        assertThat(context.getConfig().isIgnoreCopyToException()).isTrue();
+
+        CIFSContext strict = JcifsngCopier.strictCopyContext(context);
+
+        assertThat(strict.getConfig().isIgnoreCopyToException()).isFalse();
+        assertThat(strict.getConfig().getResponseTimeout()).isEqualTo(context.getConfig().getResponseTimeout());
+        assertThat(strict.getCredentials()).isSameAs(context.getCredentials());
+        assertThat(strict.withAnonymousCredentials().getConfig().isIgnoreCopyToException()).isFalse();
+
+        // JCIFS-NG decides by the context of the source file whether to swallow the failure.
+        try (var file = new SmbFile("smb://server/share/a.bin", strict)) {
+            assertThat(file.getContext().getConfig().isIgnoreCopyToException()).isFalse();
+        }
+
+        CIFSContext reporting = JcifsngConfigBuilder.getInstance().getOrPrepare(new FileSystemOptions());
+
+        assertThat(JcifsngCopier.strictCopyContext(reporting)).isSameAs(reporting);
+
+    }
+
+    /**
+     * Test of locatorBlocker method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testLocatorBlocker() throws Exception {
+
+        CIFSContext context = JcifsngConfigBuilder.getInstance().getOrPrepare(new FileSystemOptions());
+        var source = new SmbFile("smb://server/share/a.bin", context);
+
+        assertThat(JcifsngCopier.locatorBlocker(source, new SmbFile("smb://SERVER/Share/dir/b.bin", context)))
+                .isNull();
+        assertThat(JcifsngCopier.locatorBlocker(source, new SmbFile("smb://other/share/b.bin", context)))
+                .isEqualTo("Not on the same server.");
+        assertThat(JcifsngCopier.locatorBlocker(source, new SmbFile("smb://server:4445/share/b.bin", context)))
+                .isEqualTo("Not on the same server.");
+        assertThat(JcifsngCopier.locatorBlocker(source, new SmbFile("smb://server/other/b.bin", context)))
+                .isEqualTo("Not on the same share.");
+
+    }
+
+    /**
+     * Test constructor if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngCopier(0, 1, executor));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngCopier(1, 0, executor));
+
+    }
+}
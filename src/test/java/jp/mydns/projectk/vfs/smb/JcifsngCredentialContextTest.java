@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.List;
+import java.util.Map;
+import jcifs.CIFSContext;
+import jcifs.smb.NtlmPasswordAuthenticator;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngCredentialContext.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngCredentialContextTest {
+
+    /**
+     * Test of apply. The option sets that differ only in the credentials share the transport pool.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply_SharedTransport() throws Exception {
+
+        FileSystemOptions tenantA = new FileSystemOptions();
+        FileSystemOptions tenantB = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new ClientSessionLimit(77), new ClientDefaultUserName("a"),
+                new ClientDefaultPassword("pa"), new ClientDefaultDomain("da")), tenantA);
+        JcifsngOption.applyAll(List.of(new ClientSessionLimit(77), new ClientDefaultUserName("b"),
+                new ClientGuestUserName("gb"), new ClientGuestPassword("gpb")), tenantB);
+
+        CIFSContext a = toContext(tenantA);
+        CIFSContext b = toContext(tenantB);
+
+        assertThat(a.getTransportPool()).isSameAs(b.getTransportPool());
+        assertThat(a.getConfig().getSessionLimit()).isEqualTo(77);
+
+        assertThat(a.getConfig()).returns("a", c -> c.getDefaultUsername()).returns("pa", c -> c.getDefaultPassword())
+                .returns("da", c -> c.getDefaultDomain());
+        assertThat(b.getConfig()).returns("b", c -> c.getDefaultUsername()).returns("gb", c -> c.getGuestUsername())
+                .returns("gpb", c -> c.getGuestPassword());
+
+        assertThat(NtlmPasswordAuthenticator.class.cast(a.getCredentials()))
+                .returns("a", NtlmPasswordAuthenticator::getUsername)
+                .returns("da", NtlmPasswordAuthenticator::getUserDomain);
+        assertThat(a.hasDefaultCredentials()).isTrue();
+
+    }
+
+    /**
+     * Test of withAnonymousCredentials. The derived context keeps the credentials configuration.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWithAnonymousCredentials() throws Exception {
+
+        var base = new DeferredJcifsngContext(Map.of()).materialize();
+        var instance = new JcifsngCredentialContext(base, Map.of(JcifsngCredentialContext.GUEST_USERNAME, "g"));
+
+        CIFSContext derived = instance.withAnonymousCredentials();
+
+        assertThat(derived).isInstanceOf(JcifsngCredentialContext.class);
+        assertThat(derived.getConfig().getGuestUsername()).isEqualTo("g");
+        assertThat(derived.getCredentials().isAnonymous()).isTrue();
+        assertThat(instance.hasDefaultCredentials()).isFalse();
+        assertThat(instance.close()).isFalse();
+
+    }
+
+    /**
+     * Test of principalKey. The key separates the principals and does not reveal the password.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testPrincipalKey() throws Exception {
+
+        var base = new DeferredJcifsngContext(Map.of()).materialize();
+
+        String a = JcifsngCredentialContext.principalKey(
+                base.withCredentials(new NtlmPasswordAuthenticator("d", "u", "secret-a")));
+        String b = JcifsngCredentialContext.principalKey(
+                base.withCredentials(new NtlmPasswordAuthenticator("d", "u", "secret-b")));
+
+        assertThat(a).isEqualTo(JcifsngCredentialContext.principalKey(
+                base.withCredentials(new NtlmPasswordAuthenticator("d", "u", "secret-a"))));
+        assertThat(b).isNotEqualTo(a);
+        assertThat(a).doesNotContain("secret");
+        assertThat(JcifsngCredentialContext.principalKey(base.withAnonymousCredentials())).isNotEqualTo(a);
+
+    }
+
+    /**
+     * Test of principalKey. The credentials made by the context carry the key computed once, that equals the key of the
+     * same credentials made elsewhere.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testPrincipalKeyOfCredentialContext() throws Exception {
+
+        var base = new DeferredJcifsngContext(Map.of()).materialize();
+        var instance = new JcifsngCredentialContext(base, Map.of(JcifsngCredentialContext.DOMAIN, "d",
+                JcifsngCredentialContext.USERNAME, "u", JcifsngCredentialContext.PASSWORD, "secret-a"));
+
+        String key = JcifsngCredentialContext.principalKey(instance);
+
+        assertThat(JcifsngCredentialContext.principalKey(instance)).isSameAs(key);
+        assertThat(JcifsngCredentialContext.principalKey(instance.withDefaultCredentials())).isEqualTo(key);
+        assertThat(key).isEqualTo(JcifsngCredentialContext.principalKey(
+                base.withCredentials(new NtlmPasswordAuthenticator("d", "u", "secret-a"))));
+
+    }
+
+    private CIFSContext toContext(FileSystemOptions fsOpts) throws Exception {
+
+        return DeferredJcifsngContext.class.cast(new SmbConfigUtils().getParam(fsOpts,
+                "jp.mydns.projectk.vfs.provider.jcifsng.SmbFileSystemConfigBuilder.CIFSCONTEXT")).materialize();
+
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import jcifs.CIFSException;
+import jcifs.CloseableIterator;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngDirectoryLister.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngDirectoryListerTest {
+
+    /**
+     * Test that the pages are pulled on demand.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_Lazy() {
+
+        var iterator = new PagedIterator(1_000_000, 100);
+
+        try (Stream<String> stream = JcifsngDirectoryLister.stream(iterator)) {
+
+            assertThat(stream.filter(n -> n.endsWith("250")).findFirst()).hasValue("entry-250");
+
+        }
+
+        assertThat(iterator.pages).isEqualTo(3);
+        assertThat(iterator.closed).isTrue();
+
+    }
+
+    /**
+     * Test that all the entries are streamed in order.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_All() {
+
+        var iterator = new PagedIterator(250, 100);
+
+        try (Stream<String> stream = JcifsngDirectoryLister.stream(iterator)) {
+
+            assertThat(stream.toList()).hasSize(250).startsWith("entry-0").endsWith("entry-249");
+
+        }
+
+        assertThat(iterator.pages).isEqualTo(3);
+
+    }
+
+    /**
+     * Test that a failure of closing is thrown as unchecked.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_CloseFailure() {
+
+        var iterator = new PagedIterator(10, 5) {
+            @Override
+            public void close() throws CIFSException {
+                throw new CIFSException("Closed.");
+            }
+        };
+
+        Stream<String> stream = JcifsngDirectoryLister.stream(iterator);
+
+        assertThatThrownBy(stream::close).isInstanceOf(UncheckedIOException.class).hasMessageContaining("Closed.");
+
+    }
+
+    /**
+     * Iterator that pulls the pages on demand, like the search of the server.
+     */
+    static class PagedIterator implements CloseableIterator<String> {
+
+        private final int size;
+
+        private final int pageSize;
+
+        private int next;
+
+        private int pulled;
+
+        int pages;
+
+        boolean closed;
+
+        PagedIterator(int size, int pageSize) {
+            this.size = size;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (closed) {
+                throw new IllegalStateException("Closed.");
+            }
+
+            if (next == pulled && pulled < size) {
+                pages++;
+                pulled = Math.min(size, pulled + pageSize);
+            }
+
+            return next < pulled;
+
+        }
+
+        @Override
+        public String next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return "entry-" + next++;
+
+        }
+
+        @Override
+        public void close() throws CIFSException {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngListFilter.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngListFilterTest {
+
+    /**
+     * Test that all the entries are accepted without the residual predicate.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testAll() {
+
+        var instance = JcifsngListFilter.all();
+
+        assertThat(instance.getPattern()).isEqualTo("*");
+        assertThat(instance.hasResidual()).isFalse();
+        assertThat(instance.test("any")).isTrue();
+        assertThat(JcifsngListFilter.glob("*")).isSameAs(instance);
+
+    }
+
+    /**
+     * Test that the glob is pushed down and evaluated again as the residual.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGlob() {
+
+        var instance = JcifsngListFilter.glob("data-??.csv");
+
+        assertThat(instance.getPattern()).isEqualTo("data-??.csv");
+        assertThat(instance.test("data-01.csv")).isTrue();
+        assertThat(instance.test("DATA-01.CSV")).isTrue();
+        assertThat(instance.test("data-001.csv")).isFalse();
+        assertThat(instance.test("data-01.csvx")).isFalse();
+
+    }
+
+    /**
+     * Test that the glob of the regular expression characters is matched literally.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGlob_Literal() {
+
+        var instance = JcifsngListFilter.glob("a.(b)*");
+
+        assertThat(instance.test("a.(b)c")).isTrue();
+        assertThat(instance.test("ax(b)c")).isFalse();
+
+    }
+
+    /**
+     * Test that the glob of the DOS wildcards is not pushed down.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGlob_NotPushable() {
+
+        var instance = JcifsngListFilter.glob("a<b");
+
+        assertThat(instance.getPattern()).isEqualTo("*");
+        assertThat(instance.test("a<b")).isTrue();
+        assertThat(instance.test("ab")).isFalse();
+
+    }
+
+    /**
+     * Test of the prefix.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testPrefix() {
+
+        var instance = JcifsngListFilter.prefix("log-");
+
+        assertThat(instance.getPattern()).isEqualTo("log-*");
+        assertThat(instance.test("LOG-1.txt")).isTrue();
+        assertThat(instance.test("dir-log-1/")).isFalse();
+        assertThat(JcifsngListFilter.prefix("a*").getPattern()).isEqualTo("*");
+
+    }
+
+    /**
+     * Test of the suffix.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testSuffix() {
+
+        var instance = JcifsngListFilter.suffix(".csv");
+
+        assertThat(instance.getPattern()).isEqualTo("*.csv");
+        assertThat(instance.test("a.CSV")).isTrue();
+        assertThat(instance.test("a.csv/")).isTrue();
+        assertThat(instance.test("a.csv.gz")).isFalse();
+
+    }
+
+    /**
+     * Test that the additional predicate is evaluated but not pushed down.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testAnd() {
+
+        var instance = JcifsngListFilter.suffix(".csv").and(n -> n.length() < 8);
+
+        assertThat(instance.getPattern()).isEqualTo("*.csv");
+        assertThat(instance.test("ab.csv")).isTrue();
+        assertThat(instance.test("abcd.csv")).isFalse();
+        assertThat(JcifsngListFilter.all().and(n -> false).hasResidual()).isTrue();
+
+    }
+
+    /**
+     * Test of the invalid filters.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testInvalid() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngListFilter.glob(""));
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngListFilter.prefix("a/b"))
+                .withMessage("Filter must be a non-empty name but [a/b].");
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngListFilter.suffix("a\\b"));
+
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngMetadataCache.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngMetadataCacheTest {
+
+    private final JcifsngNegotiationMemoryTest.TestClock clock = new JcifsngNegotiationMemoryTest.TestClock();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Test that the second lookup hits without loading.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_Hit() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+
+        var first = instance.get("host/share", "p", "smb://host/share/a", this::load);
+        var second = instance.get("host/share", "p", "smb://host/share/a", this::load);
+
+        assertThat(second).isSameAs(first).returns(true, JcifsngMetadataCache.Metadata::exists)
+                .returns(10L, JcifsngMetadataCache.Metadata::getSize);
+        assertThat(loads).hasValue(1);
+        assertThat(instance.getHits()).isEqualTo(1L);
+        assertThat(instance.getMisses()).isEqualTo(1L);
+
+    }
+
+    /**
+     * Test that the absence is cached too.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_Absent() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+        var absent = new JcifsngMetadataCache.Metadata(false, 0, 0, 0, 0);
+
+        instance.get("host/share", "p", "smb://host/share/none", () -> absent);
+
+        assertThat(instance.get("host/share", "p", "smb://host/share/none", this::load).exists()).isFalse();
+        assertThat(loads).hasValue(0);
+
+    }
+
+    /**
+     * Test that the entry expires after the TTL.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_Expired() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+
+        instance.get("host/share", "p", "smb://host/share/a", this::load);
+        clock.advance(Duration.ofSeconds(4));
+        instance.get("host/share", "p", "smb://host/share/a", this::load);
+        clock.advance(Duration.ofSeconds(1));
+        instance.get("host/share", "p", "smb://host/share/a", this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(instance.getHits()).isEqualTo(1L);
+
+    }
+
+    /**
+     * Test that the TTL is overridden per share.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_ShareTtl() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+        instance.setShareTtl("HOST", "Long", Duration.ofMinutes(10));
+        instance.setShareTtl("host", "none", Duration.ZERO);
+
+        instance.get("host/long", "p", "smb://host/long/a", this::load);
+        instance.get("host/none", "p", "smb://host/none/a", this::load);
+        clock.advance(Duration.ofMinutes(5));
+        instance.get("host/long", "p", "smb://host/long/a", this::load);
+        instance.get("host/none", "p", "smb://host/none/a", this::load);
+
+        assertThat(loads).hasValue(3);
+        assertThat(instance.getHits()).isEqualTo(1L);
+
+    }
+
+    /**
+     * Test that the least recently used entry is evicted by the memory cap.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testPut_Evict() throws IOException {
+
+        // Each entry of the 12 characters path and the 1 character principal weighs 186 bytes.
+        var instance = new JcifsngMetadataCache(3 * 186, 1, Duration.ofSeconds(5), clock);
+
+        for (String path : List.of("smb://h/s/f0", "smb://h/s/f1", "smb://h/s/f2")) {
+            instance.get("h/s", "p", path, this::load);
+        }
+
+        instance.get("h/s", "p", "smb://h/s/f0", this::load);
+        instance.get("h/s", "p", "smb://h/s/f3", this::load);
+
+        assertThat(instance.getEvictions()).isEqualTo(1L);
+        assertThat(instance.getUsedBytes()).isEqualTo(3 * 186L);
+
+        instance.get("h/s", "p", "smb://h/s/f0", this::load);
+        instance.get("h/s", "p", "smb://h/s/f1", this::load);
+
+        assertThat(loads).hasValue(5);
+
+    }
+
+    /**
+     * Test that the invalidated entry is loaded again.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testInvalidate() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+
+        instance.get("host/share", "p", "smb://host/share/a", this::load);
+        instance.get("host/share", "p", "smb://host/share/b", this::load);
+        instance.invalidate("smb://host/share/a");
+        instance.get("host/share", "p", "smb://host/share/a", this::load);
+        instance.get("host/share", "p", "smb://host/share/b", this::load);
+
+        assertThat(loads).hasValue(3);
+
+        instance.clear();
+
+        assertThat(instance.getUsedBytes()).isZero();
+
+    }
+
+    /**
+     * Test that the principals do not share the entries, and that an invalidation applies to all of them.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_PerPrincipal() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+
+        instance.get("host/share", "a", "smb://host/share/f", this::load);
+        instance.get("host/share", "b", "smb://host/share/f", this::load);
+        instance.get("host/share", "a", "smb://host/share/f", this::load);
+
+        assertThat(loads).hasValue(2);
+
+        instance.invalidate("smb://host/share/f");
+        instance.get("host/share", "a", "smb://host/share/f", this::load);
+        instance.get("host/share", "b", "smb://host/share/f", this::load);
+
+        assertThat(loads).hasValue(4);
+
+        instance.invalidateTree("smb://host/share");
+
+        assertThat(instance.getUsedBytes()).isZero();
+
+    }
+
+    /**
+     * Test that a lookup that raced with an invalidation of another stripe or another tree is cached, and that a lookup
+     * that raced with an invalidation of its tree is not.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_RacedInvalidation() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 2, Duration.ofSeconds(5), clock);
+
+        instance.get("host/share", "p", "smb://host/share/a/f", () -> {
+            instance.invalidateTree("smb://host/share/b");
+            return load();
+        });
+        instance.get("host/share", "p", "smb://host/share/b/g", () -> {
+            instance.invalidateTree("smb://host/share/b");
+            return load();
+        });
+
+        instance.get("host/share", "p", "smb://host/share/a/f", this::load);
+        instance.get("host/share", "p", "smb://host/share/b/g", this::load);
+
+        assertThat(loads).hasValue(3);
+
+    }
+
+    /**
+     * Test that a failure of loading is not cached.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_Failure() throws IOException {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 4, Duration.ofSeconds(5), clock);
+
+        assertThatIOException().isThrownBy(() -> instance.get("host/share", "p", "smb://host/share/a", () -> {
+            throw new IOException("Denied.");
+        })).withMessage("Denied.");
+
+        instance.get("host/share", "p", "smb://host/share/a", this::load);
+
+        assertThat(loads).hasValue(1);
+
+    }
+
+    /**
+     * Test that the concurrent lookups of the stripes are consistent.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGet_Concurrent() throws Exception {
+
+        var instance = new JcifsngMetadataCache(1_000_000, 8, Duration.ofMinutes(5), clock);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        instance.get("host/share", "p", "smb://host/share/f" + (i % 100), this::load);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(instance.getHits() + instance.getMisses()).isEqualTo(80_000L);
+        assertThat(instance.getMisses()).isBetween(100L, 800L);
+
+    }
+
+    /**
+     * Test of parseShareTtls method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testParseShareTtls() {
+
+        assertThat(JcifsngMetadataCache.parseShareTtls(" Host/A=1 ,host/b=0,")).hasSize(2).containsEntry("host/a", 1L)
+                .containsEntry("host/b", 0L);
+        assertThat(JcifsngMetadataCache.parseShareTtls("")).isEmpty();
+
+    }
+
+    /**
+     * Test that the cache is disabled without the capacity.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_Disabled() {
+        assertThat(JcifsngMetadataCache.of(new FileSystemOptions())).isEmpty();
+    }
+
+    /**
+     * Test that the caches of the same options are shared.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_Shared() throws Exception {
+
+        var opts = new FileSystemOptions();
+        var another = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new MetadataCacheCapacity(1_000_000), new MetadataCacheTtl(60_000)), opts);
+        JcifsngOption.applyAll(List.of(new MetadataCacheCapacity(1_000_000), new MetadataCacheTtl(60_000),
+                new ClientResponseTimeout(1_000)), another);
+
+        assertThat(JcifsngMetadataCache.of(opts)).isPresent().containsSame(JcifsngMetadataCache.of(another).get());
+
+    }
+
+    /**
+     * Test that the shared caches are bounded, and the dropped one is cleared.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testShared_Bounded() throws IOException {
+
+        var first = JcifsngMetadataCache.shared("test/first",
+                () -> new JcifsngMetadataCache(1_000_000, 1, Duration.ofSeconds(5), clock));
+
+        first.get("host/share", "p", "smb://host/share/a", this::load);
+
+        for (int i = 0; i < JcifsngMetadataCache.MAX_SHARED; i++) {
+            JcifsngMetadataCache.shared("test/" + i,
+                    () -> new JcifsngMetadataCache(1_000_000, 1, Duration.ofSeconds(5), clock));
+        }
+
+        assertThat(first.getUsedBytes()).isZero();
+        assertThat(JcifsngMetadataCache.shared("test/first", () -> null)).isNull();
+
+    }
+
+    /**
+     * Test of constructor with the invalid arguments.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Invalid() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngMetadataCache(0, 1, Duration.ZERO));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngMetadataCache(1, 3, Duration.ZERO));
+
+    }
+
+    private JcifsngMetadataCache.Metadata load() {
+        loads.incrementAndGet();
+        return new JcifsngMetadataCache.Metadata(true, 10, 1, 1, 0);
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import jcifs.CIFSException;
+import jcifs.DialectVersion;
+import jcifs.smb.SmbException;
+import jcifs.smb.SmbFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngNegotiationMemory.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngNegotiationMemoryTest {
+
+    private static final JcifsngNegotiationMemory.Negotiation SMB2_DIRECT
+            = new JcifsngNegotiationMemory.Negotiation(DialectVersion.SMB202, 8_388_608, 8_388_608, 65_536, 445);
+
+    private static final JcifsngNegotiationMemory.Negotiation SMB1_NETBIOS
+            = new JcifsngNegotiationMemory.Negotiation(DialectVersion.SMB1, 65_535, 65_535, 65_535, 139);
+
+    /**
+     * Test of record and lookup method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRecordLookup() {
+
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), new TestClock());
+
+        instance.record("Filer", SMB2_DIRECT);
+
+        assertThat(instance.lookup("filer")).hasValue(SMB2_DIRECT);
+        assertThat(instance.lookup("other")).isEmpty();
+
+    }
+
+    /**
+     * Test that the record expires after the TTL.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testLookup_Expired() {
+
+        var clock = new TestClock();
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), clock);
+
+        instance.record("filer", SMB2_DIRECT);
+        clock.advance(Duration.ofMinutes(1));
+
+        assertThat(instance.lookup("filer")).isEmpty();
+        assertThat(instance.size()).isZero();
+
+    }
+
+    /**
+     * Test of invalidateOn method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testInvalidateOn() {
+
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), new TestClock());
+
+        instance.record("filer", SMB2_DIRECT);
+
+        assertThat(instance.invalidateOn("filer", new IOException("Access denied."))).isFalse();
+        assertThat(instance.lookup("filer")).isPresent();
+
+        assertThat(instance.invalidateOn("filer", new SmbException("Failed to connect.",
+                new ConnectException("Connection refused")))).isTrue();
+        assertThat(instance.lookup("filer")).isEmpty();
+
+    }
+
+    /**
+     * Test of connect method if cannot connect. The record is invalidated and the failure is thrown.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConnect_Failure() throws Exception {
+
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), new TestClock());
+        var context = new DeferredJcifsngContext(Map.of("jcifs.smb.client.connTimeout", "1000")).materialize();
+
+        instance.record("127.0.0.1", SMB2_DIRECT);
+
+        assertThatExceptionOfType(CIFSException.class)
+                .isThrownBy(() -> instance.connect(new SmbFile("smb://127.0.0.1:1/share/", context)));
+        assertThat(instance.lookup("127.0.0.1")).isEmpty();
+
+    }
+
+    /**
+     * Test of confirmedPort method. The port is unknown if the fallback to the NetBIOS transport is possible.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConfirmedPort() throws Exception {
+
+        var failover = new DeferredJcifsngContext(Map.of("jcifs.smb.client.port139.enabled", "true")).materialize();
+        var direct = new DeferredJcifsngContext(Map.of("jcifs.smb.client.port139.enabled", "false")).materialize();
+
+        assertThat(JcifsngNegotiationMemory.confirmedPort(new SmbFile("smb://filer/share/", failover))).isZero();
+        assertThat(JcifsngNegotiationMemory.confirmedPort(new SmbFile("smb://filer/share/", direct))).isEqualTo(445);
+        assertThat(JcifsngNegotiationMemory.confirmedPort(new SmbFile("smb://filer:139/share/", failover)))
+                .isEqualTo(139);
+
+    }
+
+    /**
+     * Test of narrowing method if SMB2 over the direct TCP was negotiated.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNarrowing_Smb2Direct() {
+
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), new TestClock());
+        var plan = JcifsngOptionPlan.compile(List.of(new ClientPort139Enabled(true)));
+
+        instance.record("filer", SMB2_DIRECT);
+
+        assertThat(instance.narrowing("filer", plan.getConfiguration()))
+                .containsExactly(new MinimumVersion(DialectVersion.SMB202), new ClientPort139Enabled(false));
+
+        var narrowed = plan.narrow("filer", instance);
+
+        assertThat(narrowed.getConfiguration().getMinimumVersion()).isEqualTo(DialectVersion.SMB202);
+        assertThat(narrowed.getConfiguration().isPort139FailoverEnabled()).isFalse();
+
+    }
+
+    /**
+     * Test of narrowing method if SMB1 over the NetBIOS was negotiated.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNarrowing_Smb1Netbios() {
+
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), new TestClock());
+        var plan = JcifsngOptionPlan.compile(List.of(new MinimumVersion(DialectVersion.SMB1)));
+
+        instance.record("filer", SMB1_NETBIOS);
+
+        assertThat(plan.narrow("filer", instance).getConfiguration().getMaximumVersion())
+                .isEqualTo(DialectVersion.SMB1);
+
+    }
+
+    /**
+     * Test of narrowing method if the record is out of the configured range.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNarrowing_OutOfRange() {
+
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), new TestClock());
+        var plan = JcifsngOptionPlan.compile(List.of(new MinimumVersion(DialectVersion.SMB202)));
+
+        instance.record("filer", SMB1_NETBIOS);
+
+        assertThat(instance.narrowing("filer", plan.getConfiguration())).isEmpty();
+        assertThat(plan.narrow("filer", instance)).isSameAs(plan);
+        assertThat(plan.narrow("unknown", instance)).isSameAs(plan);
+
+    }
+
+    /**
+     * Test of toJson and load method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testToJsonLoad() {
+
+        var clock = new TestClock();
+        var source = new JcifsngNegotiationMemory(Duration.ofMinutes(1), clock);
+
+        source.record("filer", SMB2_DIRECT);
+        source.record("legacy", SMB1_NETBIOS);
+
+        var json = source.toJson();
+        var target = new JcifsngNegotiationMemory(Duration.ofMinutes(1), clock);
+
+        target.load(json);
+
+        assertThat(target.lookup("filer")).hasValue(SMB2_DIRECT);
+        assertThat(target.lookup("legacy")).hasValue(SMB1_NETBIOS);
+
+        clock.advance(Duration.ofMinutes(2));
+
+        var expired = new JcifsngNegotiationMemory(Duration.ofMinutes(1), clock);
+
+        expired.load(json);
+
+        assertThat(expired.size()).isZero();
+
+    }
+
+    /**
+     * Test of load method if malformed.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testLoad_Malformed() {
+
+        var instance = new JcifsngNegotiationMemory(Duration.ofMinutes(1), new TestClock());
+
+        assertThatIllegalArgumentException().isThrownBy(() -> instance.load(Json.createObjectBuilder()
+                .add("filer", Json.createObjectBuilder().add("dialect", "SMB202")).build()));
+        assertThatIllegalArgumentException().isThrownBy(() -> instance.load(Json.createObjectBuilder()
+                .add("filer", 1).build()));
+
+    }
+
+    static class TestClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngOptionFingerprint.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngOptionFingerprintTest {
+
+    /**
+     * Test of the MurmurHash3 with the reference vectors.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testMurmur3x64128() {
+
+        assertThat(JcifsngOptionFingerprint.murmur3x64128(new byte[0])).containsExactly(0L, 0L);
+        assertThat(JcifsngOptionFingerprint.murmur3x64128("hello".getBytes(StandardCharsets.UTF_8)))
+                .containsExactly(0xcbd8a7b341bd9b02L, 0x5b1e906a48ae1d19L);
+        assertThat(JcifsngOptionFingerprint.murmur3x64128(
+                "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8)))
+                .containsExactly(0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L);
+
+    }
+
+    /**
+     * Test that the fingerprint does not depend on the order.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_OrderIndependent() {
+
+        var a = JcifsngOptionFingerprint.of(List.of(new BufferCacheSize(16), new ClientTcpNoDelay(true)));
+        var b = JcifsngOptionFingerprint.of(List.of(new ClientTcpNoDelay(true), new BufferCacheSize(16)));
+
+        assertThat(a).isEqualTo(b).hasSameHashCodeAs(b).isNotEqualTo(JcifsngOptionFingerprint.EMPTY);
+        assertThat(a).isNotEqualTo(JcifsngOptionFingerprint.of(List.of(new BufferCacheSize(17),
+                new ClientTcpNoDelay(true))));
+
+    }
+
+    /**
+     * Test that the later option takes effect.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_LaterWins() {
+
+        var expect = JcifsngOptionFingerprint.of(List.of(new BufferCacheSize(17)));
+
+        assertThat(JcifsngOptionFingerprint.of(List.of(new BufferCacheSize(16), new BufferCacheSize(17))))
+                .isEqualTo(expect);
+
+    }
+
+    /**
+     * Test that the fingerprint of the options equals to the fingerprint of the properties.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_Properties() {
+
+        var plan = JcifsngOptionPlan.compile(List.of(new BufferCacheSize(16), new ClientTcpNoDelay(true)));
+
+        assertThat(JcifsngOptionFingerprint.of(Map.of("jcifs.smb.client.tcpNoDelay", "true",
+                "jcifs.smb.maxBuffers", "16"))).isEqualTo(plan.getFingerprint());
+        assertThat(JcifsngOptionFingerprint.of(plan.getOptions())).isEqualTo(plan.getFingerprint());
+
+    }
+
+    /**
+     * Test of plus and minus method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testPlusMinus() {
+
+        var base = JcifsngOptionFingerprint.of(List.of(new ClientTcpNoDelay(true)));
+        var added = base.plus(new BufferCacheSize(16));
+
+        assertThat(added).isEqualTo(JcifsngOptionFingerprint.of(List.of(new BufferCacheSize(16),
+                new ClientTcpNoDelay(true))));
+        assertThat(added.minus(new BufferCacheSize(16))).isEqualTo(base);
+        assertThat(base.minus(new ClientTcpNoDelay(true))).isEqualTo(JcifsngOptionFingerprint.EMPTY);
+
+    }
+
+    /**
+     * Test of of method. The credentials are left out of the fingerprint.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_IgnoresCredentials() {
+
+        var base = JcifsngOptionFingerprint.of(List.of(new ClientTcpNoDelay(true)));
+
+        assertThat(JcifsngOptionFingerprint.of(List.of(new ClientTcpNoDelay(true), new ClientDefaultUserName("u"),
+                new ClientDefaultPassword("p"), new ClientDefaultDomain("d")))).isEqualTo(base);
+        assertThat(base.plus(new ClientGuestPassword("g")).minus(new ClientGuestUserName("g"))).isEqualTo(base);
+
+    }
+
+    /**
+     * Test of toString and parse method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testToStringAndParse() {
+
+        var instance = JcifsngOptionFingerprint.of(List.of(new BufferCacheSize(16)));
+
+        assertThat(instance.toString()).hasSize(32).matches("[0-9a-f]{32}");
+        assertThat(JcifsngOptionFingerprint.parse(instance.toString())).isEqualTo(instance);
+        assertThat(JcifsngOptionFingerprint.EMPTY).hasToString("00000000000000000000000000000000");
+
+    }
+
+    /**
+     * Test of parse method if illegal text.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testParse_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngOptionFingerprint.parse("0"));
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngOptionFingerprint.parse("x".repeat(32)));
+
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import java.util.List;
+import java.util.ServiceLoader;
+import jp.mydns.projectk.vfs.FileOption;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngOptionIndex.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngOptionIndexTest {
+
+    /**
+     * Test of names method. All options provided as service are indexed.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNames() {
+
+        var svcNames = ServiceLoader.load(FileOption.Resolver.class).stream().map(ServiceLoader.Provider::get)
+                .map(FileOption.Resolver::getName).filter(n -> n.startsWith("smb:")).toList();
+
+        assertThat(JcifsngOptionIndex.names()).containsExactlyInAnyOrderElementsOf(svcNames);
+
+    }
+
+    /**
+     * Test of getResolver method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testGetResolver() {
+
+        assertThat(JcifsngOptionIndex.getResolver("smb:bufferCacheSize")).get()
+                .isInstanceOf(BufferCacheSize.Resolver.class).returns("smb:bufferCacheSize", FileOption.Resolver::getName)
+                .isSameAs(JcifsngOptionIndex.getResolver("smb:bufferCacheSize").orElseThrow());
+
+        assertThat(JcifsngOptionIndex.getResolver("smb:unknown")).isEmpty();
+
+    }
+
+    /**
+     * Test of newInstance method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNewInstance() {
+
+        assertThat(JcifsngOptionIndex.newInstance("smb:bufferCacheSize", Json.createValue(5)))
+                .isEqualTo(new BufferCacheSize(5));
+
+        assertThat(JcifsngOptionIndex.newInstance("smb:netbios.wins", Json.createArrayBuilder().add("a").build()))
+                .isEqualTo(new NetbiosWins(List.of("a")));
+
+    }
+
+    /**
+     * Test of newInstance method. If argument is illegal.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNewInstance_Illegal() {
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> JcifsngOptionIndex.newInstance("smb:unknown", Json.createValue(5)))
+                .withMessage("Unknown FileOption name [smb:unknown].");
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> JcifsngOptionIndex.newInstance("smb:bufferCacheSize", Json.createValue("5")))
+                .withMessage("FileOption value of [smb:bufferCacheSize] must be int.");
+
+    }
+
+    /**
+     * Test of newInstances method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNewInstances() {
+
+        JsonObject options = Json.createObjectBuilder().add("smb:client.tcpNoDelay", true)
+                .add("smb:bufferCacheSize", 5).build();
+
+        assertThat(JcifsngOptionIndex.newInstances(options))
+                .containsExactly(new ClientTcpNoDelay(true), new BufferCacheSize(5));
+
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import java.util.List;
+import java.util.stream.IntStream;
+import jcifs.DialectVersion;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngOptionInterner.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngOptionInternerTest {
+
+    /**
+     * Test of intern method. If boolean option.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testIntern_Boolean() {
+
+        var canonical = JcifsngOption.intern(new ClientTcpNoDelay(true));
+
+        assertThat(JcifsngOption.intern(new ClientTcpNoDelay(true))).isSameAs(canonical);
+        assertThat(JcifsngOption.intern(new ClientTcpNoDelay(false))).isNotSameAs(canonical)
+                .isEqualTo(new ClientTcpNoDelay(false));
+        assertThat(JcifsngOption.intern(new ClientUseBatching(true))).isInstanceOf(ClientUseBatching.class);
+
+    }
+
+    /**
+     * Test of intern method. If dialect version option.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testIntern_DialectVersion() {
+
+        var canonical = JcifsngOption.intern(new MaximumVersion(DialectVersion.SMB311));
+
+        assertThat(JcifsngOption.intern(new MaximumVersion(DialectVersion.SMB311))).isSameAs(canonical);
+        assertThat(JcifsngOption.intern(new MinimumVersion(DialectVersion.SMB311))).isInstanceOf(MinimumVersion.class);
+
+    }
+
+    /**
+     * Test of intern method. If pooled option.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testIntern_Pool() {
+
+        var canonical = JcifsngOption.intern(new ClientResponseTimeout(30001));
+
+        assertThat(JcifsngOption.intern(new ClientResponseTimeout(30001))).isSameAs(canonical);
+        assertThat(JcifsngOption.intern(new ClientConnectionTimeout(30001)))
+                .isInstanceOf(ClientConnectionTimeout.class);
+        assertThat(JcifsngOption.intern(new NetbiosWins(List.of("a", "b"))))
+                .isSameAs(JcifsngOption.intern(new NetbiosWins(List.of("a", "b"))));
+
+    }
+
+    /**
+     * Test of intern method. The credential options are not pooled.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testIntern_Credential() {
+
+        var password = new ClientDefaultPassword("secret");
+
+        assertThat(JcifsngOption.intern(password)).isSameAs(password);
+        assertThat(JcifsngOption.intern(new ClientDefaultPassword("secret"))).isNotSameAs(password);
+        assertThat(JcifsngOption.intern(new ClientDefaultUserName("user"))).isNotSameAs(
+                JcifsngOption.intern(new ClientDefaultUserName("user")));
+
+    }
+
+    /**
+     * Test of newInstance method of the index. The option is interned.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testIndex() {
+
+        assertThat(JcifsngOptionIndex.newInstance("smb:netbios.hostname", Json.createValue("H")))
+                .isSameAs(JcifsngOptionIndex.newInstance("smb:netbios.hostname", Json.createValue("H")));
+
+    }
+
+    /**
+     * Test of intern method. If the same option is interned concurrently.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testIntern_Concurrent() {
+
+        var interned = IntStream.range(0, 64).parallel()
+                .mapToObj(i -> JcifsngOption.intern(new ClientSocketTimeout(40_003))).toList();
+
+        assertThat(interned).allSatisfy(o -> assertThat(o).isSameAs(interned.get(0)));
+
+    }
+
+    /**
+     * Test of newInstance method of the resolver. The option is interned.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testResolver() {
+
+        var resolver = new ClientResponseTimeout.Resolver();
+
+        assertThat(resolver.newInstance(Json.createValue(30_007)))
+                .isSameAs(resolver.newInstance(Json.createValue(30_007)))
+                .isSameAs(JcifsngOption.intern(new ClientResponseTimeout(30_007)));
+
+    }
+}
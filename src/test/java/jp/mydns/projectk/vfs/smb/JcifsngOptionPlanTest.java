@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngOptionPlan.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngOptionPlanTest extends AbstractOptionTest {
+
+    /**
+     * Test of compile method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testCompile() {
+
+        JsonObject options = Json.createObjectBuilder().add("smb:bufferCacheSize", 16)
+                .add("smb:client.tcpNoDelay", true).build();
+
+        var instance = JcifsngOptionPlan.compile(options);
+
+        assertThat(instance.getOptions()).containsExactly(new BufferCacheSize(16), new ClientTcpNoDelay(true));
+        assertThat(instance.getProperties()).containsExactly(Map.entry("jcifs.smb.client.tcpNoDelay", "true"),
+                Map.entry("jcifs.smb.maxBuffers", "16"));
+        assertThat(instance.getConfiguration().getBufferCacheSize()).isEqualTo(16);
+        assertThat(instance).isEqualTo(JcifsngOptionPlan.compile(
+                List.of(new ClientTcpNoDelay(true), new BufferCacheSize(16))));
+
+    }
+
+    /**
+     * Test of compile method. If contains the illegal option.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testCompile_Illegal() {
+
+        JsonObject options = Json.createObjectBuilder().add("smb:bufferCacheSize", "16").build();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngOptionPlan.compile(options))
+                .withMessage("FileOption value of [smb:bufferCacheSize] must be int.");
+
+    }
+
+    /**
+     * Test of apply method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply() throws Exception {
+
+        var instance = JcifsngOptionPlan.compile(List.of(new BufferCacheSize(16), new ClientResponseTimeout(999)));
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+        FileSystemOptions otherOpts = new FileSystemOptions();
+
+        new ClientResponseTimeout(1).apply(otherOpts);
+        new ClientListCount(3).apply(otherOpts);
+
+        instance.apply(fsOpts);
+        instance.apply(otherOpts);
+
+        assertThat(toPropertyConfiguration(fsOpts)).returns(16, c -> c.getBufferCacheSize())
+                .returns(999, c -> c.getResponseTimeout());
+        assertThat(toPropertyConfiguration(otherOpts)).returns(16, c -> c.getBufferCacheSize())
+                .returns(999, c -> c.getResponseTimeout()).returns(3, c -> c.getListCount());
+
+    }
+}
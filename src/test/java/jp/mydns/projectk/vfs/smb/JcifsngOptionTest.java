@@ -26,8 +26,12 @@
 package jp.mydns.projectk.vfs.smb;
 
 import jakarta.json.JsonValue;
+import java.util.List;
+import jcifs.DialectVersion;
+import org.apache.commons.vfs2.FileSystemOptions;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -37,7 +41,7 @@ import org.junit.jupiter.api.Test;
  * @version 1.0.0
  * @since 1.0.0
  */
-class JcifsngOptionTest {
+class JcifsngOptionTest extends AbstractOptionTest {
 
     /**
      * Test of jcifsngOptionName method.
@@ -66,6 +70,60 @@ class JcifsngOptionTest {
                 .withMessage("No found a JCIFS-NG option name.");
     }
 
+    /**
+     * Test of apply method. Options applied before are not lost by the options applied after.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply_Accumulate() throws Exception {
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+
+        new BufferCacheSize(999).apply(fsOpts);
+        new ClientResponseTimeout(12345).apply(fsOpts);
+        new MinimumVersion(DialectVersion.SMB210).apply(fsOpts);
+
+        assertThat(toPropertyConfiguration(fsOpts)).returns(999, c -> c.getBufferCacheSize())
+                .returns(12345, c -> c.getResponseTimeout())
+                .returns(DialectVersion.SMB210, c -> c.getMinimumVersion());
+
+    }
+
+    /**
+     * Test of applyAll method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApplyAll() throws Exception {
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new BufferCacheSize(999), new ClientResponseTimeout(12345),
+                new BufferCacheSize(111), new NetbiosWins(List.of("127.0.0.1"))), fsOpts);
+
+        assertThat(toPropertyConfiguration(fsOpts)).returns(111, c -> c.getBufferCacheSize())
+                .returns(12345, c -> c.getResponseTimeout())
+                .returns(1, c -> c.getWinsServers().length);
+
+    }
+
+    /**
+     * Test of applyAll method. If contains {@code null}.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApplyAll_Null() {
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+
+        assertThatNullPointerException().isThrownBy(() -> JcifsngOption.applyAll(null, fsOpts));
+        assertThatNullPointerException().isThrownBy(() -> JcifsngOption.applyAll(List.of(), null));
+
+    }
+
     @JcifsngOption.Name("jcifs.smb.test.option")
     public static class SmbOption extends JcifsngOption {
 
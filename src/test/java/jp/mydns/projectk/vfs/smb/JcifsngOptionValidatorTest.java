@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.List;
+import java.util.Map;
+import jcifs.DialectVersion;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngOptionValidator.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngOptionValidatorTest {
+
+    /**
+     * Test of validate method if valid.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testValidate_Valid() {
+
+        assertThat(JcifsngOptionValidator.validate(Map.of())).isEmpty();
+        assertThat(JcifsngOptionValidator.validate(Map.of("jcifs.smb.client.minVersion", "SMB202",
+                "jcifs.smb.client.maxVersion", "SMB202", "jcifs.smb.client.signingEnforced", "true"))).isEmpty();
+
+    }
+
+    /**
+     * Test of validate method if the minimum version is above the maximum version.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testValidate_VersionRange() {
+
+        assertThat(JcifsngOptionValidator.validate(Map.of("jcifs.smb.client.minVersion", "SMB311",
+                "jcifs.smb.client.maxVersion", "SMB202")))
+                .containsExactly("smb:minVersion [SMB311] is above smb:maxVersion [SMB202].");
+
+    }
+
+    /**
+     * Test of validate method if the signing is enforced on SMB1 with the plain text passwords.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testValidate_SigningDialect() {
+
+        assertThat(JcifsngOptionValidator.validate(Map.of("jcifs.smb.client.maxVersion", "SMB1",
+                "jcifs.smb.client.signingEnforced", "true", "jcifs.smb.client.disablePlainTextPasswords", "false")))
+                .containsExactly("smb:client.signingEnforced on SMB1 requires smb:client.disablePlainTextPasswords.");
+
+        assertThat(JcifsngOptionValidator.validate(Map.of("jcifs.smb.client.maxVersion", "SMB1",
+                "jcifs.smb.client.signingEnforced", "true"))).isEmpty();
+
+    }
+
+    /**
+     * Test of validate method if the transaction buffer is larger than the receive buffer.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testValidate_TransactionBuffer() {
+
+        assertThat(JcifsngOptionValidator.validate(Map.of("jcifs.smb.client.transaction_buf_size", "70512")))
+                .containsExactly("smb:client.transactionBufferSize [70000] is larger than"
+                        + " smb:client.receiveBufferSize [65535].");
+
+        assertThat(JcifsngOptionValidator.validate(Map.of("jcifs.smb.client.transaction_buf_size", "70512",
+                "jcifs.smb.client.rcv_buf_size", "70000"))).isEmpty();
+
+    }
+
+    /**
+     * Test that all violations are reported at once.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testValidate_All() {
+
+        assertThat(JcifsngOptionValidator.validate(Map.of("jcifs.smb.client.minVersion", "SMB202",
+                "jcifs.smb.client.maxVersion", "SMB1", "jcifs.smb.client.signingEnforced", "true",
+                "jcifs.smb.client.disablePlainTextPasswords", "false", "jcifs.smb.client.transaction_buf_size",
+                "70512"))).hasSize(3);
+
+    }
+
+    /**
+     * Test that the plan compiling rejects the inconsistent options.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testCompile_Inconsistent() {
+
+        var options = List.of(new MinimumVersion(DialectVersion.SMB311), new MaximumVersion(DialectVersion.SMB202),
+                new ClientTransactionBufferSize(70512));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngOptionPlan.compile(options))
+                .withMessage("Inconsistent JCIFS-NG options. smb:minVersion [SMB311] is above smb:maxVersion"
+                        + " [SMB202]. smb:client.transactionBufferSize [70000] is larger than"
+                        + " smb:client.receiveBufferSize [65535].");
+
+    }
+
+    /**
+     * Test that the applying all rejects the inconsistent options before staging.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApplyAll_Inconsistent() {
+
+        var opts = new FileSystemOptions();
+        var options = List.of(new MinimumVersion(DialectVersion.SMB311), new MaximumVersion(DialectVersion.SMB202));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> JcifsngOption.applyAll(options, opts));
+        assertThat(JcifsngConfigBuilder.getInstance().getStagedProperties(opts)).isEmpty();
+
+    }
+}
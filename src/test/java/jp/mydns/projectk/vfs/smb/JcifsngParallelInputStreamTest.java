@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngParallelInputStream.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngParallelInputStreamTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that the chunks are reassembled in order.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_InOrder() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_000_003);
+        var reader = new MemoryRangeReader(data, 200_000L);
+
+        try (var instance = new JcifsngParallelInputStream(reader, 65_536, 4, executor)) {
+            assertThat(instance.readAllBytes()).isEqualTo(data);
+        }
+
+        assertThat(reader.getMaxRunning()).isBetween(2, 4);
+        assertThat(reader.isClosed()).isTrue();
+
+    }
+
+    /**
+     * Test of read method with the small buffer.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_SmallBuffer() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(10_000);
+        var out = new ByteArrayOutputStream();
+
+        try (var instance = new JcifsngParallelInputStream(new MemoryRangeReader(data, 0L), 1_000, 3, executor)) {
+
+            out.write(instance.read());
+
+            byte[] buf = new byte[7];
+            int n;
+
+            while ((n = instance.read(buf, 0, buf.length)) >= 0) {
+                out.write(buf, 0, n);
+            }
+
+            assertThat(instance.read()).isEqualTo(-1);
+
+        }
+
+        assertThat(out.toByteArray()).isEqualTo(data);
+
+    }
+
+    /**
+     * Test of read method if the file is empty.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Empty() throws IOException {
+
+        try (var instance = new JcifsngParallelInputStream(new MemoryRangeReader(new byte[0], 0L), 10, 2, executor)) {
+            assertThat(instance.read()).isEqualTo(-1);
+        }
+
+    }
+
+    /**
+     * Test of channel method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testChannel() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(100_000);
+        ByteBuffer buffer = ByteBuffer.allocate(data.length);
+
+        try (var instance = new JcifsngParallelInputStream(new MemoryRangeReader(data, 0L), 4_096, 4, executor);
+                var channel = instance.channel()) {
+
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                assertThat(buffer.position()).isLessThanOrEqualTo(data.length);
+            }
+
+            assertThat(channel.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+
+        }
+
+        assertThat(buffer.array()).isEqualTo(data);
+
+    }
+
+    /**
+     * Test that the failure of the read is propagated.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Failure() throws IOException {
+
+        var reader = new MemoryRangeReader(MemoryRangeReader.sequence(100), 0L) {
+            @Override
+            public int read(long position, byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken.");
+            }
+        };
+
+        try (var instance = new JcifsngParallelInputStream(reader, 10, 2, executor)) {
+            assertThatIOException().isThrownBy(instance::read).withMessage("Broken.");
+        }
+
+    }
+
+    /**
+     * Test of read method after closing.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Closed() throws IOException {
+
+        var instance = new JcifsngParallelInputStream(new MemoryRangeReader(new byte[10], 0L), 10, 2, executor);
+
+        instance.close();
+        instance.close();
+
+        assertThatIOException().isThrownBy(instance::read);
+
+    }
+
+    /**
+     * Test that the reader is not closed under the running reads.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testClose_WaitsRunning() throws IOException {
+
+        var runningAtClose = new AtomicInteger(-1);
+        var reader = new MemoryRangeReader(MemoryRangeReader.sequence(1_000), 50_000_000L) {
+            @Override
+            public void close() {
+                runningAtClose.set(getRunning());
+                super.close();
+            }
+        };
+
+        new JcifsngParallelInputStream(reader, 100, 4, executor).close();
+
+        assertThat(runningAtClose).hasValue(0);
+        assertThat(reader.getReads()).isLessThanOrEqualTo(4);
+
+    }
+
+    /**
+     * Test of read method of a single byte across the chunks.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Single() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_000);
+        var out = new ByteArrayOutputStream();
+
+        try (var instance = new JcifsngParallelInputStream(new MemoryRangeReader(data, 0L), 64, 3, executor)) {
+
+            for (int b = instance.read(); b >= 0; b = instance.read()) {
+                out.write(b);
+            }
+
+        }
+
+        assertThat(out.toByteArray()).isEqualTo(data);
+
+    }
+
+    /**
+     * Test constructor if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Illegal() {
+
+        var reader = new MemoryRangeReader(new byte[10], 0L);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngParallelInputStream(reader, 0, 1, executor));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngParallelInputStream(reader, 1, 0, executor));
+
+    }
+
+    /**
+     * Test that the illegal values of the parallel reads options are rejected on construction.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOptions_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new ReadChunkSize(0))
+                .withMessage("FileOption value of [smb:read.chunkSize] must be positive but [0].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new ReadParallelism(-1))
+                .withMessage("FileOption value of [smb:read.parallelism] must be positive but [-1].");
+
+    }
+
+    /**
+     * Test that the options of the parallel reads are not passed to the JCIFS-NG context.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOptions_NotPassedToContext() throws Exception {
+
+        var opts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new ReadChunkSize(4_096), new ReadParallelism(2)), opts);
+
+        var context = (DeferredJcifsngContext) JcifsngConfigBuilder.getInstance().getOrPrepare(opts);
+
+        assertThat(context.getProperties()).containsKeys(ReadChunkSize.NAME, ReadParallelism.NAME);
+        assertThat(context.getConfig().getMaxMpxCount()).isPositive();
+
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngParallelUploader.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngParallelUploaderTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that the file is preallocated and the chunks are written at their own offsets.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testUpload() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_000_003);
+        var writer = new MemoryRangeWriter(200_000L);
+        Set<Long> completed = ConcurrentHashMap.newKeySet();
+
+        long written = new JcifsngParallelUploader(65_536, 4, executor)
+                .upload(new ByteArrayInputStream(data), data.length, writer, (p, l) -> completed.add(p));
+
+        assertThat(written).isEqualTo(data.length);
+        assertThat(writer.getLength()).isEqualTo(data.length);
+        assertThat(writer.getData()).isEqualTo(data);
+        assertThat(writer.getWrites()).isEqualTo(16);
+        assertThat(writer.getMaxRunning()).isBetween(2, 4);
+        assertThat(completed).hasSize(16).contains(0L, 983_040L);
+        assertThat(writer.isClosed()).isFalse();
+
+    }
+
+    /**
+     * Test of upload method if the size is zero.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testUpload_Empty() throws IOException {
+
+        var writer = new MemoryRangeWriter(0L);
+
+        assertThat(new JcifsngParallelUploader(10, 2, executor)
+                .upload(new ByteArrayInputStream(new byte[0]), 0, writer, (p, l) -> {})).isZero();
+        assertThat(writer.getLength()).isZero();
+        assertThat(writer.getWrites()).isZero();
+
+    }
+
+    /**
+     * Test of upload method if the source is shorter than the size.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testUpload_ShortSource() {
+
+        var instance = new JcifsngParallelUploader(10, 2, executor);
+        var source = new ByteArrayInputStream(new byte[25]);
+
+        assertThatIOException().isThrownBy(() -> instance.upload(source, 30, new MemoryRangeWriter(0L), (p, l) -> {}))
+                .withMessage("Source ended at [25] before [30].");
+
+    }
+
+    /**
+     * Test that the upload fails fast on the first failed write.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testUpload_Failure() {
+
+        var writer = new MemoryRangeWriter(0L) {
+            @Override
+            public void write(long position, byte[] b, int off, int len) throws IOException {
+
+                super.write(position, b, off, len);
+
+                if (position == 20) {
+                    throw new IOException("Broken.");
+                }
+
+            }
+        };
+
+        var instance = new JcifsngParallelUploader(10, 1, executor);
+        var source = new ByteArrayInputStream(new byte[1_000]);
+
+        assertThatIOException().isThrownBy(() -> instance.upload(source, 1_000, writer, (p, l) -> {}))
+                .withMessage("Broken.");
+        assertThat(writer.getWrites()).isLessThan(100);
+
+    }
+
+    /**
+     * Test constructor if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngParallelUploader(0, 1, executor));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngParallelUploader(1, 0, executor));
+
+    }
+
+    /**
+     * Test of upload method if the size is negative.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testUpload_NegativeSize() {
+
+        var instance = new JcifsngParallelUploader(10, 1, executor);
+        var source = new ByteArrayInputStream(new byte[0]);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> instance.upload(source, -1, new MemoryRangeWriter(0L), (p, l) -> {}));
+
+    }
+
+    /**
+     * Test of of method with the explicit options.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf() throws Exception {
+
+        var opts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new WriteChunkSize(4_096), new WriteParallelism(3)), opts);
+
+        var instance = JcifsngParallelUploader.of(opts);
+
+        assertThat(instance.getChunkSize()).isEqualTo(4_096);
+        assertThat(instance.getParallelism()).isEqualTo(3);
+
+    }
+
+    /**
+     * Test that the chunk size follows the large read/write option if not set.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_DefaultChunkSize() throws Exception {
+
+        var large = new FileSystemOptions();
+        var small = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new ClientUseLargeReadWrite(true)), large);
+        JcifsngOption.applyAll(List.of(new ClientUseLargeReadWrite(false), new ClientSendBufferSize(32_768)), small);
+
+        assertThat(JcifsngParallelUploader.of(large).getChunkSize()).isEqualTo(WriteChunkSize.LARGE);
+        assertThat(JcifsngParallelUploader.of(small).getChunkSize()).isEqualTo(32_768);
+
+    }
+
+    /**
+     * Test that the parallelism is bounded by the maximum multiplex count.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOf_BoundedByMaxMpxCount() throws Exception {
+
+        var opts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new WriteParallelism(64), new ClientMaxMpxCount(8)), opts);
+
+        assertThat(JcifsngParallelUploader.of(opts).getParallelism()).isEqualTo(8);
+
+    }
+
+    /**
+     * Test that the illegal values of the parallel writes options are rejected on construction.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOptions_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new WriteChunkSize(0))
+                .withMessage("FileOption value of [smb:write.chunkSize] must be positive but [0].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new WriteParallelism(-1))
+                .withMessage("FileOption value of [smb:write.parallelism] must be positive but [-1].");
+
+    }
+}
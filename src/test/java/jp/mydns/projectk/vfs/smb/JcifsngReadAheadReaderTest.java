@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngReadAheadReader.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngReadAheadReaderTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that the sequential reads are read ahead and the window grows up to the maximum.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Sequential() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(100_000);
+        var delegate = new MemoryRangeReader(data, 200_000L);
+        byte[] out = new byte[data.length];
+
+        try (var instance = new JcifsngReadAheadReader(delegate, 1_000, 1, 8, executor)) {
+
+            int total = 0;
+
+            for (int n; (n = instance.read(total, out, total, Math.min(300, out.length - total))) > 0;) {
+                total += n;
+            }
+
+            assertThat(total).isEqualTo(data.length);
+            assertThat(instance.getWindow()).isEqualTo(8);
+
+        }
+
+        assertThat(out).isEqualTo(data);
+        assertThat(delegate.getMaxRunning()).isGreaterThan(1);
+        assertThat(delegate.isClosed()).isTrue();
+
+    }
+
+    /**
+     * Test that the random reads shrink the window and are not read ahead.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Random() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(100_000);
+        var delegate = new MemoryRangeReader(data, 0L);
+        byte[] chunk = new byte[1_000];
+        byte[] b = new byte[100];
+
+        try (var instance = new JcifsngReadAheadReader(delegate, 1_000, 1, 8, executor)) {
+
+            for (int i = 0; i < 5_000; i += 1_000) {
+                instance.read(i, chunk, 0, 1_000);
+            }
+
+            assertThat(instance.getWindow()).isEqualTo(8);
+
+            int reads = delegate.getReads();
+
+            instance.read(50_000, b, 0, 100);
+            assertThat(instance.getWindow()).isEqualTo(4);
+            instance.read(70_000, b, 0, 100);
+            instance.read(20_000, b, 0, 100);
+            instance.read(90_000, b, 0, 100);
+
+            assertThat(instance.getWindow()).isEqualTo(1);
+            assertThat(b).isEqualTo(Arrays.copyOfRange(data, 90_000, 90_100));
+            assertThat(delegate.getReads() - reads).isLessThanOrEqualTo(4 + 8);
+
+        }
+
+    }
+
+    /**
+     * Test of read method at the end of the file.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_End() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_500);
+        byte[] b = new byte[1_000];
+
+        try (var instance = new JcifsngReadAheadReader(new MemoryRangeReader(data, 0L), 1_000, 1, 2, executor)) {
+
+            assertThat(instance.read(0, b, 0, 1_000)).isEqualTo(1_000);
+            assertThat(instance.read(1_000, b, 0, 1_000)).isEqualTo(500);
+            assertThat(instance.read(1_500, b, 0, 1_000)).isEqualTo(-1);
+            assertThat(instance.size()).isEqualTo(1_500L);
+
+        }
+
+    }
+
+    /**
+     * Test that the read-ahead is disabled if the maximum window is zero.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrap() throws Exception {
+
+        var delegate = new MemoryRangeReader(new byte[10], 0L);
+        var disabled = new FileSystemOptions();
+        var enabled = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new ReadAheadMaxWindow(0)), disabled);
+        JcifsngOption.applyAll(List.of(new ReadAheadMaxWindow(4), new ReadAheadInitialWindow(2)), enabled);
+
+        assertThat(JcifsngReadAheadReader.wrap(delegate, JcifsngConfigBuilder.getInstance().getOrPrepare(disabled),
+                JcifsngModuleProperties.of(disabled))).isSameAs(delegate);
+        assertThat(JcifsngReadAheadReader.wrap(delegate, JcifsngConfigBuilder.getInstance().getOrPrepare(enabled),
+                JcifsngModuleProperties.of(enabled))).isInstanceOfSatisfying(JcifsngReadAheadReader.class,
+                r -> assertThat(r.getWindow()).isEqualTo(2));
+
+    }
+
+    /**
+     * Test that the illegal values of the read-ahead options are rejected on construction.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOptions_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new ReadAheadInitialWindow(0))
+                .withMessage("FileOption value of [smb:readAhead.initialWindow] must be positive but [0].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new ReadAheadMaxWindow(-1))
+                .withMessage("FileOption value of [smb:readAhead.maxWindow] must not be negative but [-1].");
+
+    }
+
+    /**
+     * Test constructor if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Illegal() {
+
+        var delegate = new MemoryRangeReader(new byte[10], 0L);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngReadAheadReader(delegate, 0, 1, 1, executor));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngReadAheadReader(delegate, 1, 0, 1, executor));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngReadAheadReader(delegate, 1, 2, 1, executor));
+
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test of class JcifsngSeekableByteChannel.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngSeekableByteChannelTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test of read method with the heap buffer.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_Heap() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_000);
+        var reader = new MemoryRangeReader(data, 0L);
+
+        try (var instance = new JcifsngSeekableByteChannel(reader, null, 64, 64)) {
+
+            ByteBuffer dst = ByteBuffer.allocate(1_000);
+
+            assertThat(instance.read(dst)).isEqualTo(1_000);
+            assertThat(dst.array()).isEqualTo(data);
+            assertThat(instance.position()).isEqualTo(1_000L);
+            assertThat(instance.read(dst.clear())).isEqualTo(-1);
+            assertThat(reader.getReads()).isEqualTo(2);
+
+        }
+
+        assertThat(reader.isClosed()).isTrue();
+
+    }
+
+    /**
+     * Test of read method with the direct buffer and the position jumps.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testRead_DirectWithPosition() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(1_000);
+
+        try (var instance = new JcifsngSeekableByteChannel(new MemoryRangeReader(data, 0L), null, 64, 64)) {
+
+            ByteBuffer dst = ByteBuffer.allocateDirect(100);
+
+            assertThat(instance.position(900).read(dst)).isEqualTo(64);
+            assertThat(instance.read(dst)).isEqualTo(36);
+            assertThat(instance.read(ByteBuffer.allocateDirect(1))).isEqualTo(-1);
+
+            byte[] head = new byte[10];
+
+            assertThat(instance.position(5).read(ByteBuffer.allocateDirect(10))).isEqualTo(10);
+            assertThat(instance.position()).isEqualTo(15L);
+
+            byte[] tail = new byte[100];
+
+            dst.flip().get(tail);
+            instance.position(5).read(ByteBuffer.wrap(head));
+
+            assertThat(tail).isEqualTo(Arrays.copyOfRange(data, 900, 1_000));
+            assertThat(head).isEqualTo(Arrays.copyOfRange(data, 5, 15));
+
+        }
+
+    }
+
+    /**
+     * Test of write method with the heap and the direct buffers.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrite() throws IOException {
+
+        var file = new MemoryFile(new byte[0]);
+        byte[] data = MemoryRangeReader.sequence(300);
+
+        try (var instance = new JcifsngSeekableByteChannel(file, file, 64, 64)) {
+
+            assertThat(instance.write(ByteBuffer.wrap(data, 0, 100))).isEqualTo(100);
+            assertThat(instance.write(ByteBuffer.allocateDirect(200).put(data, 100, 200).flip())).isEqualTo(200);
+            assertThat(instance.size()).isEqualTo(300L);
+            assertThat(file.writes).isEqualTo(5);
+
+            assertThat(instance.truncate(250).position()).isEqualTo(250L);
+            assertThat(instance.size()).isEqualTo(250L);
+
+        }
+
+        assertThat(file.data).isEqualTo(Arrays.copyOf(data, 250));
+
+    }
+
+    /**
+     * Test of write method in append mode. The bytes appended by the others are not overwritten.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrite_Append() throws IOException {
+
+        var file = new MemoryFile(new byte[]{1, 2});
+
+        try (var instance = new JcifsngSeekableByteChannel(file, file, true, 64, 64)) {
+
+            instance.write(ByteBuffer.wrap(new byte[]{3}));
+            file.write(3, new byte[]{4}, 0, 1);
+            instance.position(0).write(ByteBuffer.wrap(new byte[]{5}));
+
+            assertThat(instance.position()).isEqualTo(5L);
+            assertThat(instance.size()).isEqualTo(5L);
+
+        }
+
+        assertThat(file.data).containsExactly(1, 2, 3, 4, 5);
+
+    }
+
+    /**
+     * Test of write method in append mode if the size is cached. The own appends are not overwritten.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrite_AppendCachedSize() throws IOException {
+
+        // The size is cached like the attribute cache of the SMB file, which the writes do not refresh.
+        var file = new MemoryFile(new byte[]{1, 2}) {
+
+            private final long cached = data.length;
+
+            @Override
+            public long size() {
+                return cached;
+            }
+        };
+
+        try (var instance = new JcifsngSeekableByteChannel(file, file, true, 64, 64)) {
+
+            instance.write(ByteBuffer.wrap(new byte[]{3}));
+            instance.write(ByteBuffer.wrap(new byte[]{4, 5}));
+            instance.write(ByteBuffer.allocateDirect(1).put((byte) 6).flip());
+
+            assertThat(instance.position()).isEqualTo(6L);
+
+        }
+
+        assertThat(file.data).containsExactly(1, 2, 3, 4, 5, 6);
+
+    }
+
+    /**
+     * Test of transferTo method with a local file.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testTransferTo() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(10_000);
+        Path local = tempDir.resolve("local.bin");
+
+        try (var instance = new JcifsngSeekableByteChannel(new MemoryRangeReader(data, 0L), null, 4_096, 4_096);
+                var target = FileChannel.open(local, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            assertThat(instance.transferTo(1_000, 20_000, target)).isEqualTo(9_000L);
+            assertThat(instance.position()).isZero();
+
+        }
+
+        assertThat(Files.readAllBytes(local)).isEqualTo(Arrays.copyOfRange(data, 1_000, 10_000));
+
+    }
+
+    /**
+     * Test of transferFrom method with a local file.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testTransferFrom() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(10_000);
+        Path local = Files.write(tempDir.resolve("local.bin"), data);
+        var file = new MemoryFile(new byte[0]);
+
+        try (var instance = new JcifsngSeekableByteChannel(file, file, 4_096, 4_096);
+                var source = FileChannel.open(local)) {
+
+            assertThat(instance.transferFrom(source, 0, 20_000)).isEqualTo(10_000L);
+            assertThat(instance.size()).isEqualTo(10_000L);
+            assertThat(file.writes).isEqualTo(3);
+
+        }
+
+        assertThat(file.data).isEqualTo(data);
+
+    }
+
+    /**
+     * Test that the read-only channel rejects writes.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrite_ReadOnly() throws IOException {
+
+        try (var instance = new JcifsngSeekableByteChannel(new MemoryRangeReader(new byte[10], 0L), null, 8, 8)) {
+
+            assertThatExceptionOfType(NonWritableChannelException.class)
+                    .isThrownBy(() -> instance.write(ByteBuffer.allocate(1)));
+            assertThatExceptionOfType(NonWritableChannelException.class).isThrownBy(() -> instance.truncate(0));
+
+        }
+
+    }
+
+    /**
+     * Test of methods after closing.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testClosed() throws IOException {
+
+        var file = new MemoryFile(new byte[10]);
+        var instance = new JcifsngSeekableByteChannel(file, file, 8, 8);
+
+        instance.close();
+        instance.close();
+
+        assertThat(instance.isOpen()).isFalse();
+        assertThat(file.closed).isEqualTo(2);
+        assertThatExceptionOfType(ClosedChannelException.class).isThrownBy(() -> instance.read(ByteBuffer.allocate(1)));
+        assertThatExceptionOfType(ClosedChannelException.class).isThrownBy(instance::size);
+
+    }
+
+    /**
+     * Test constructor and position method if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testIllegal() throws IOException {
+
+        var reader = new MemoryRangeReader(new byte[10], 0L);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngSeekableByteChannel(reader, null, 0, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngSeekableByteChannel(reader, null, 1, 0));
+
+        try (var instance = new JcifsngSeekableByteChannel(reader, null, 8, 8)) {
+            assertThatIllegalArgumentException().isThrownBy(() -> instance.position(-1));
+        }
+
+    }
+
+    /**
+     * Test of open method if an unsupported option.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOpen_UnsupportedOption() {
+
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> JcifsngSeekableByteChannel.open("smb://server/share/a.bin", new FileSystemOptions(),
+                StandardOpenOption.DELETE_ON_CLOSE));
+
+    }
+
+    /**
+     * In-memory file that is both readable and writable.
+     *
+     * @since 1.0.0
+     */
+    static class MemoryFile implements JcifsngRangeReader, JcifsngRangeWriter {
+
+        byte[] data;
+
+        int writes;
+
+        int closed;
+
+        MemoryFile(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public int read(long position, byte[] b, int off, int len) {
+
+            if (position >= data.length) {
+                return -1;
+            }
+
+            int n = (int) Math.min(len, data.length - position);
+
+            System.arraycopy(data, (int) position, b, off, n);
+
+            return n;
+
+        }
+
+        @Override
+        public void setLength(long length) {
+            data = Arrays.copyOf(data, (int) length);
+        }
+
+        @Override
+        public void write(long position, byte[] b, int off, int len) {
+
+            if (position + len > data.length) {
+                data = Arrays.copyOf(data, (int) (position + len));
+            }
+
+            System.arraycopy(b, off, data, (int) position, len);
+            writes++;
+
+        }
+
+        @Override
+        public void close() {
+            closed++;
+        }
+    }
+}
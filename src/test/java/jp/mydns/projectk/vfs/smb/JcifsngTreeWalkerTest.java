@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngTreeWalker.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngTreeWalkerTest {
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test that all the entries of the tree are walked with the listed attributes.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWalk() throws IOException {
+
+        var lister = new MemoryTree(3, 4, 0);
+        Set<String> urls = ConcurrentHashMap.newKeySet();
+
+        new JcifsngTreeWalker(4, 16, pool).walk(root(), "host", lister, e -> {
+            assertThat(e.getSize()).isEqualTo(e.isDirectory() ? 0 : e.getName().length());
+            urls.add(e.getUrl());
+        });
+
+        assertThat(urls).hasSize(lister.expectedEntries()).contains("smb://host/share/0/1/2.txt");
+
+    }
+
+    /**
+     * Test that the concurrent listings are bounded per host.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWalk_BoundedPerHost() throws IOException {
+
+        var lister = new MemoryTree(3, 4, 5);
+        AtomicInteger count = new AtomicInteger();
+
+        new JcifsngTreeWalker(3, 16, pool).walk(root(), "host", lister, e -> count.incrementAndGet());
+
+        assertThat(count).hasValue(lister.expectedEntries());
+        assertThat(lister.maxRunning).hasValueBetween(2, 3);
+
+    }
+
+    /**
+     * Test that the walk of the same walker shares the bound of the host.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWalk_SharedBound() throws Exception {
+
+        var lister = new MemoryTree(2, 4, 5);
+        var instance = new JcifsngTreeWalker(2, 16, pool);
+
+        Thread other = new Thread(() -> {
+            try {
+                instance.walk(root(), "HOST", lister, e -> {
+                });
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        other.start();
+        instance.walk(root(), "HOST", lister, e -> {
+        });
+        other.join();
+
+        assertThat(lister.maxRunning).hasValueBetween(1, 2);
+
+    }
+
+    /**
+     * Test that a failure of the listing stops the walk.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWalk_Failure() {
+
+        Consumer<JcifsngTreeWalker.Entry> sink = e -> {
+        };
+
+        var lister = new MemoryTree(3, 4, 0) {
+            @Override
+            public void list(JcifsngTreeWalker.Entry dir, Consumer<JcifsngTreeWalker.Entry> out) throws IOException {
+
+                if (dir.getUrl().endsWith("/2/")) {
+                    throw new IOException("Denied.");
+                }
+
+                super.list(dir, out);
+
+            }
+        };
+
+        assertThatIOException().isThrownBy(() -> new JcifsngTreeWalker(4, 16, pool).walk(root(), "host", lister, sink))
+                .withMessage("Denied.");
+
+    }
+
+    /**
+     * Test that the stream yields all the entries.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream() {
+
+        var lister = new MemoryTree(3, 4, 1);
+
+        try (Stream<JcifsngTreeWalker.Entry> stream = new JcifsngTreeWalker(4, 2, pool).stream(root(), "host",
+                lister)) {
+
+            Set<String> urls = stream.map(JcifsngTreeWalker.Entry::getUrl).collect(Collectors.toSet());
+
+            assertThat(urls).hasSize(lister.expectedEntries());
+
+        }
+
+    }
+
+    /**
+     * Test that the stream can be closed before the end.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_Close() {
+
+        var lister = new MemoryTree(4, 6, 1);
+
+        try (Stream<JcifsngTreeWalker.Entry> stream = new JcifsngTreeWalker(4, 2, pool).stream(root(), "host",
+                lister)) {
+
+            assertThat(stream.limit(5).toList()).hasSize(5);
+
+        }
+
+        assertThat(pool.awaitQuiescence(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(lister.listed.get()).isLessThan(lister.expectedDirectories());
+
+    }
+
+    /**
+     * Test that the siblings waiting for the permit do not list after the stream is closed.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_CloseStopsSiblings() {
+
+        var lister = new MemoryTree(2, 8, 20);
+        int listed;
+
+        try (Stream<JcifsngTreeWalker.Entry> stream = new JcifsngTreeWalker(1, 64, pool).stream(root(), "host",
+                lister)) {
+
+            assertThat(stream.limit(12).toList()).hasSize(12);
+
+            listed = lister.listed.get();
+
+        }
+
+        assertThat(pool.awaitQuiescence(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(lister.listed.get()).isLessThanOrEqualTo(listed + 1).isLessThan(lister.expectedDirectories());
+
+    }
+
+    /**
+     * Test that a stream waiting for its consumer does not starve the other walks of the pool.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_BlockedConsumer() {
+
+        var single = new ForkJoinPool(1);
+        var walker = new JcifsngTreeWalker(4, 1, single);
+        var tree = new MemoryTree(2, 2, 0);
+
+        try (Stream<JcifsngTreeWalker.Entry> blocked = walker.stream(root(), "host", new MemoryTree(3, 4, 0));
+                Stream<JcifsngTreeWalker.Entry> other = walker.stream(root(), "other", tree)) {
+
+            assertThat(blocked.iterator().hasNext()).isTrue();
+            assertThat(CompletableFuture.supplyAsync(other::toList)).succeedsWithin(Duration.ofSeconds(10))
+                    .asList().hasSize(tree.expectedEntries());
+
+        } finally {
+            single.shutdownNow();
+        }
+
+    }
+
+    /**
+     * Test that a failure of the listing is thrown from the stream.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_Failure() {
+
+        JcifsngTreeWalker.Lister lister = (dir, out) -> {
+            throw new IOException("Denied.");
+        };
+
+        try (Stream<JcifsngTreeWalker.Entry> stream = new JcifsngTreeWalker(4, 2, pool).stream(root(), "host",
+                lister)) {
+
+            assertThatThrownBy(stream::toList).isInstanceOf(UncheckedIOException.class).hasMessageContaining("Denied.");
+
+        }
+
+    }
+
+    /**
+     * Test that an unchecked failure of the listing is thrown from the stream.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testStream_UncheckedFailure() {
+
+        JcifsngTreeWalker.Lister lister = (dir, out) -> {
+            throw new IllegalStateException("Broken.");
+        };
+
+        try (Stream<JcifsngTreeWalker.Entry> stream = new JcifsngTreeWalker(4, 2, pool).stream(root(), "host",
+                lister)) {
+
+            assertThat(CompletableFuture.supplyAsync(() -> catchThrowable(stream::toList)))
+                    .succeedsWithin(Duration.ofSeconds(10)).isInstanceOf(IllegalStateException.class)
+                    .extracting(Throwable::getMessage).asString().contains("Broken.");
+
+        }
+
+    }
+
+    /**
+     * Test of constructor with the invalid arguments.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Invalid() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngTreeWalker(0, 1, pool));
+        assertThatIllegalArgumentException().isThrownBy(() -> new JcifsngTreeWalker(1, 0, pool));
+
+    }
+
+    private static JcifsngTreeWalker.Entry root() {
+        return new JcifsngTreeWalker.Entry(null, "smb://host/share/", "share/", true, 0, 0, 0, 0);
+    }
+
+    /**
+     * Tree in memory. Each directory has the directories and a file named by their index.
+     */
+    static class MemoryTree implements JcifsngTreeWalker.Lister {
+
+        private final int depth;
+
+        private final int fanOut;
+
+        private final long latency;
+
+        final AtomicInteger listed = new AtomicInteger();
+
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        MemoryTree(int depth, int fanOut, long latency) {
+            this.depth = depth;
+            this.fanOut = fanOut;
+            this.latency = latency;
+        }
+
+        int expectedDirectories() {
+
+            int dirs = 1;
+
+            for (int level = 1, width = 1; level <= depth; level++) {
+                width *= fanOut;
+                dirs += width;
+            }
+
+            return dirs;
+
+        }
+
+        int expectedEntries() {
+            return (expectedDirectories() - 1) + (expectedDirectories() - leaves());
+        }
+
+        private int leaves() {
+
+            int width = 1;
+
+            for (int level = 0; level < depth; level++) {
+                width *= fanOut;
+            }
+
+            return width;
+
+        }
+
+        @Override
+        public void list(JcifsngTreeWalker.Entry dir, Consumer<JcifsngTreeWalker.Entry> out) throws IOException {
+
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            listed.incrementAndGet();
+
+            try {
+
+                if (latency > 0) {
+                    Thread.sleep(latency);
+                }
+
+                String url = dir.getUrl();
+                int level = (int) url.chars().filter(c -> c == '/').count() - 4;
+
+                if (level >= depth) {
+                    return;
+                }
+
+                String file = level + ".txt";
+                out.accept(new JcifsngTreeWalker.Entry(null, url + file, file, false, file.length(), 0, 0, 0));
+
+                for (int i = 0; i < fanOut; i++) {
+                    String name = i + "/";
+                    out.accept(new JcifsngTreeWalker.Entry(null, url + name, name, true, 0, 0, 0, 0));
+                }
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                running.decrementAndGet();
+            }
+
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class JcifsngWriteBehindOutputStream.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class JcifsngWriteBehindOutputStreamTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that the small writes are coalesced into the chunks.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrite_Coalesce() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(100_000);
+        var writer = new MemoryRangeWriter(100_000L);
+
+        writer.setLength(data.length);
+
+        try (var instance = new JcifsngWriteBehindOutputStream(writer, 0, 8_192, 4, executor)) {
+
+            for (int off = 0; off < data.length; off += 64) {
+                instance.write(data, off, Math.min(64, data.length - off));
+            }
+
+        }
+
+        assertThat(writer.getData()).isEqualTo(data);
+        assertThat(writer.getWrites()).isEqualTo(13);
+        assertThat(writer.getMaxRunning()).isBetween(2, 4);
+        assertThat(writer.isClosed()).isTrue();
+
+    }
+
+    /**
+     * Test that the single bytes are coalesced into the chunks.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testWrite_SingleBytes() throws IOException {
+
+        byte[] data = MemoryRangeReader.sequence(10_000);
+        var writer = new MemoryRangeWriter(0L);
+
+        writer.setLength(data.length);
+
+        try (var instance = new JcifsngWriteBehindOutputStream(writer, 0, 1_024, 4, executor)) {
+
+            for (byte b : data) {
+                instance.write(b);
+            }
+
+        }
+
+        assertThat(writer.getData()).isEqualTo(data);
+        assertThat(writer.getWrites()).isEqualTo(10);
+
+    }
+
+    /**
+     * Test of flush method and the start position.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testFlush() throws IOException {
+
+        var writer = new MemoryRangeWriter(0L);
+
+        writer.setLength(20);
+
+        try (var instance = new JcifsngWriteBehindOutputStream(writer, 10, 1_024, 2, executor)) {
+
+            instance.write(new byte[]{1, 2, 3});
+            instance.write(4);
+
+            assertThat(writer.getWrites()).isZero();
+
+            instance.flush();
+
+            assertThat(writer.getWrites()).isEqualTo(1);
+            assertThat(Arrays.copyOfRange(writer.getData(), 10, 14)).containsExactly(1, 2, 3, 4);
+
+            instance.flush();
+
+            assertThat(writer.getWrites()).isEqualTo(1);
+
+        }
+
+    }
+
+    /**
+     * Test that the failure of the background write is thrown by flush and close.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testFlush_Failure() throws IOException {
+
+        var writer = new MemoryRangeWriter(0L) {
+            @Override
+            public void write(long position, byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken.");
+            }
+        };
+
+        var instance = new JcifsngWriteBehindOutputStream(writer, 0, 10, 2, executor);
+
+        instance.write(new byte[15]);
+
+        assertThatIOException().isThrownBy(instance::flush).withMessage("Background write failed.")
+                .withRootCauseExactlyInstanceOf(IOException.class).havingRootCause().withMessage("Broken.");
+        assertThatIOException().isThrownBy(() -> instance.write(1)).withMessage("Background write failed.");
+        assertThatIOException().isThrownBy(instance::close).withMessage("Background write failed.");
+        assertThat(writer.isClosed()).isTrue();
+        assertThatIOException().isThrownBy(() -> instance.write(1)).withMessage("Stream is closed.");
+
+        instance.close();
+
+    }
+
+    /**
+     * Test that the illegal values of the write-behind options are rejected on construction.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testOptions_Illegal() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new WriteBehindChunkSize(0))
+                .withMessage("FileOption value of [smb:writeBehind.chunkSize] must be positive but [0].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new WriteBehindMaxPending(-1))
+                .withMessage("FileOption value of [smb:writeBehind.maxPending] must be positive but [-1].");
+
+    }
+
+    /**
+     * Test constructor if illegal argument.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_Illegal() {
+
+        var writer = new MemoryRangeWriter(0L);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new JcifsngWriteBehindOutputStream(writer, -1, 1, 1, executor));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new JcifsngWriteBehindOutputStream(writer, 0, 0, 1, executor));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new JcifsngWriteBehindOutputStream(writer, 0, 1, 0, executor));
+
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory {@link JcifsngRangeReader} with the injected latency. It records the maximum number of the concurrent
+ * reads.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class MemoryRangeReader implements JcifsngRangeReader {
+
+    private final byte[] data;
+
+    private final long latencyNanos;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    MemoryRangeReader(byte[] data, long latencyNanos) {
+        this.data = data;
+        this.latencyNanos = latencyNanos;
+    }
+
+    static byte[] sequence(int size) {
+
+        byte[] data = new byte[size];
+
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + (i >>> 8));
+        }
+
+        return data;
+
+    }
+
+    @Override
+    public long size() {
+        return data.length;
+    }
+
+    @Override
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+
+        if (closed) {
+            throw new IOException("Reader is closed.");
+        }
+
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        reads.incrementAndGet();
+
+        try {
+
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+
+            if (position >= data.length) {
+                return -1;
+            }
+
+            int n = (int) Math.min(len, data.length - position);
+
+            System.arraycopy(data, (int) position, b, off, n);
+
+            return n;
+
+        } finally {
+            running.decrementAndGet();
+        }
+
+    }
+
+    int getMaxRunning() {
+        return maxRunning.get();
+    }
+
+    int getRunning() {
+        return running.get();
+    }
+
+    int getReads() {
+        return reads.get();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
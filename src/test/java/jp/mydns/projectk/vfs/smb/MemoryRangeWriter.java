@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory {@link JcifsngRangeWriter} with the injected latency. It records the preallocated length and the maximum
+ * number of the concurrent writes.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class MemoryRangeWriter implements JcifsngRangeWriter {
+
+    private final long latencyNanos;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    private volatile byte[] data = new byte[0];
+
+    private volatile long length = -1;
+
+    private volatile boolean closed;
+
+    MemoryRangeWriter(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public void setLength(long length) throws IOException {
+
+        if (writes.get() > 0) {
+            throw new IOException("Length is set after writing.");
+        }
+
+        this.length = length;
+        this.data = Arrays.copyOf(data, (int) length);
+
+    }
+
+    @Override
+    public void write(long position, byte[] b, int off, int len) throws IOException {
+
+        if (closed) {
+            throw new IOException("Writer is closed.");
+        }
+
+        if (position + len > data.length) {
+            throw new IOException("Write beyond the preallocated length.");
+        }
+
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        writes.incrementAndGet();
+
+        try {
+
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+
+            System.arraycopy(b, off, data, (int) position, len);
+
+        } finally {
+            running.decrementAndGet();
+        }
+
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    int getMaxRunning() {
+        return maxRunning.get();
+    }
+
+    int getWrites() {
+        return writes.get();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
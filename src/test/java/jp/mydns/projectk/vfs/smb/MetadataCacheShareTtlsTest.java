@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonValue;
+import jp.mydns.projectk.vfs.FileOption;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class MetadataCacheShareTtls.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class MetadataCacheShareTtlsTest extends AbstractOptionTest {
+
+    /**
+     * Test constructor. If argument is valid {@code JsonValue}.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_JsonValue() {
+
+        JsonValue src = Json.createValue("host/share=60000");
+        JsonValue expext = Json.createValue("host/share=60000");
+
+        assertThat(new MetadataCacheShareTtls(src).getValue()).isEqualTo(expext);
+
+    }
+
+    /**
+     * Test constructor. If argument is illegal {@code JsonValue}.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_IllegalJsonValue() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new MetadataCacheShareTtls(JsonValue.NULL))
+                .withMessage("FileOption value of [%s] must be string.", "smb:metadataCache.shareTtls");
+
+    }
+
+    /**
+     * Test constructor. If argument is valid {@code String}.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_String() {
+
+        JsonValue expect = Json.createValue("host/a=1, host/b=0");
+
+        assertThat(new MetadataCacheShareTtls("host/a=1, host/b=0").getValue()).isEqualTo(expect);
+        assertThat(new MetadataCacheShareTtls("").getValue()).isEqualTo(Json.createValue(""));
+
+    }
+
+    /**
+     * Test constructor. If argument is malformed {@code String}.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_MalformedString() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new MetadataCacheShareTtls("host=1"))
+                .withMessage("Share TTL must be host/share=millis but [host=1].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new MetadataCacheShareTtls("host/share=x"))
+                .withMessage("Share TTL must be host/share=millis but [host/share=x].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new MetadataCacheShareTtls("host/share/dir=1"));
+        assertThatIllegalArgumentException().isThrownBy(() -> new MetadataCacheShareTtls("host/share=-1"))
+                .withMessage("Share TTL must not be negative but [host/share=-1].");
+
+    }
+
+    /**
+     * Test of apply method. The property is staged but is not passed to the JCIFS-NG.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply() throws Exception {
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+
+        var instance = new MetadataCacheShareTtls.Resolver().newInstance(Json.createValue("host/share=1"));
+
+        instance.apply(fsOpts);
+
+        assertThat(JcifsngModuleProperties.of(fsOpts)).containsEntry(MetadataCacheShareTtls.NAME, "host/share=1");
+        assertThat(toPropertyConfiguration(fsOpts)).isNotNull();
+
+    }
+
+    /**
+     * Test {@code equals} method and {@code hashCode} method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testEqualsHashCode() {
+
+        MetadataCacheShareTtls base = new MetadataCacheShareTtls("host/share=1");
+        MetadataCacheShareTtls same = new MetadataCacheShareTtls("host/share=1");
+        MetadataCacheShareTtls another = new MetadataCacheShareTtls("host/share=2");
+
+        assertThat(base).hasSameHashCodeAs(same).isEqualTo(same)
+                .doesNotHaveSameHashCodeAs(another).isNotEqualTo(another);
+
+    }
+
+    /**
+     * Test of newInstance method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNewInstance() {
+
+        JsonValue expectValue = Json.createValue("host/share=1");
+
+        var instance = new MetadataCacheShareTtls.Resolver().newInstance(Json.createValue("host/share=1"));
+
+        assertThat(instance).returns("smb:metadataCache.shareTtls", FileOption::getName)
+                .returns(expectValue, FileOption::getValue);
+
+    }
+
+    /**
+     * Test of toString method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testToString() {
+
+        var instance = new MetadataCacheShareTtls("host/share=1");
+
+        var result = instance.toString();
+
+        assertThat(result).isEqualTo("{\"smb:metadataCache.shareTtls\":\"host/share=1\"}");
+
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jcifs.DialectVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of {@code equals}, {@code hashCode} and {@code toString} of the options.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main OptionEqualityBenchmark -prof gc}. The
+ * {@code gc.alloc.rate.norm} of each benchmark is expected to be zero bytes per operation.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptionEqualityBenchmark {
+
+    private final List<JcifsngOption> options = List.of(new BufferCacheSize(16), new ClientDfsTtl(300L),
+            new ClientTcpNoDelay(true), new ClientDefaultDomain("DOMAIN"), new MaximumVersion(DialectVersion.SMB311),
+            new NetbiosWins(List.of("10.0.0.1", "10.0.0.2")));
+
+    private final List<JcifsngOption> sames = List.of(new BufferCacheSize(16), new ClientDfsTtl(300L),
+            new ClientTcpNoDelay(true), new ClientDefaultDomain("DOMAIN"), new MaximumVersion(DialectVersion.SMB311),
+            new NetbiosWins(List.of("10.0.0.1", "10.0.0.2")));
+
+    /**
+     * Call {@code hashCode} of each option.
+     *
+     * @param bh the black hole
+     * @since 1.0.0
+     */
+    @Benchmark
+    public void hashCodes(Blackhole bh) {
+        for (int i = 0; i < options.size(); i++) {
+            bh.consume(options.get(i).hashCode());
+        }
+    }
+
+    /**
+     * Call {@code equals} of each option with the equal one.
+     *
+     * @param bh the black hole
+     * @since 1.0.0
+     */
+    @Benchmark
+    public void equalities(Blackhole bh) {
+        for (int i = 0; i < options.size(); i++) {
+            bh.consume(options.get(i).equals(sames.get(i)));
+        }
+    }
+
+    /**
+     * Call {@code toString} of each option.
+     *
+     * @param bh the black hole
+     * @since 1.0.0
+     */
+    @Benchmark
+    public void strings(Blackhole bh) {
+        for (int i = 0; i < options.size(); i++) {
+            bh.consume(options.get(i).toString());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import jp.mydns.projectk.vfs.FileOption;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of resolving the options from a JSON document of 20 options.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main OptionResolveBenchmark -prof gc}.
+ * {@code serviceLoader} looks up the resolvers via the {@link ServiceLoader}, {@code index} uses the
+ * {@link JcifsngOptionIndex}. {@code indexAndApply} and {@code plan} compare resolving and applying every time with
+ * applying the {@link JcifsngOptionPlan} compiled beforehand.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptionResolveBenchmark {
+
+    private final JsonObject document = Json.createObjectBuilder()
+            .add("smb:bufferCacheSize", 16).add("smb:client.connectionTimeout", 35000)
+            .add("smb:client.responseTimeout", 30000).add("smb:client.socketTimeout", 35000)
+            .add("smb:client.sessionTimeout", 35000).add("smb:client.receiveBufferSize", 65536)
+            .add("smb:client.sendBufferSize", 65536).add("smb:client.transactionBufferSize", 65536)
+            .add("smb:client.maxMpxCount", 10).add("smb:client.tcpNoDelay", true)
+            .add("smb:client.signingPreferred", true).add("smb:client.useLargeReadWrite", true)
+            .add("smb:client.dfsDisabled", true).add("smb:client.listCount", 200)
+            .add("smb:client.listSize", 65535).add("smb:client.attributeCacheTimeout", 5000)
+            .add("smb:minVersion", "SMB202").add("smb:maxVersion", "SMB311")
+            .add("smb:client.defaultUserName", "user").add("smb:client.defaultPassword", "password").build();
+
+    private final JcifsngOptionPlan plan = JcifsngOptionPlan.compile(document);
+
+    /**
+     * Resolve via the {@code ServiceLoader}.
+     *
+     * @return resolved options
+     * @since 1.0.0
+     */
+    @Benchmark
+    public List<FileOption> serviceLoader() {
+
+        List<FileOption> options = new ArrayList<>(document.size());
+
+        for (Map.Entry<String, JsonValue> e : document.entrySet()) {
+            options.add(ServiceLoader.load(FileOption.Resolver.class).stream().map(ServiceLoader.Provider::get)
+                    .filter(r -> r.getName().equals(e.getKey())).findFirst().orElseThrow()
+                    .newInstance(e.getValue()));
+        }
+
+        return options;
+
+    }
+
+    /**
+     * Resolve via the {@code JcifsngOptionIndex}.
+     *
+     * @return resolved options
+     * @since 1.0.0
+     */
+    @Benchmark
+    public List<JcifsngOption> index() {
+        return JcifsngOptionIndex.newInstances(document);
+    }
+
+    /**
+     * Resolve via the {@code JcifsngOptionIndex}, and apply them.
+     *
+     * @return the options that applied
+     * @throws FileSystemException if cannot apply
+     * @since 1.0.0
+     */
+    @Benchmark
+    public FileSystemOptions indexAndApply() throws FileSystemException {
+
+        FileSystemOptions opts = new FileSystemOptions();
+
+        JcifsngOption.applyAll(JcifsngOptionIndex.newInstances(document), opts);
+
+        return opts;
+
+    }
+
+    /**
+     * Apply the compiled plan.
+     *
+     * @return the options that applied
+     * @since 1.0.0
+     */
+    @Benchmark
+    public FileSystemOptions plan() {
+
+        FileSystemOptions opts = new FileSystemOptions();
+
+        plan.apply(opts);
+
+        return opts;
+
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the throughput of the parallel chunked upload against a stand-in server.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main ParallelUploadBenchmark}. The stand-in is the
+ * in-memory {@link MemoryRangeWriter} that takes 1 ms per write like a round trip on a WAN, so the score shows how
+ * much of the latency the parallelism hides. With {@code parallelism = 1} it is the sequential upload.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelUploadBenchmark {
+
+    private static final int SIZE = 8 * 1_048_576;
+
+    private final byte[] data = MemoryRangeReader.sequence(SIZE);
+
+    @Param({"1", "4", "16"})
+    private int parallelism;
+
+    private ExecutorService executor;
+
+    private JcifsngParallelUploader uploader;
+
+    /**
+     * Set up the uploader.
+     *
+     * @since 1.0.0
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(parallelism);
+        uploader = new JcifsngParallelUploader(262_144, parallelism, executor);
+    }
+
+    /**
+     * Shut down the executor.
+     *
+     * @since 1.0.0
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Upload 8 MiB in 256 KiB chunks.
+     *
+     * @return number of bytes written
+     * @throws IOException if cannot upload
+     * @since 1.0.0
+     */
+    @Benchmark
+    public long upload() throws IOException {
+
+        try (var writer = new MemoryRangeWriter(TimeUnit.MILLISECONDS.toNanos(1))) {
+            return uploader.upload(new ByteArrayInputStream(data), SIZE, writer, (p, l) -> {});
+        }
+
+    }
+}
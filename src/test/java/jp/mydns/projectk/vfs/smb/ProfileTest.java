@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2024, Project-K
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package jp.mydns.projectk.vfs.smb;
+
+import jakarta.json.Json;
+import jakarta.json.JsonValue;
+import java.util.List;
+import jp.mydns.projectk.vfs.FileOption;
+import org.apache.commons.vfs2.FileSystemOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of class Profile.
+ *
+ * @author riru
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class ProfileTest extends AbstractOptionTest {
+
+    /**
+     * Test constructor. If argument is valid {@code JsonValue}.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_JsonValue() {
+
+        var instance = new Profile(Json.createValue("LAN"));
+
+        assertThat(instance.getPreset()).isEqualTo(Profile.Preset.LAN);
+
+    }
+
+    /**
+     * Test constructor. If argument is illegal {@code JsonValue}.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testConstructor_IllegalJsonValue() {
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new Profile(Json.createValue("MAN")))
+                .withMessage("FileOption value of [smb:profile] must be either [LAN, WAN].");
+        assertThatIllegalArgumentException().isThrownBy(() -> new Profile(Json.createValue(1)))
+                .withMessage("FileOption value of [smb:profile] must be either [LAN, WAN].");
+
+    }
+
+    /**
+     * Test of apply method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply() throws Exception {
+
+        FileSystemOptions fsOpts = new FileSystemOptions();
+
+        new Profile(Profile.Preset.LAN).apply(fsOpts);
+
+        var config = toPropertyConfiguration(fsOpts);
+
+        assertThat(config.getReceiveBufferSize()).isEqualTo(1_048_576);
+        assertThat(config.getSendBufferSize()).isEqualTo(1_048_576);
+        assertThat(config.getMaxMpxCount()).isEqualTo(128);
+        assertThat(config.getTransactionBufferSize()).isEqualTo(1_048_064);
+
+    }
+
+    /**
+     * Test that the explicit option overrides the preset regardless of the order of applying.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApply_ExplicitOverrides() throws Exception {
+
+        FileSystemOptions before = new FileSystemOptions();
+
+        new ClientMaxMpxCount(16).apply(before);
+        new Profile(Profile.Preset.LAN).apply(before);
+
+        FileSystemOptions after = new FileSystemOptions();
+
+        new Profile(Profile.Preset.LAN).apply(after);
+        new ClientMaxMpxCount(16).apply(after);
+
+        assertThat(toPropertyConfiguration(before).getMaxMpxCount()).isEqualTo(16);
+        assertThat(toPropertyConfiguration(after).getMaxMpxCount()).isEqualTo(16);
+        assertThat(toPropertyConfiguration(before).getReceiveBufferSize()).isEqualTo(1_048_576);
+
+    }
+
+    /**
+     * Test that the explicit option overrides the preset in applying all at once.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testApplyAll_ExplicitOverrides() throws Exception {
+
+        FileSystemOptions before = new FileSystemOptions();
+        FileSystemOptions after = new FileSystemOptions();
+
+        JcifsngOption.applyAll(List.of(new ClientResponseTimeout(5000), new Profile(Profile.Preset.WAN)), before);
+        JcifsngOption.applyAll(List.of(new Profile(Profile.Preset.WAN), new ClientResponseTimeout(5000)), after);
+
+        assertThat(toPropertyConfiguration(before).getResponseTimeout()).isEqualTo(5000);
+        assertThat(toPropertyConfiguration(after).getResponseTimeout()).isEqualTo(5000);
+        assertThat(toPropertyConfiguration(after).getMaxRequestRetries()).isEqualTo(1);
+
+    }
+
+    /**
+     * Test that the presets are consistent.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testPresetsAreValid() {
+
+        for (Profile.Preset preset : Profile.Preset.values()) {
+            assertThat(JcifsngOptionValidator.validate(preset.getProperties())).as(preset.name()).isEmpty();
+            assertThat(JcifsngOptionPlan.compile(List.of(new Profile(preset))).getProperties())
+                    .isEqualTo(preset.getProperties());
+        }
+
+    }
+
+    /**
+     * Test {@code equals} method and {@code hashCode} method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testEqualsHashCode() {
+
+        Profile base = new Profile(Profile.Preset.LAN);
+        Profile same = new Profile(Profile.Preset.LAN);
+        Profile another = new Profile(Profile.Preset.WAN);
+
+        assertThat(base).hasSameHashCodeAs(same).isEqualTo(same)
+                .doesNotHaveSameHashCodeAs(another).isNotEqualTo(another);
+
+    }
+
+    /**
+     * Test of newInstance method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testNewInstance() {
+
+        JsonValue expect = Json.createValue("WAN");
+
+        var instance = new Profile.Resolver().newInstance(Json.createValue("WAN"));
+
+        assertThat(instance).returns("smb:profile", FileOption::getName)
+                .returns(expect, FileOption::getValue);
+
+    }
+
+    /**
+     * Test of toString method.
+     *
+     * @since 1.0.0
+     */
+    @Test
+    void testToString() {
+
+        String expect = Json.createObjectBuilder().add("smb:profile", "WAN").build().toString();
+
+        assertThat(new Profile(Profile.Preset.WAN).toString()).isEqualTo(expect);
+
+    }
+
+}
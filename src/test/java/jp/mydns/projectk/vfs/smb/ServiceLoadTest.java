@@ -52,7 +52,8 @@ class ServiceLoadTest {
                 .map(ServiceLoader.Provider::get).filter(r -> r.getName().startsWith("smb:"))
                 .map(Object::getClass).map(Class::getDeclaringClass).map(Class::getSimpleName);
 
-        assertThat(svcNames).containsExactlyInAnyOrder("AllowNtlmFallback", "BufferCacheSize", "ClientAllowGuestFallback",
+        assertThat(svcNames).containsExactlyInAnyOrder("AllowNtlmFallback", "BlockCacheBlockSize", "BlockCacheCapacity",
+                "BufferCacheSize", "ClientAllowGuestFallback",
                 "ClientAttributeCacheTimeout", "ClientCapabilities", "ClientConnectionTimeout", "ClientDefaultDomain",
                 "ClientDefaultPassword", "ClientDefaultUserName", "ClientDfsConvertToFqdn", "ClientDfsDisabled",
                 "ClientDfsStrictView", "ClientDfsTtl", "ClientDisableIdleTimeout", "ClientDisablePlainTextPasswords",
@@ -66,10 +67,13 @@ class ServiceLoadTest {
                 "ClientSocketTimeout", "ClientStrictResourceLifecycle", "ClientTcpNoDelay", "ClientTransactionBufferSize",
                 "ClientUseBatching", "ClientUseExtendedSecurity", "ClientUseLargeReadWrite", "ClientUseNtSmbs",
                 "ClientUseNtStatus", "ClientUseSmb2Negotiation", "ClientUseUnicode", "LmCompatibility",
-                "MaximumVersion", "MinimumVersion", "NetbiosBroadcastAddress", "NetbiosCachePolicy",
+                "MaximumVersion", "MetadataCacheCapacity", "MetadataCacheShareTtls", "MetadataCacheTtl",
+                "MetadataCacheWatchedTtl", "MinimumVersion", "NetbiosBroadcastAddress", "NetbiosCachePolicy",
                 "NetbiosHostname", "NetbiosLmhostsFilename", "NetbiosLocalAddress", "NetbiosLocalPort",
                 "NetbiosReceiveBufferSize", "NetbiosRetryCount", "NetbiosRetryTimeout", "NetbiosScope",
-                "NetbiosSendBufferSize", "NetbiosSocketTimeout", "NetbiosWins", "OemEncoding", "TraceResources",
-                "UseRawNtlm");
+                "NetbiosSendBufferSize", "NetbiosSocketTimeout", "NetbiosWins", "OemEncoding", "Profile",
+                "ReadAheadInitialWindow", "ReadAheadMaxWindow", "ReadChunkSize", "ReadParallelism", "TraceResources",
+                "UseRawNtlm", "WalkParallelism", "WriteBehindChunkSize", "WriteBehindMaxPending", "WriteChunkSize",
+                "WriteParallelism");
     }
 }